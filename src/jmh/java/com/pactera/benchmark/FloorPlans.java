@@ -0,0 +1,85 @@
+package com.pactera.benchmark;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+
+/**
+ * ClassName: FloorPlans
+ *
+ * @Description: 生成基准测试用的合成仓库平面图: 矩形外墙(LineString)、按行列排布的货架(Polygon)以及四角的出入口(Point)
+ */
+public class FloorPlans {
+
+	/**
+	 * 平面图西南角
+	 */
+	public static final double WEST = 117.2273;
+	public static final double SOUTH = 31.7504;
+	/**
+	 * 每米对应的纬度
+	 */
+	private static final double LAT_PER_METER = 1 / 111320.0;
+	private static final double LNG_PER_METER = LAT_PER_METER / Math.cos(Math.toRadians(SOUTH));
+
+	private FloorPlans() {
+	}
+
+	/**
+	 * 生成平面图
+	 *
+	 * @param widthMeters  宽度(米)
+	 * @param heightMeters 高度(米)
+	 * @param obstacles    货架数量
+	 */
+	public static FeatureCollection warehouse(double widthMeters, double heightMeters, int obstacles) {
+		List<Feature> features = Lists.newArrayList();
+		double east = WEST + widthMeters * LNG_PER_METER;
+		double north = SOUTH + heightMeters * LAT_PER_METER;
+
+		// 货架按长宽比排布, 每个货架占所在格位的 60% x 80%, 其余为通道
+		int columns = (int) Math.max(1, Math.ceil(Math.sqrt(obstacles * widthMeters / heightMeters)));
+		int rows = (int) Math.ceil((double) obstacles / columns);
+		double slotWidth = (east - WEST) * 0.9 / columns;
+		double slotHeight = (north - SOUTH) * 0.9 / rows;
+		double originX = WEST + (east - WEST) * 0.05;
+		double originY = SOUTH + (north - SOUTH) * 0.05;
+		for (int i = 0; i < obstacles; i++) {
+			double x0 = originX + (i % columns) * slotWidth + slotWidth * 0.2;
+			double y0 = originY + (i / columns) * slotHeight + slotHeight * 0.1;
+			double x1 = x0 + slotWidth * 0.6;
+			double y1 = y0 + slotHeight * 0.8;
+			List<Point> ring = Lists.newArrayList(Point.fromLngLat(x0, y0), Point.fromLngLat(x0, y1),
+					Point.fromLngLat(x1, y1), Point.fromLngLat(x1, y0), Point.fromLngLat(x0, y0));
+			List<List<Point>> coordinates = Lists.newArrayList();
+			coordinates.add(ring);
+			features.add(Feature.fromGeometry(Polygon.fromLngLats(coordinates)));
+		}
+
+		for (Point entrance : entrances(widthMeters, heightMeters)) {
+			features.add(Feature.fromGeometry(entrance));
+		}
+		features.add(Feature.fromGeometry(LineString.fromLngLats(Lists.newArrayList(Point.fromLngLat(WEST, SOUTH),
+				Point.fromLngLat(WEST, north), Point.fromLngLat(east, north), Point.fromLngLat(east, SOUTH),
+				Point.fromLngLat(WEST, SOUTH)))));
+		return FeatureCollection.fromFeatures(features);
+	}
+
+	/**
+	 * 四角的出入口: 西南、东南、西北、东北
+	 */
+	public static List<Point> entrances(double widthMeters, double heightMeters) {
+		double east = WEST + widthMeters * LNG_PER_METER;
+		double north = SOUTH + heightMeters * LAT_PER_METER;
+		double dx = (east - WEST) * 0.02;
+		double dy = (north - SOUTH) * 0.02;
+		return Lists.newArrayList(Point.fromLngLat(WEST + dx, SOUTH + dy), Point.fromLngLat(east - dx, SOUTH + dy),
+				Point.fromLngLat(WEST + dx, north - dy), Point.fromLngLat(east - dx, north - dy));
+	}
+
+}
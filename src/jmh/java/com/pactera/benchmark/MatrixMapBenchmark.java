@@ -0,0 +1,240 @@
+package com.pactera.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.pactera.astar.BidirectionalAStar;
+import com.pactera.astar.GridAStar;
+import com.pactera.astar.MatrixMap;
+import com.pactera.astar.PathFinder;
+import com.pactera.astar.Routes;
+import com.pactera.astar.RoutingTable;
+import com.pactera.astar.VisibilityGraph;
+import com.pactera.turf.TurfMisc;
+
+/**
+ * ClassName: MatrixMapBenchmark
+ *
+ * @Description: 矩阵图构建与路径搜索的基准测试; 各矩阵图使用默认的 cellSize(0, 按平面图宽度横向约 100 格),
+ *               rows 通过平面图长宽比控制网格行数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatrixMapBenchmark {
+
+	/**
+	 * 网格行数(约)
+	 */
+	@Param({ "100", "400" })
+	public int rows;
+	/**
+	 * 货架数量
+	 */
+	@Param({ "50", "500" })
+	public int obstacles;
+
+	private FeatureCollection plan;
+	/**
+	 * 平面图的 GeoJSON 文本(UTF-8)
+	 */
+	private byte[] planJson;
+	private MatrixMap map;
+	private MatrixMap jpsMap;
+	/**
+	 * 直接在障碍网格上比较A星与双向A星(NBA*), 起点与终点为出入口网格
+	 */
+	private GridAStar astar;
+	private BidirectionalAStar bidirectional;
+	private int[] cells;
+	private MatrixMap visibilityMap;
+	private MatrixMap tableMap;
+	private double[] start;
+	private double[] end;
+	/**
+	 * 平面图中的障碍物多边形
+	 */
+	private List<Polygon> obstaclePolygons;
+	private Point startPt;
+	private Point endPt;
+	/**
+	 * 一对多搜索的终点(网格坐标)
+	 */
+	private double[] cellStart;
+	private List<double[]> cellTargets;
+	/**
+	 * 带出入口路径表的快照文件
+	 */
+	private Path snapshot;
+
+	@Setup
+	public void setup() throws IOException {
+		double width = 100;
+		double height = width * rows / 100;
+		plan = FloorPlans.warehouse(width, height, obstacles);
+		planJson = plan.toJson().getBytes(StandardCharsets.UTF_8);
+		map = new MatrixMap(plan);
+		jpsMap = new MatrixMap(plan);
+		jpsMap.setEngine(PathFinder.Engine.JPS);
+		visibilityMap = new MatrixMap(plan);
+		visibilityMap.setVisibilityRouting(true);
+		visibilityMap.buildVisibilityGraph();
+		obstaclePolygons = Lists.newArrayList();
+		for (Feature feature : plan.features()) {
+			if (feature.geometry() instanceof Polygon)
+				obstaclePolygons.add((Polygon) feature.geometry());
+		}
+		tableMap = new MatrixMap(plan);
+		tableMap.buildRoutingTable();
+		List<Point> entrances = FloorPlans.entrances(width, height);
+		startPt = entrances.get(0);
+		endPt = entrances.get(3);
+		start = new double[] { startPt.longitude(), startPt.latitude() };
+		end = new double[] { endPt.longitude(), endPt.latitude() };
+		int columns = map.getOccupancy().getWidth();
+		int startCell = map.getEntrances().getCell(0), endCell = map.getEntrances().getCell(3);
+		cells = new int[] { startCell % columns, startCell / columns, endCell % columns, endCell / columns };
+		astar = new GridAStar();
+		bidirectional = new BidirectionalAStar();
+
+		Random random = new Random(1);
+		int cellRows = map.getOccupancy().getHeight();
+		cellStart = new double[] { 0, 0 };
+		cellTargets = Lists.newArrayList();
+		for (int i = 0; i < 200; i++)
+			cellTargets.add(new double[] { random.nextInt(columns), random.nextInt(cellRows) });
+
+		snapshot = Files.createTempFile("matrix", ".snapshot");
+		tableMap.writeSnapshot(snapshot);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(snapshot);
+	}
+
+	@Benchmark
+	public MatrixMap generateMatrix() {
+		return new MatrixMap(plan);
+	}
+
+	/**
+	 * 解析为 FeatureCollection 后生成矩阵图
+	 */
+	@Benchmark
+	public MatrixMap generateMatrixFromJson() {
+		return new MatrixMap(FeatureCollection.fromJson(new String(planJson, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * 流式读取 GeoJSON 生成矩阵图(与 generateMatrixFromJson 对比)
+	 */
+	@Benchmark
+	public MatrixMap generateMatrixStreaming() {
+		return new MatrixMap(new ByteArrayInputStream(planJson));
+	}
+
+	/**
+	 * 从快照读取(与 generateMatrix 对比冷启动)
+	 */
+	@Benchmark
+	public MatrixMap readSnapshot() {
+		return MatrixMap.readSnapshot(snapshot);
+	}
+
+	@Benchmark
+	public LineString shortestPath() {
+		return map.shortestPath(start, end);
+	}
+
+	@Benchmark
+	public LineString shortestPathJps() {
+		return jpsMap.shortestPath(start, end);
+	}
+
+	@Benchmark
+	public boolean searchAStar() {
+		return astar.search(map.getOccupancy(), cells[0], cells[1], cells[2], cells[3]);
+	}
+
+	@Benchmark
+	public boolean searchBidirectional() {
+		return bidirectional.search(map.getOccupancy(), cells[0], cells[1], cells[2], cells[3]);
+	}
+
+	/**
+	 * 障碍物多边形可视图上的欧氏最短路径
+	 */
+	@Benchmark
+	public LineString shortestPathVisibility() {
+		return visibilityMap.shortestPath(start, end);
+	}
+
+	@Benchmark
+	public VisibilityGraph buildVisibilityGraph() {
+		return VisibilityGraph.build(map.getGrid(), obstaclePolygons);
+	}
+
+	@Benchmark
+	public LineString shortestPathTable() {
+		return tableMap.shortestPath(start, end);
+	}
+
+	/**
+	 * 一个起点到 200 个终点, 一次泛洪
+	 */
+	@Benchmark
+	public Routes shortestPaths() {
+		return map.shortestPaths(cellStart, cellTargets);
+	}
+
+	/**
+	 * 一个起点到 200 个终点, 逐个搜索
+	 */
+	@Benchmark
+	public double shortestPathsOneByOne() {
+		double total = 0;
+		for (double[] target : cellTargets)
+			total += map.shortestPath(cellStart, target).coordinates().size();
+		return total;
+	}
+
+	@Benchmark
+	public RoutingTable buildRoutingTable() {
+		return RoutingTable.build(map.getOccupancy(), map.getEntrances());
+	}
+
+	@Benchmark
+	public LineString turfShortestPath() {
+		return TurfMisc.shortestPath(startPt, endPt, plan);
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.pactera.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.pactera.turf.TurfBooleans;
+import com.pactera.turf.TurfMeasurement;
+
+/**
+ * ClassName: TurfBenchmark
+ *
+ * @Description: 点面判断与恒向线距离的基准测试
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TurfBenchmark {
+
+	private Polygon polygon;
+	private Point inside;
+	private Point outside;
+	private Point from;
+	private Point to;
+
+	@Setup
+	public void setup() {
+		polygon = Polygon.fromJson("{\"type\":\"Polygon\",\"coordinates\":[[[117.228079,31.750482],"
+				+ "[117.228079,31.750497],[117.228174,31.750497],[117.228174,31.750482],[117.228079,31.750482]]]}");
+		inside = Point.fromLngLat(117.2281, 31.75049);
+		outside = Point.fromLngLat(117.2279, 31.75049);
+		from = Point.fromLngLat(117.227502, 31.750481);
+		to = Point.fromLngLat(117.228057, 31.751049);
+	}
+
+	@Benchmark
+	public boolean booleanPointInPolygonInside() {
+		return TurfBooleans.booleanPointInPolygon(inside, polygon);
+	}
+
+	@Benchmark
+	public boolean booleanPointInPolygonOutside() {
+		return TurfBooleans.booleanPointInPolygon(outside, polygon);
+	}
+
+	@Benchmark
+	public double rhumbDistance() {
+		return TurfMeasurement.rhumbDistance(from, to);
+	}
+
+}
@@ -2,7 +2,6 @@ package com.pactera.astar;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Queue;
 
 import com.google.common.collect.Lists;
@@ -33,9 +32,21 @@ public class AStar {
 	 */
 	private double bevelEdge = Math.sqrt(2);
 	/**
-	 * 临时矩阵图
+	 * H 的估值方法
 	 */
-	private int[][] matrix;
+	private Heuristic heuristic = Heuristic.OCTILE;
+	/**
+	 * 障碍网格(只读)
+	 */
+	private OccupancyGrid occupancy;
+	/**
+	 * 终点坐标, 终点即使落在障碍上也视为可通过
+	 */
+	private Coord endCoord;
+	/**
+	 * 路径绘制(调试用), 默认为 null, 不绘制
+	 */
+	private PathRenderer renderer;
 
 	public AStar() {
 	}
@@ -45,63 +56,76 @@ public class AStar {
 		this.bevelEdge = Math.sqrt(Math.pow(this.straightEdge, 2) + Math.pow(this.straightEdge, 2));
 	}
 
-	Queue<Node> openList = new PriorityQueue<Node>(); // 优先队列(升序)
-	List<Node> closeList = new ArrayList<Node>();
+	NodeHeap openList; // 带索引的优先队列(升序)
+	Node[] closeNodes = new Node[0]; // close表, 下标为 y * width + x, 不在close表中为 null
 
 	double totalCost = 0;
+	int expanded = 0; // 扩展(放入close表)的结点数
 	List<int[]> pathList = new ArrayList<int[]>();
 
 	/**
-	 * 开始算法
+	 * 开始算法, 结果保存在 totalCost 与 pathList 中(终点到起点的顺序), 不会修改 mapInfo
 	 */
-	public void start(MatrixMap mapInfo) {
-		if (mapInfo == null)
+	public void start(MatrixMap mapInfo, Node start, Node end) {
+		if (mapInfo == null || start == null || end == null)
 			return;
 
-		openList.clear();
-		closeList.clear();
+		// 直接读取共享的障碍网格, 路径绘制另行输出, 不复制也不修改原图数据
+		this.occupancy = mapInfo.getOccupancy();
+		this.endCoord = end.getCoord();
 
-		// 复制二维数组,画路径图时使用临时二维数组从而不污染原图数据
-		int[][] matrix = mapInfo.getMatrix();
-		this.matrix = new int[matrix.length][matrix[0].length];
-		for (int i = 0; i < matrix.length; i++) {
-			System.arraycopy(matrix[i], 0, this.matrix[i], 0, matrix[0].length);
-		}
-
-		this.matrix[mapInfo.getStart().getCoord().getY()][mapInfo.getStart().getCoord().getX()] = 9;
-		this.matrix[mapInfo.getEnd().getCoord().getY()][mapInfo.getEnd().getCoord().getX()] = 9;
+		openList = new NodeHeap(occupancy.getWidth(), occupancy.getHeight());
+		closeNodes = new Node[occupancy.getWidth() * occupancy.getHeight()];
+		totalCost = 0;
+		expanded = 0;
+		pathList = new ArrayList<int[]>();
 
-		openList.add(mapInfo.getStart());
-		moveNodes(mapInfo);
+		openList.add(start);
+		moveNodes(start, end);
 	}
 
 	/**
 	 * 移动当前结点
 	 */
-	private void moveNodes(MatrixMap mapInfo) {
+	private void moveNodes(Node start, Node end) {
 		while (!openList.isEmpty()) {
-			if (isCoordInClose(mapInfo.getEnd().getCoord())) { // 到达终点
-				mapInfo.setLength(mapInfo.getEnd().getG()); // 设置总长度(代价)
-				mapInfo.setPaths(Lists.newArrayList()); // 清空路径集合
-				drawPath(this.matrix, mapInfo.getEnd(), mapInfo.getPaths()); // 画路线图并保存路径坐标
+			if (isCoordInClose(end.getCoord())) { // 到达终点
+				this.totalCost = end.getG(); // 设置总长度(代价)
+				this.pathList = Lists.newArrayList(); // 清空路径集合
+				drawPath(end, this.pathList); // 保存路径坐标
 				break;
 			}
 			Node current = openList.poll();
-			closeList.add(current);
-			addNeighborNodeInOpen(mapInfo, current);
+			expanded++;
+			closeNodes[openList.indexOf(current.getCoord())] = current;
+			addNeighborNodeInOpen(end, current);
+		}
+		if (renderer != null)
+			render(start.getCoord(), end.getCoord());
+	}
+
+	/**
+	 * 将路径交给 renderer 绘制
+	 */
+	private void render(Coord start, Coord end) {
+		int width = occupancy.getWidth();
+		int[] path = new int[pathList.size()];
+		for (int i = 0; i < path.length; i++) {
+			int[] c = pathList.get(path.length - 1 - i);
+			path[i] = c[1] * width + c[0];
 		}
-		AStar.printMap(this.matrix);
+		renderer.render(occupancy, start.getY() * width + start.getX(), end.getY() * width + end.getX(), path,
+				path.length);
 	}
 
 	/**
-	 * 在二维数组中绘制路径
+	 * 按父结点回溯保存路径坐标(终点到起点的顺序)
 	 */
-	private void drawPath(int[][] maps, Node end, List<int[]> paths) {
-		if (end == null || maps == null)
+	private void drawPath(Node end, List<int[]> paths) {
+		if (end == null)
 			return;
 		while (end != null) {
 			Coord c = end.getCoord();
-			maps[c.getY()][c.getX()] = PATH;
 			end = end.getParent();
 			paths.add(new int[] { c.getX(), c.getY() });
 		}
@@ -110,31 +134,30 @@ public class AStar {
 	/**
 	 * 添加所有邻结点到open表
 	 */
-	private void addNeighborNodeInOpen(MatrixMap mapInfo, Node current) {
+	private void addNeighborNodeInOpen(Node end, Node current) {
 		int x = current.getCoord().getX();
 		int y = current.getCoord().getY();
 
-		addNeighborNodeInOpen(mapInfo, current, x - 1, y, straightEdge); // 左
-		addNeighborNodeInOpen(mapInfo, current, x, y - 1, straightEdge); // 上
-		addNeighborNodeInOpen(mapInfo, current, x + 1, y, straightEdge); // 右
-		addNeighborNodeInOpen(mapInfo, current, x, y + 1, straightEdge); // 下
-		addNeighborNodeInOpen(mapInfo, current, x - 1, y - 1, bevelEdge); // 左上
-		addNeighborNodeInOpen(mapInfo, current, x + 1, y - 1, bevelEdge); // 右上
-		addNeighborNodeInOpen(mapInfo, current, x + 1, y + 1, bevelEdge); // 右下
-		addNeighborNodeInOpen(mapInfo, current, x - 1, y + 1, bevelEdge); // 左下
+		addNeighborNodeInOpen(end, current, x - 1, y, straightEdge); // 左
+		addNeighborNodeInOpen(end, current, x, y - 1, straightEdge); // 上
+		addNeighborNodeInOpen(end, current, x + 1, y, straightEdge); // 右
+		addNeighborNodeInOpen(end, current, x, y + 1, straightEdge); // 下
+		addNeighborNodeInOpen(end, current, x - 1, y - 1, bevelEdge); // 左上
+		addNeighborNodeInOpen(end, current, x + 1, y - 1, bevelEdge); // 右上
+		addNeighborNodeInOpen(end, current, x + 1, y + 1, bevelEdge); // 右下
+		addNeighborNodeInOpen(end, current, x - 1, y + 1, bevelEdge); // 左下
 	}
 
 	/**
 	 * 添加一个邻结点到open表
 	 */
-	private void addNeighborNodeInOpen(MatrixMap mapInfo, Node current, int x, int y, double value) {
-		if (canAddNodeToOpen(mapInfo, x, y)) {
-			Node end = mapInfo.getEnd();
+	private void addNeighborNodeInOpen(Node end, Node current, int x, int y, double value) {
+		if (canAddNodeToOpen(x, y)) {
 			Coord coord = new Coord(x, y);
 			double G = current.getG() + value;
-			Node child = findNodeInOpen(coord);
+			Node child = openList.get(openList.indexOf(coord));
 			if (child == null) {
-				int H = calcH(end.getCoord(), coord);
+				double H = calcH(end.getCoord(), coord);
 				if (isEndNode(end.getCoord(), coord)) {
 					child = end;
 					child.setParent(current);
@@ -147,30 +170,17 @@ public class AStar {
 			} else if (child.getG() > G) {
 				child.setG(G);
 				child.setParent(current);
-				openList.add(child);
+				openList.decreaseKey(child);
 			}
 		}
 	}
 
 	/**
-	 * 从Open列表中查找结点
+	 * 计算H的估值, 方法由 heuristic 指定
 	 */
-	private Node findNodeInOpen(Coord coord) {
-		if (coord == null || openList.isEmpty())
-			return null;
-		for (Node node : openList) {
-			if (node.getCoord().equals(coord)) {
-				return node;
-			}
-		}
-		return null;
-	}
-
-	/**
-	 * 计算H的估值：“曼哈顿”法，坐标分别取差值相加
-	 */
-	private int calcH(Coord end, Coord coord) {
-		return Math.abs(end.getX() - coord.getX()) + Math.abs(end.getY() - coord.getY());
+	private double calcH(Coord end, Coord coord) {
+		return heuristic.estimate(Math.abs(end.getX() - coord.getX()), Math.abs(end.getY() - coord.getY()),
+				straightEdge, bevelEdge);
 	}
 
 	/**
@@ -183,12 +193,12 @@ public class AStar {
 	/**
 	 * 判断结点能否放入Open列表
 	 */
-	private boolean canAddNodeToOpen(MatrixMap mapInfo, int x, int y) {
+	private boolean canAddNodeToOpen(int x, int y) {
 		// 是否在地图中
-		if (x < 0 || x >= this.matrix[0].length || y < 0 || y >= this.matrix.length)
+		if (x < 0 || x >= occupancy.getWidth() || y < 0 || y >= occupancy.getHeight())
 			return false;
 		// 判断是否是不可通过的结点
-		if (this.matrix[y][x] == BAR)
+		if (occupancy.isBlocked(x, y) && (x != endCoord.getX() || y != endCoord.getY()))
 			return false;
 		// 判断结点是否存在close表
 		if (isCoordInClose(x, y))
@@ -208,26 +218,34 @@ public class AStar {
 	 * 判断坐标是否在close表中
 	 */
 	private boolean isCoordInClose(int x, int y) {
-		if (closeList.isEmpty())
-			return false;
-		for (Node node : closeList) {
-			if (node.getCoord().getX() == x && node.getCoord().getY() == y) {
-				return true;
-			}
+		return closeNodes[y * occupancy.getWidth() + x] != null;
+	}
+
+	/**
+	 * 在障碍网格的副本上绘制路径: 起点和终点为 9, 路径为 PATH, 障碍为 BAR
+	 */
+	public static int[][] paintPath(OccupancyGrid occupancy, Coord start, Coord end, List<int[]> paths) {
+		int[][] maps = occupancy.toMatrix();
+		maps[start.getY()][start.getX()] = 9;
+		maps[end.getY()][end.getX()] = 9;
+		for (int[] c : paths) {
+			maps[c[1]][c[0]] = PATH;
 		}
-		return false;
+		return maps;
 	}
 
 	/**
 	 * 打印地图
 	 */
 	public static void printMap(int[][] maps) {
+		StringBuilder text = new StringBuilder();
 		for (int i = 0; i < maps.length; i++) {
 			for (int j = 0; j < maps[i].length; j++) {
-				System.out.print(maps[i][j] + " ");
+				text.append(maps[i][j]).append(' ');
 			}
-			System.out.println();
+			text.append('\n');
 		}
+		System.out.print(text);
 	}
 
 	/**
@@ -251,6 +269,18 @@ public class AStar {
 		this.totalCost = totalCost;
 	}
 
+	public int getExpanded() {
+		return expanded;
+	}
+
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+
+	public void setHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+	}
+
 	public double getStraightEdge() {
 		return straightEdge;
 	}
@@ -267,20 +297,35 @@ public class AStar {
 		this.bevelEdge = bevelEdge;
 	}
 
+	public PathRenderer getRenderer() {
+		return renderer;
+	}
+
+	public void setRenderer(PathRenderer renderer) {
+		this.renderer = renderer;
+	}
+
 	public Queue<Node> getOpenList() {
 		return openList;
 	}
 
-	public void setOpenList(Queue<Node> openList) {
+	/**
+	 * open表为带索引的 NodeHeap(原为 Queue), start 时重新创建
+	 */
+	public void setOpenList(NodeHeap openList) {
 		this.openList = openList;
 	}
 
+	/**
+	 * close表中的结点(按网格下标 y * width + x 排列), 调用时生成
+	 */
 	public List<Node> getCloseList() {
+		List<Node> closeList = new ArrayList<Node>(expanded);
+		for (Node node : closeNodes) {
+			if (node != null)
+				closeList.add(node);
+		}
 		return closeList;
 	}
 
-	public void setCloseList(List<Node> closeList) {
-		this.closeList = closeList;
-	}
-
 }
@@ -0,0 +1,517 @@
+package com.pactera.astar;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * ClassName: BidirectionalAStar
+ *
+ * @Description: 双向A星算法(NBA*); 从起点和终点同时扩展两个open表, 正向以 H(v, 终点)、反向以 H(v, 起点) 为估值.
+ *               两侧共享"中间"结点集合: 结点被任一侧取出后离开中间集合, 另一侧不再更新它. 取出的结点 x 满足
+ *               G(x) + H(x) >= μ 或 G(x) + F' - H'(x) >= μ 时直接丢弃而不扩展(μ 为最小相遇代价, F' 为另一侧 open 表最小的 F,
+ *               H' 为另一侧的估值), 任一侧 open 表为空或最小的 F 不小于 μ 时停止, 此时 μ 即最短路径代价(估值须可采纳且一致,
+ *               默认 OCTILE). 两侧可以交替在同一线程中扩展, 也可以由两个线程并行扩展(parallel): 反向一侧提交给 executor,
+ *               默认为 ForkJoinPool.commonPool(), 与并行流、栅格化等共用, 线程池繁忙时两侧实际上先后执行, 比单线程更慢;
+ *               需要加速时应通过 setParallel(true, executor) 指定专用的线程池.
+ *               仓库平面图上扩展的结点数与 GridAStar 相当而单线程耗时更长, 因此只作为可选的 PathFinder.Engine.BIDIRECTIONAL,
+ *               默认仍使用 ASTAR
+ */
+public class BidirectionalAStar implements PathFinder {
+
+	/**
+	 * 平移代价
+	 */
+	private double straightEdge = 1;
+	/**
+	 * 斜移代价
+	 */
+	private double bevelEdge = Math.sqrt(2);
+	/**
+	 * H 的估值方法
+	 */
+	private Heuristic heuristic = Heuristic.OCTILE;
+	/**
+	 * 是否由两个线程并行扩展
+	 */
+	private boolean parallel;
+	/**
+	 * 并行扩展时执行反向一侧的线程池
+	 */
+	private Executor executor = ForkJoinPool.commonPool();
+
+	/**
+	 * 正向(起点出发)与反向(终点出发)
+	 */
+	private final Side forward = new Side();
+	private final Side backward = new Side();
+	/**
+	 * 已离开中间集合(被任一侧取出)的结点的搜索批次
+	 */
+	private AtomicIntegerArray taken = new AtomicIntegerArray(0);
+	private int generation;
+
+	private OccupancyGrid grid;
+	private int width;
+	private int height;
+	private int start;
+	private int end;
+	/**
+	 * 相遇代价与相遇结点(两侧都访问过, 正向与反向的 G 之和最小)
+	 */
+	private volatile double best;
+	private int meet;
+	/**
+	 * 相遇后反向一侧的第一个结点: 在同一结点相遇时为它在反向一侧的父结点, 经一条边相遇时为边的另一端
+	 */
+	private int meetNext;
+	/**
+	 * 任一侧满足停止条件后置为 true
+	 */
+	private volatile boolean stopped;
+
+	private int[] path = new int[0];
+	private int pathSize;
+	private double length;
+	private int expanded;
+
+	public BidirectionalAStar() {
+	}
+
+	public BidirectionalAStar(double straightEdge) {
+		this.straightEdge = straightEdge;
+		this.bevelEdge = Math.sqrt(Math.pow(this.straightEdge, 2) + Math.pow(this.straightEdge, 2));
+	}
+
+	@Override
+	public boolean search(OccupancyGrid grid, int startX, int startY, int endX, int endY) {
+		this.grid = grid;
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		this.start = startY * width + startX;
+		this.end = endY * width + endX;
+		this.best = Double.POSITIVE_INFINITY;
+		this.meet = -1;
+		this.stopped = false;
+		this.pathSize = 0;
+		this.length = 0;
+		this.expanded = 0;
+		if (start == end) {
+			if (path.length == 0)
+				path = new int[1];
+			path[0] = start;
+			pathSize = 1;
+			this.grid = null;
+			return true;
+		}
+
+		int cells = width * height;
+		if (taken.length() < cells) {
+			taken = new AtomicIntegerArray(cells);
+			generation = 0;
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			for (int i = 0; i < taken.length(); i++)
+				taken.set(i, 0);
+			generation = 1;
+		}
+		forward.reset(cells, start, endX, endY, startX, startY);
+		backward.reset(cells, end, startX, startY, endX, endY);
+
+		if (parallel) {
+			FutureTask<Void> task = new FutureTask<Void>(() -> run(backward, forward), null);
+			executor.execute(task);
+			run(forward, backward);
+			try {
+				task.get();
+			} catch (InterruptedException | ExecutionException e) {
+				throw new Error(e);
+			}
+			// 两个线程可能都读到另一侧较旧的状态, 甚至同时取出相邻的两个结点而都跳过对方, 结束后按最终的 G 重新取最小相遇代价
+			settle();
+		} else {
+			// 交替扩展 open 表较小的一侧, 另一侧的最小 F 直接取 open 表顶
+			while (!stopped) {
+				boolean isForward = forward.heapSize <= backward.heapSize;
+				Side side = isForward ? forward : backward;
+				Side other = isForward ? backward : forward;
+				if (!step(side, other, other.peek()))
+					stopped = true;
+			}
+			if (meet >= 0)
+				meetNext = backward.parent[meet];
+		}
+		this.grid = null;
+		this.expanded = forward.expanded + backward.expanded;
+		if (meet < 0)
+			return false;
+		length = best;
+		drawPath();
+		return true;
+	}
+
+	/**
+	 * 在当前线程中持续扩展一侧, 直到任一侧满足停止条件
+	 */
+	private void run(Side side, Side other) {
+		while (!stopped) {
+			if (!step(side, other, other.top))
+				stopped = true;
+		}
+	}
+
+	/**
+	 * 取出一侧最小 F 的结点, 未被剪枝时扩展; otherTop 为另一侧最小 F 的下界, 并行时使用另一侧最近一次取出的结点的 F(只增不减)
+	 *
+	 * @return 是否需要继续搜索
+	 */
+	private boolean step(Side side, Side other, double otherTop) {
+		if (side.heapSize == 0 || side.f[side.heap[0]] >= best)
+			return false;
+		int current = side.pop();
+		side.top = side.f[current];
+		if (!take(current))
+			return true;
+		int x = current % width;
+		int y = current / width;
+		double g = side.g[current];
+		// 经 current 的路径不短于 G + (另一侧的 F - 另一侧的 H), 不可能比 μ 更短
+		if (g + otherTop - side.estimate(x, y, side.rootX, side.rootY) >= best)
+			return true;
+		side.expanded++;
+		for (int i = 0; i < 8; i++) {
+			int nx = x + GridAStar.DX[i];
+			int ny = y + GridAStar.DY[i];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+				continue;
+			int next = ny * width + nx;
+			if (grid.isBlocked(nx, ny) && next != start && next != end)
+				continue;
+			if (taken.get(next) == generation)
+				continue;
+			double G = g + (i < 4 ? straightEdge : bevelEdge);
+			if (!side.isVisited(next)) {
+				side.g[next] = G;
+				side.h[next] = side.estimate(nx, ny, side.targetX, side.targetY);
+				side.f[next] = G + side.h[next];
+				side.parent[next] = current;
+				side.visit(next);
+				side.push(next);
+			} else if (side.heapIndex[next] >= 0 && side.g[next] > G) {
+				side.g[next] = G;
+				side.f[next] = G + side.h[next];
+				side.parent[next] = current;
+				side.siftUp(side.heapIndex[next], next);
+			} else {
+				continue;
+			}
+			// 另一侧访问过的邻结点: 两侧在 next 相遇
+			if (other.isVisited(next) && G + other.g[next] < best)
+				meet(next, G + other.g[next]);
+		}
+		return true;
+	}
+
+	/**
+	 * 结点离开中间集合, 已被任一侧取出时返回 false
+	 */
+	private boolean take(int node) {
+		if (!parallel) {
+			if (taken.get(node) == generation)
+				return false;
+			taken.lazySet(node, generation);
+			return true;
+		}
+		int old = taken.get(node);
+		return old != generation && taken.compareAndSet(node, old, generation);
+	}
+
+	private synchronized void meet(int node, double cost) {
+		if (cost < best) {
+			best = cost;
+			meet = node;
+		}
+	}
+
+	/**
+	 * 并行搜索结束后重新取最小相遇代价: 两侧都访问过的结点, 以及正向访问过的结点与反向访问过的邻结点之间的边
+	 */
+	private void settle() {
+		best = Double.POSITIVE_INFINITY;
+		meet = -1;
+		for (int k = 0; k < forward.visitedSize; k++) {
+			int node = forward.visitedNodes[k];
+			double g = forward.g[node];
+			if (backward.isVisited(node) && g + backward.g[node] < best) {
+				best = g + backward.g[node];
+				meet = node;
+				meetNext = backward.parent[node];
+			}
+			int x = node % width;
+			int y = node / width;
+			for (int i = 0; i < 8; i++) {
+				int nx = x + GridAStar.DX[i];
+				int ny = y + GridAStar.DY[i];
+				if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+					continue;
+				int next = ny * width + nx;
+				if (!backward.isVisited(next) || grid.isBlocked(nx, ny) && next != start && next != end)
+					continue;
+				double cost = g + (i < 4 ? straightEdge : bevelEdge) + backward.g[next];
+				if (cost < best) {
+					best = cost;
+					meet = node;
+					meetNext = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 正向从相遇结点回溯到起点, 反向从 meetNext 回溯到终点, 结果为起点到终点的顺序
+	 */
+	private void drawPath() {
+		int count = 0;
+		for (int node = meet; node != -1; node = forward.parent[node])
+			count++;
+		int split = count;
+		for (int node = meetNext; node != -1; node = backward.parent[node])
+			count++;
+		if (path.length < count)
+			path = new int[Math.max(count, path.length << 1)];
+		pathSize = count;
+		int k = split;
+		for (int node = meet; node != -1; node = forward.parent[node])
+			path[--k] = node;
+		k = split;
+		for (int node = meetNext; node != -1; node = backward.parent[node])
+			path[k++] = node;
+	}
+
+	/**
+	 * 一侧的搜索状态, 缓冲区按网格大小复用
+	 */
+	private class Side {
+
+		double[] g = new double[0];
+		double[] f = new double[0];
+		double[] h = new double[0];
+		int[] parent = new int[0];
+		int[] heapIndex = new int[0];
+		/**
+		 * 已访问结点的搜索批次; 另一侧(可能在另一个线程)读取, 写入 G 之后才标记, 保证读到的 G 属于本次搜索
+		 */
+		AtomicIntegerArray visited = new AtomicIntegerArray(0);
+		/**
+		 * 按访问顺序记录的结点, 并行搜索结束后重新取相遇代价时使用
+		 */
+		int[] visitedNodes = new int[0];
+		int visitedSize;
+		int generation;
+		int[] heap = new int[0];
+		int heapSize;
+		/**
+		 * 最近一次取出的结点的 F, 供另一侧剪枝与判断停止条件
+		 */
+		volatile double top;
+		/**
+		 * 本侧的出发点与目标点
+		 */
+		int rootX;
+		int rootY;
+		int targetX;
+		int targetY;
+		int expanded;
+
+		void reset(int cells, int root, int targetX, int targetY, int rootX, int rootY) {
+			if (g.length < cells) {
+				g = new double[cells];
+				f = new double[cells];
+				h = new double[cells];
+				parent = new int[cells];
+				heapIndex = new int[cells];
+				visited = new AtomicIntegerArray(cells);
+				visitedNodes = new int[cells];
+				heap = new int[cells];
+				generation = 0;
+			}
+			if (++generation == Integer.MAX_VALUE) {
+				for (int i = 0; i < visited.length(); i++)
+					visited.set(i, 0);
+				generation = 1;
+			}
+			this.rootX = rootX;
+			this.rootY = rootY;
+			this.targetX = targetX;
+			this.targetY = targetY;
+			this.heapSize = 0;
+			this.visitedSize = 0;
+			this.expanded = 0;
+			g[root] = 0;
+			h[root] = estimate(rootX, rootY, targetX, targetY);
+			f[root] = h[root];
+			this.top = f[root];
+			parent[root] = -1;
+			visit(root);
+			push(root);
+		}
+
+		double estimate(int x, int y, int toX, int toY) {
+			return heuristic.estimate(Math.abs(toX - x), Math.abs(toY - y), straightEdge, bevelEdge);
+		}
+
+		/**
+		 * 标记为已访问; 调用前须先写入 G
+		 */
+		void visit(int node) {
+			heapIndex[node] = -1;
+			visitedNodes[visitedSize++] = node;
+			visited.lazySet(node, generation);
+		}
+
+		boolean isVisited(int node) {
+			return visited.get(node) == generation;
+		}
+
+		void push(int node) {
+			siftUp(heapSize++, node);
+		}
+
+		/**
+		 * open 表中最小的 F, 为空时返回正无穷
+		 */
+		double peek() {
+			return heapSize == 0 ? Double.POSITIVE_INFINITY : f[heap[0]];
+		}
+
+		int pop() {
+			int result = heap[0];
+			int last = heap[--heapSize];
+			if (heapSize > 0)
+				siftDown(0, last);
+			heapIndex[result] = -1;
+			return result;
+		}
+
+		int compare(int a, int b) {
+			if (f[a] != f[b])
+				return f[a] > f[b] ? 1 : -1;
+			return Double.compare(h[a], h[b]);
+		}
+
+		void siftUp(int k, int node) {
+			while (k > 0) {
+				int p = (k - 1) >>> 1;
+				int e = heap[p];
+				if (compare(node, e) >= 0)
+					break;
+				heap[k] = e;
+				heapIndex[e] = k;
+				k = p;
+			}
+			heap[k] = node;
+			heapIndex[node] = k;
+		}
+
+		void siftDown(int k, int node) {
+			int half = heapSize >>> 1;
+			while (k < half) {
+				int child = (k << 1) + 1;
+				int c = heap[child];
+				int right = child + 1;
+				if (right < heapSize && compare(c, heap[right]) > 0)
+					c = heap[child = right];
+				if (compare(node, c) <= 0)
+					break;
+				heap[k] = c;
+				heapIndex[c] = k;
+				k = child;
+			}
+			heap[k] = node;
+			heapIndex[node] = k;
+		}
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	@Override
+	public int[] getPath() {
+		return path;
+	}
+
+	@Override
+	public int getPathSize() {
+		return pathSize;
+	}
+
+	@Override
+	public int getPathX(int i) {
+		return path[i] % width;
+	}
+
+	@Override
+	public int getPathY(int i) {
+		return path[i] / width;
+	}
+
+	@Override
+	public double getLength() {
+		return length;
+	}
+
+	@Override
+	public int getExpanded() {
+		return expanded;
+	}
+
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+
+	public void setHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * 是否并行扩展, 反向一侧在 ForkJoinPool.commonPool() 中执行
+	 */
+	public void setParallel(boolean parallel) {
+		this.setParallel(parallel, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * 是否并行扩展, 反向一侧在 executor 中执行; 多个线程同时搜索时 executor 至少需要同样多的线程才不会退化为先后执行
+	 */
+	public void setParallel(boolean parallel, Executor executor) {
+		this.parallel = parallel;
+		this.executor = executor;
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	public double getStraightEdge() {
+		return straightEdge;
+	}
+
+	public void setStraightEdge(double straightEdge) {
+		this.straightEdge = straightEdge;
+	}
+
+	public double getBevelEdge() {
+		return bevelEdge;
+	}
+
+	public void setBevelEdge(double bevelEdge) {
+		this.bevelEdge = bevelEdge;
+	}
+
+}
@@ -0,0 +1,538 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: ClusterGraph
+ *
+ * @Description: 分层寻路(HPA*)的抽象图; 网格按 clusterSize x clusterSize 划分为簇, 相邻簇在公共边界上每段连续可通过的区域设置
+ *               1~2 个过渡点(只能斜穿边界或簇角时设置斜向过渡点, 保证连通性不变), 簇内过渡点两两之间的距离与路径预先计算.
+ *               构建完成后只读, 可被多个线程共享; 障碍变化时 rebuild 只重新计算受影响的簇, 返回新的抽象图
+ */
+public class ClusterGraph {
+
+	/**
+	 * 连续可通过区域的长度达到该值时在两端各设置一个过渡点, 否则只在中间设置一个
+	 */
+	private static final int SPLIT_LENGTH = 6;
+	/**
+	 * 每个簇的边界: 东、南、东南角、西南角
+	 */
+	private static final int EAST = 0, SOUTH = 1, SOUTH_EAST = 2, SOUTH_WEST = 3;
+
+	private final OccupancyGrid grid;
+	private final int clusterSize;
+	private final double straightEdge;
+	private final double bevelEdge;
+	private final int width;
+	private final int height;
+	/**
+	 * 簇的列数与行数
+	 */
+	private final int columns;
+	private final int rows;
+	/**
+	 * 边界上的过渡边 {a, b, 是否斜向, ...}, a 属于该簇, b 属于相邻簇, 下标 cluster * 4 + 边界
+	 */
+	private final int[][] borders;
+	private final Cluster[] clusters;
+
+	private ClusterGraph(OccupancyGrid grid, int clusterSize, double straightEdge, double bevelEdge,
+			int[][] borders, Cluster[] clusters) {
+		this.grid = grid;
+		this.clusterSize = clusterSize;
+		this.straightEdge = straightEdge;
+		this.bevelEdge = bevelEdge;
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		this.columns = (width + clusterSize - 1) / clusterSize;
+		this.rows = (height + clusterSize - 1) / clusterSize;
+		this.borders = borders;
+		this.clusters = clusters;
+	}
+
+	/**
+	 * 构建抽象图
+	 */
+	public static ClusterGraph build(OccupancyGrid grid, int clusterSize) {
+		return build(grid, clusterSize, 1, Math.sqrt(2));
+	}
+
+	public static ClusterGraph build(OccupancyGrid grid, int clusterSize, double straightEdge, double bevelEdge) {
+		int columns = (grid.getWidth() + clusterSize - 1) / clusterSize;
+		int rows = (grid.getHeight() + clusterSize - 1) / clusterSize;
+		ClusterGraph graph = new ClusterGraph(grid, clusterSize, straightEdge, bevelEdge,
+				new int[columns * rows * 4][], new Cluster[columns * rows]);
+		for (int c = 0; c < columns * rows; c++)
+			for (int side = 0; side < 4; side++)
+				graph.borders[c * 4 + side] = graph.border(c, side);
+		Flood flood = new Flood(clusterSize);
+		for (int c = 0; c < columns * rows; c++)
+			graph.clusters[c] = graph.cluster(c, flood);
+		return graph;
+	}
+
+	/**
+	 * 网格 (x, y) 所在簇内的障碍变化后重新构建: 只重新计算该簇的边界以及该簇与相邻簇的簇内路径, 其余簇与原抽象图共享
+	 *
+	 * @param grid 变化后的障碍网格(大小不变)
+	 */
+	public ClusterGraph rebuild(OccupancyGrid grid, int x, int y) {
+		return rebuild(grid, x, y, x, y);
+	}
+
+	/**
+	 * 矩形 [x0, x1] x [y0, y1] 内的障碍变化后重新构建: 重新计算覆盖该矩形的簇的边界, 以及这些簇与相邻簇的簇内路径
+	 *
+	 * @param grid 变化后的障碍网格(大小不变)
+	 */
+	public ClusterGraph rebuild(OccupancyGrid grid, int x0, int y0, int x1, int y1) {
+		if (grid.getWidth() != width || grid.getHeight() != height)
+			throw new Error("grid size changed");
+		ClusterGraph graph = new ClusterGraph(grid, clusterSize, straightEdge, bevelEdge, borders.clone(),
+				clusters.clone());
+		int cx0 = x0 / clusterSize, cy0 = y0 / clusterSize;
+		int cx1 = x1 / clusterSize, cy1 = y1 / clusterSize;
+		for (int cy = cy0; cy <= cy1; cy++) {
+			for (int cx = cx0; cx <= cx1; cx++) {
+				int c = cy * columns + cx;
+				for (int side = 0; side < 4; side++)
+					graph.borders[c * 4 + side] = graph.border(c, side);
+				if (cx > 0)
+					graph.borders[(c - 1) * 4 + EAST] = graph.border(c - 1, EAST);
+				if (cy > 0)
+					graph.borders[(c - columns) * 4 + SOUTH] = graph.border(c - columns, SOUTH);
+				if (cx > 0 && cy > 0)
+					graph.borders[(c - columns - 1) * 4 + SOUTH_EAST] = graph.border(c - columns - 1, SOUTH_EAST);
+				if (cx + 1 < columns && cy > 0)
+					graph.borders[(c - columns + 1) * 4 + SOUTH_WEST] = graph.border(c - columns + 1, SOUTH_WEST);
+			}
+		}
+		Flood flood = new Flood(clusterSize);
+		for (int ny = Math.max(0, cy0 - 1); ny <= Math.min(rows - 1, cy1 + 1); ny++)
+			for (int nx = Math.max(0, cx0 - 1); nx <= Math.min(columns - 1, cx1 + 1); nx++)
+				graph.clusters[ny * columns + nx] = graph.cluster(ny * columns + nx, flood);
+		return graph;
+	}
+
+	/**
+	 * 计算簇 c 的一条边界上的过渡边
+	 */
+	private int[] border(int c, int side) {
+		int cx = c % columns, cy = c / columns;
+		int x0 = cx * clusterSize, y0 = cy * clusterSize;
+		int x1 = Math.min(x0 + clusterSize, width), y1 = Math.min(y0 + clusterSize, height);
+		IntList edges = new IntList();
+		if (side == EAST && cx + 1 < columns) {
+			line(edges, x1 - 1, y0, 0, 1, 1, 0, y1 - y0);
+		} else if (side == SOUTH && cy + 1 < rows) {
+			line(edges, x0, y1 - 1, 1, 0, 0, 1, x1 - x0);
+		} else if (side == SOUTH_EAST && cx + 1 < columns && cy + 1 < rows) {
+			corner(edges, x1 - 1, y1 - 1, 1, 1);
+		} else if (side == SOUTH_WEST && cx > 0 && cy + 1 < rows) {
+			corner(edges, x0, y1 - 1, -1, 1);
+		}
+		return edges.toArray();
+	}
+
+	/**
+	 * 直线边界: 从 (x, y) 开始沿 (dx, dy) 共 length 格, 相邻簇的对应网格在 (x + nx, y + ny)
+	 */
+	private void line(IntList edges, int x, int y, int dx, int dy, int nx, int ny, int length) {
+		int run = 0;
+		for (int i = 0; i <= length; i++) {
+			int ax = x + dx * i, ay = y + dy * i;
+			boolean open = i < length && free(ax, ay) && free(ax + nx, ay + ny);
+			if (open) {
+				run++;
+				continue;
+			}
+			if (run > 0) {
+				int from = i - run, to = i - 1;
+				if (run < SPLIT_LENGTH) {
+					int k = from + run / 2;
+					edge(edges, x + dx * k, y + dy * k, nx, ny);
+				} else {
+					edge(edges, x + dx * from, y + dy * from, nx, ny);
+					edge(edges, x + dx * to, y + dy * to, nx, ny);
+				}
+				run = 0;
+			}
+			// 两侧都不能直行穿过时, 斜穿边界的两种走法
+			if (i + 1 < length) {
+				int bx = ax + dx, by = ay + dy;
+				if (free(ax, ay) && free(bx + nx, by + ny) && !free(ax + nx, ay + ny) && !free(bx, by))
+					edges.add(cell(ax, ay), cell(bx + nx, by + ny), 1);
+				if (free(bx, by) && free(ax + nx, ay + ny) && !free(ax, ay) && !free(bx + nx, by + ny))
+					edges.add(cell(bx, by), cell(ax + nx, ay + ny), 1);
+			}
+		}
+	}
+
+	/**
+	 * 簇角: (x, y) 斜向 (dx, dy) 进入对角的簇, 只有两条直行绕行都被阻断时才需要
+	 */
+	private void corner(IntList edges, int x, int y, int dx, int dy) {
+		if (free(x, y) && free(x + dx, y + dy) && !free(x + dx, y) && !free(x, y + dy))
+			edges.add(cell(x, y), cell(x + dx, y + dy), 1);
+	}
+
+	private void edge(IntList edges, int x, int y, int nx, int ny) {
+		edges.add(cell(x, y), cell(x + nx, y + ny), 0);
+	}
+
+	private boolean free(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height && !grid.isBlocked(x, y);
+	}
+
+	private int cell(int x, int y) {
+		return y * width + x;
+	}
+
+	/**
+	 * 由边界收集簇 c 的过渡点, 并计算簇内两两之间的距离与路径
+	 */
+	private Cluster cluster(int c, Flood flood) {
+		int cx = c % columns, cy = c / columns;
+		IntList own = new IntList();
+		collect(own, c, EAST, true);
+		collect(own, c, SOUTH, true);
+		collect(own, c, SOUTH_EAST, true);
+		collect(own, c, SOUTH_WEST, true);
+		if (cx > 0)
+			collect(own, c - 1, EAST, false);
+		if (cy > 0)
+			collect(own, c - columns, SOUTH, false);
+		if (cx > 0 && cy > 0)
+			collect(own, c - columns - 1, SOUTH_EAST, false);
+		if (cx + 1 < columns && cy > 0)
+			collect(own, c - columns + 1, SOUTH_WEST, false);
+
+		int[] triples = own.toArray();
+		int[] nodes = new int[triples.length / 3];
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = triples[i * 3];
+		Arrays.sort(nodes);
+		int n = 0;
+		for (int i = 0; i < nodes.length; i++)
+			if (n == 0 || nodes[n - 1] != nodes[i])
+				nodes[n++] = nodes[i];
+		nodes = Arrays.copyOf(nodes, n);
+
+		// 每个过渡点的相邻簇过渡点, 按过渡点分组
+		int[] offsets = new int[n + 1];
+		for (int i = 0; i < triples.length; i += 3)
+			offsets[Arrays.binarySearch(nodes, triples[i]) + 1]++;
+		for (int i = 0; i < n; i++)
+			offsets[i + 1] += offsets[i];
+		int[] partners = new int[triples.length / 3];
+		double[] costs = new double[partners.length];
+		int[] fill = Arrays.copyOf(offsets, n);
+		for (int i = 0; i < triples.length; i += 3) {
+			int k = fill[Arrays.binarySearch(nodes, triples[i])]++;
+			partners[k] = triples[i + 1];
+			costs[k] = triples[i + 2] == 1 ? bevelEdge : straightEdge;
+		}
+
+		int x0 = cx * clusterSize, y0 = cy * clusterSize;
+		int x1 = Math.min(x0 + clusterSize, width), y1 = Math.min(y0 + clusterSize, height);
+		double[] distances = new double[n * n];
+		int[][] paths = new int[n * n][];
+		for (int i = 0; i < n; i++) {
+			flood.run(grid, x0, y0, x1, y1, nodes[i], -1, -1, straightEdge, bevelEdge);
+			for (int j = 0; j < n; j++) {
+				distances[i * n + j] = flood.distance(nodes[j]);
+				if (j > i && flood.distance(nodes[j]) != Double.POSITIVE_INFINITY)
+					paths[i * n + j] = flood.trace(nodes[j]);
+			}
+		}
+		return new Cluster(nodes, distances, paths, offsets, partners, costs);
+	}
+
+	/**
+	 * 收集边界上属于簇 c 的过渡边 {本簇网格, 相邻簇网格, 是否斜向}
+	 */
+	private void collect(IntList own, int c, int side, boolean first) {
+		int[] edges = borders[c * 4 + side];
+		for (int i = 0; i < edges.length; i += 3) {
+			if (first)
+				own.add(edges[i], edges[i + 1], edges[i + 2]);
+			else
+				own.add(edges[i + 1], edges[i], edges[i + 2]);
+		}
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	public OccupancyGrid getGrid() {
+		return grid;
+	}
+
+	public int getClusterSize() {
+		return clusterSize;
+	}
+
+	public double getStraightEdge() {
+		return straightEdge;
+	}
+
+	public double getBevelEdge() {
+		return bevelEdge;
+	}
+
+	/**
+	 * 网格所在簇的下标
+	 */
+	public int clusterOf(int cell) {
+		return (cell / width / clusterSize) * columns + (cell % width) / clusterSize;
+	}
+
+	public int getClusterCount() {
+		return clusters.length;
+	}
+
+	Cluster getCluster(int c) {
+		return clusters[c];
+	}
+
+	/**
+	 * 抽象图的结点数(过渡点数)
+	 */
+	public int getNodeCount() {
+		int count = 0;
+		for (Cluster cluster : clusters)
+			count += cluster.nodes.length;
+		return count;
+	}
+
+	/**
+	 * 簇 c 的范围 {x0, y0, x1, y1}(不含 x1, y1)
+	 */
+	int[] bounds(int c) {
+		int x0 = (c % columns) * clusterSize, y0 = (c / columns) * clusterSize;
+		return new int[] { x0, y0, Math.min(x0 + clusterSize, width), Math.min(y0 + clusterSize, height) };
+	}
+
+	/**
+	 * 簇 c 及其相邻簇(最多 3 x 3 个)的范围 {x0, y0, x1, y1}(不含 x1, y1)
+	 */
+	int[] neighborhood(int c) {
+		int cx = c % columns, cy = c / columns;
+		return new int[] { Math.max(0, cx - 1) * clusterSize, Math.max(0, cy - 1) * clusterSize,
+				Math.min((cx + 2) * clusterSize, width), Math.min((cy + 2) * clusterSize, height) };
+	}
+
+	/**
+	 * 簇 c 及其相邻簇的下标
+	 */
+	int[] neighbors(int c) {
+		int cx = c % columns, cy = c / columns;
+		int[] result = new int[9];
+		int n = 0;
+		for (int y = Math.max(0, cy - 1); y <= Math.min(rows - 1, cy + 1); y++)
+			for (int x = Math.max(0, cx - 1); x <= Math.min(columns - 1, cx + 1); x++)
+				result[n++] = y * columns + x;
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * 一个簇的过渡点(网格下标, 升序)、两两之间的距离与路径(i < j 时保存)以及到相邻簇过渡点的边
+	 */
+	static class Cluster {
+
+		final int[] nodes;
+		final double[] distances;
+		final int[][] paths;
+		final int[] offsets;
+		final int[] partners;
+		final double[] costs;
+
+		Cluster(int[] nodes, double[] distances, int[][] paths, int[] offsets, int[] partners, double[] costs) {
+			this.nodes = nodes;
+			this.distances = distances;
+			this.paths = paths;
+			this.offsets = offsets;
+			this.partners = partners;
+			this.costs = costs;
+		}
+
+		int indexOf(int cell) {
+			return Arrays.binarySearch(nodes, cell);
+		}
+
+		/**
+		 * 过渡点 i 到 j 的簇内路径网格(i 到 j 的顺序)
+		 */
+		int[] path(int i, int j) {
+			if (i < j)
+				return paths[i * nodes.length + j];
+			int[] path = paths[j * nodes.length + i];
+			int[] reversed = new int[path.length];
+			for (int k = 0; k < path.length; k++)
+				reversed[k] = path[path.length - 1 - k];
+			return reversed;
+		}
+	}
+
+	/**
+	 * 限定在一个矩形范围内的 Dijkstra 泛洪, 缓冲区按簇大小复用
+	 */
+	static class Flood {
+
+		private final double[] g;
+		private final int[] parent;
+		private final int[] heap;
+		private final int[] heapIndex;
+		private int x0, y0, x1, y1, span, width;
+
+		Flood(int clusterSize) {
+			int cells = clusterSize * clusterSize;
+			this.g = new double[cells];
+			this.parent = new int[cells];
+			this.heap = new int[cells];
+			this.heapIndex = new int[cells];
+		}
+
+		/**
+		 * 从 source 出发泛洪; source 与 start、end 即使是障碍也可以进入, 但只有 source 会继续向外扩展
+		 */
+		void run(OccupancyGrid grid, int x0, int y0, int x1, int y1, int source, int start, int end,
+				double straightEdge, double bevelEdge) {
+			this.x0 = x0;
+			this.y0 = y0;
+			this.x1 = x1;
+			this.y1 = y1;
+			this.span = x1 - x0;
+			this.width = grid.getWidth();
+			int cells = span * (y1 - y0);
+			Arrays.fill(g, 0, cells, Double.POSITIVE_INFINITY);
+			Arrays.fill(heapIndex, 0, cells, -1);
+			int root = local(source);
+			g[root] = 0;
+			parent[root] = -1;
+			heap[0] = root;
+			heapIndex[root] = 0;
+			int heapSize = 1;
+			while (heapSize > 0) {
+				int current = heap[0];
+				int last = heap[--heapSize];
+				heapIndex[current] = -2;
+				if (heapSize > 0)
+					siftDown(heapSize, 0, last);
+				int x = x0 + current % span, y = y0 + current / span;
+				if (current != root && grid.isBlocked(x, y))
+					continue;
+				for (int i = 0; i < 8; i++) {
+					int nx = x + GridAStar.DX[i], ny = y + GridAStar.DY[i];
+					if (nx < x0 || nx >= x1 || ny < y0 || ny >= y1)
+						continue;
+					int cell = ny * width + nx;
+					if (grid.isBlocked(nx, ny) && cell != start && cell != end)
+						continue;
+					int next = (ny - y0) * span + (nx - x0);
+					double G = g[current] + (i < 4 ? straightEdge : bevelEdge);
+					if (G < g[next]) {
+						g[next] = G;
+						parent[next] = current;
+						if (heapIndex[next] >= 0)
+							siftUp(heapIndex[next], next);
+						else
+							siftUp(heapSize++, next);
+					}
+				}
+			}
+		}
+
+		int capacity() {
+			return g.length;
+		}
+
+		private int local(int cell) {
+			return (cell / width - y0) * span + (cell % width - x0);
+		}
+
+		private int global(int local) {
+			return (y0 + local / span) * width + x0 + local % span;
+		}
+
+		boolean contains(int cell) {
+			int x = cell % width, y = cell / width;
+			return x >= x0 && x < x1 && y >= y0 && y < y1;
+		}
+
+		/**
+		 * 到 cell 的距离, 不在范围内或不可达为正无穷
+		 */
+		double distance(int cell) {
+			return contains(cell) ? g[local(cell)] : Double.POSITIVE_INFINITY;
+		}
+
+		/**
+		 * source 到 cell 的路径网格(source 到 cell 的顺序)
+		 */
+		int[] trace(int cell) {
+			int count = 0;
+			for (int node = local(cell); node != -1; node = parent[node])
+				count++;
+			int[] path = new int[count];
+			for (int node = local(cell); node != -1; node = parent[node])
+				path[--count] = global(node);
+			return path;
+		}
+
+		private void siftUp(int k, int node) {
+			while (k > 0) {
+				int p = (k - 1) >>> 1;
+				int e = heap[p];
+				if (g[node] >= g[e])
+					break;
+				heap[k] = e;
+				heapIndex[e] = k;
+				k = p;
+			}
+			heap[k] = node;
+			heapIndex[node] = k;
+		}
+
+		private void siftDown(int heapSize, int k, int node) {
+			int half = heapSize >>> 1;
+			while (k < half) {
+				int child = (k << 1) + 1;
+				int c = heap[child];
+				int right = child + 1;
+				if (right < heapSize && g[c] > g[heap[right]])
+					c = heap[child = right];
+				if (g[node] <= g[c])
+					break;
+				heap[k] = c;
+				heapIndex[c] = k;
+				k = child;
+			}
+			heap[k] = node;
+			heapIndex[node] = k;
+		}
+	}
+
+	/**
+	 * 可增长的 int 数组
+	 */
+	private static class IntList {
+
+		private int[] values = new int[16];
+		private int size;
+
+		void add(int a, int b, int c) {
+			if (size + 3 > values.length)
+				values = Arrays.copyOf(values, values.length << 1);
+			values[size++] = a;
+			values[size++] = b;
+			values[size++] = c;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+}
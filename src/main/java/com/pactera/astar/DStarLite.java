@@ -0,0 +1,499 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: DStarLite
+ *
+ * @Description: D* Lite 增量重规划算法; 从终点向起点反向搜索, 保留每个网格的 G 值与 RHS 值. 障碍网格变化后调用 update
+ *               只修复受影响网格的 G 值, 起点移动后调用 moveStart 以 km 修正堆中的旧键值, 都不需要重新搜索整个网格.
+ *               search 等价于一次完整的搜索; 同一时刻只能被一个线程使用
+ */
+public class DStarLite implements PathFinder {
+
+	private static final int[] DX = GridAStar.DX;
+	private static final int[] DY = GridAStar.DY;
+	private static final double INFINITY = Double.POSITIVE_INFINITY;
+	/**
+	 * 平移代价
+	 */
+	private double straightEdge = 1;
+	/**
+	 * 斜移代价
+	 */
+	private double bevelEdge = Math.sqrt(2);
+
+	/**
+	 * 当前结点到终点的代价
+	 */
+	private double[] g = new double[0];
+	/**
+	 * 由邻结点 G 值算出的一步前瞻代价, 与 G 不相等的结点在open表中
+	 */
+	private double[] rhs = new double[0];
+	/**
+	 * 堆中的键值 [k1, k2], 先比较 k1 再比较 k2
+	 */
+	private double[] k1 = new double[0];
+	private double[] k2 = new double[0];
+	/**
+	 * 结点在堆中的位置, -1 表示不在open表
+	 */
+	private int[] heapIndex = new int[0];
+	/**
+	 * 结点最后一次被访问时的搜索批次, 不等于当前批次的结点视为 G = RHS = 无穷大
+	 */
+	private int[] visited = new int[0];
+	private int generation;
+	/**
+	 * 二叉堆(升序), 元素为网格下标
+	 */
+	private int[] heap = new int[0];
+	private int heapSize;
+
+	private OccupancyGrid grid;
+	private int width;
+	private int height;
+	/**
+	 * 起点、终点以及上一次修正 km 时的起点
+	 */
+	private int start;
+	private int goal;
+	private int last;
+	/**
+	 * 起点移动累计的键值修正量
+	 */
+	private double km;
+
+	/**
+	 * 路径(起点到终点的网格下标)
+	 */
+	private int[] path = new int[0];
+	private int pathSize;
+	/**
+	 * 路径长度(代价)
+	 */
+	private double length;
+	/**
+	 * 最近一次搜索或修复扩展的结点数
+	 */
+	private int expanded;
+
+	public DStarLite() {
+	}
+
+	public DStarLite(double straightEdge) {
+		this.straightEdge = straightEdge;
+		this.bevelEdge = Math.sqrt(Math.pow(this.straightEdge, 2) + Math.pow(this.straightEdge, 2));
+	}
+
+	/**
+	 * 开始一次新的搜索, 丢弃之前保留的状态; 起点与终点即使落在障碍上也视为可通过
+	 *
+	 * @return 是否找到路径
+	 */
+	@Override
+	public boolean search(OccupancyGrid grid, int startX, int startY, int endX, int endY) {
+		this.grid = grid;
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		ensureCapacity(width * height);
+		this.heapSize = 0;
+		this.km = 0;
+		this.start = startY * width + startX;
+		this.goal = endY * width + endX;
+		this.last = start;
+		this.expanded = 0;
+
+		touch(goal);
+		rhs[goal] = 0;
+		insert(goal);
+		return replan();
+	}
+
+	/**
+	 * 障碍网格变化后修复已有路径
+	 *
+	 * @param grid  变化后的障碍网格(大小不变)
+	 * @param cells 障碍状态发生变化的网格下标 y * width + x
+	 * @return 是否找到路径
+	 */
+	public boolean update(OccupancyGrid grid, int[] cells) {
+		if (this.grid == null)
+			throw new Error("没有搜索过");
+		if (grid.getWidth() != width || grid.getHeight() != height)
+			throw new Error("grid size changed");
+		this.grid = grid;
+		this.expanded = 0;
+		for (int cell : cells)
+			updateAround(cell);
+		return replan();
+	}
+
+	/**
+	 * 起点移动(例如沿路径走了几步)后重新规划, 之前的搜索结果继续有效
+	 *
+	 * @return 是否找到路径
+	 */
+	public boolean moveStart(int x, int y) {
+		if (this.grid == null)
+			throw new Error("没有搜索过");
+		int previous = start;
+		start = y * width + x;
+		if (start == previous)
+			return pathSize > 0;
+		this.expanded = 0;
+		km += heuristic(last, start);
+		last = start;
+		// 起点落在障碍上时视为可通过, 起点变化后新旧起点周围的代价随之变化
+		if (grid.isBlocked(previous))
+			updateAround(previous);
+		if (grid.isBlocked(start))
+			updateAround(start);
+		return replan();
+	}
+
+	/**
+	 * 网格 cell 的状态变化后, 重新计算它与邻结点的 RHS 值
+	 */
+	private void updateAround(int cell) {
+		int x = cell % width;
+		int y = cell / width;
+		updateVertex(cell, true);
+		for (int i = 0; i < 8; i++) {
+			int nx = x + DX[i];
+			int ny = y + DY[i];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+				continue;
+			updateVertex(ny * width + nx, true);
+		}
+	}
+
+	private boolean replan() {
+		computeShortestPath();
+		return drawPath();
+	}
+
+	private void computeShortestPath() {
+		touch(start);
+		while (heapSize > 0) {
+			int u = heap[0];
+			double m = Math.min(g[start], rhs[start]);
+			double startK1 = m + km, startK2 = m;
+			if (compare(k1[u], k2[u], startK1, startK2) >= 0 && rhs[start] <= g[start])
+				break;
+			expanded++;
+			double oldK1 = k1[u], oldK2 = k2[u];
+			double newM = Math.min(g[u], rhs[u]);
+			double newK1 = newM + heuristic(start, u) + km;
+			if (compare(oldK1, oldK2, newK1, newM) < 0) {
+				// 起点移动后键值变大, 按新键值重新入堆
+				k1[u] = newK1;
+				k2[u] = newM;
+				siftDown(0, u);
+			} else if (g[u] > rhs[u]) {
+				g[u] = rhs[u];
+				remove(u);
+				relaxPredecessors(u);
+			} else {
+				double old = g[u];
+				g[u] = INFINITY;
+				reviseDependents(u, old);
+				updateVertex(u, false);
+			}
+		}
+	}
+
+	/**
+	 * u 变为局部一致后, 经过 u 到终点更近的邻结点更新 RHS 值
+	 */
+	private void relaxPredecessors(int u) {
+		int x = u % width;
+		int y = u / width;
+		boolean open = passable(u);
+		for (int i = 0; i < 8; i++) {
+			int nx = x + DX[i];
+			int ny = y + DY[i];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+				continue;
+			int s = ny * width + nx;
+			touch(s);
+			if (s == goal || !open || !passable(s))
+				continue;
+			double value = (i < 4 ? straightEdge : bevelEdge) + g[u];
+			if (value < rhs[s]) {
+				rhs[s] = value;
+				updateVertex(s, false);
+			}
+		}
+	}
+
+	/**
+	 * u 的 G 值由 old 变为无穷大后, RHS 值经过 u 取得的邻结点重新计算
+	 */
+	private void reviseDependents(int u, double old) {
+		int x = u % width;
+		int y = u / width;
+		for (int i = 0; i < 8; i++) {
+			int nx = x + DX[i];
+			int ny = y + DY[i];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+				continue;
+			int s = ny * width + nx;
+			touch(s);
+			if (rhs[s] == (i < 4 ? straightEdge : bevelEdge) + old)
+				updateVertex(s, true);
+		}
+	}
+
+	/**
+	 * 按需重新计算 RHS 值, 再根据 G 与 RHS 是否相等调整结点在open表中的状态
+	 */
+	private void updateVertex(int u, boolean recompute) {
+		touch(u);
+		if (recompute && u != goal)
+			rhs[u] = lookahead(u);
+		if (g[u] != rhs[u]) {
+			double m = Math.min(g[u], rhs[u]);
+			k1[u] = m + heuristic(start, u) + km;
+			k2[u] = m;
+			if (heapIndex[u] >= 0) {
+				siftUp(heapIndex[u], u);
+				siftDown(heapIndex[u], u);
+			} else {
+				siftUp(heapSize++, u);
+			}
+		} else if (heapIndex[u] >= 0) {
+			remove(u);
+		}
+	}
+
+	/**
+	 * min(c(u, s) + g(s)), s 为 u 的邻结点
+	 */
+	private double lookahead(int u) {
+		if (!passable(u))
+			return INFINITY;
+		int x = u % width;
+		int y = u / width;
+		double best = INFINITY;
+		for (int i = 0; i < 8; i++) {
+			int nx = x + DX[i];
+			int ny = y + DY[i];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+				continue;
+			int s = ny * width + nx;
+			if (!passable(s))
+				continue;
+			touch(s);
+			double value = (i < 4 ? straightEdge : bevelEdge) + g[s];
+			if (value < best)
+				best = value;
+		}
+		return best;
+	}
+
+	/**
+	 * 从起点沿 c(u, s) + g(s) 最小的邻结点走到终点, 结果为起点到终点的顺序
+	 */
+	private boolean drawPath() {
+		pathSize = 0;
+		length = 0;
+		touch(start);
+		// 循环结束时起点的 G 值可能尚未更新, 以 RHS 值判断是否可达
+		if (rhs[start] == INFINITY)
+			return false;
+		int current = start;
+		append(current);
+		while (current != goal) {
+			int x = current % width;
+			int y = current / width;
+			int next = -1;
+			double best = INFINITY, step = 0;
+			for (int i = 0; i < 8; i++) {
+				int nx = x + DX[i];
+				int ny = y + DY[i];
+				if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+					continue;
+				int s = ny * width + nx;
+				if (!passable(s))
+					continue;
+				touch(s);
+				double cost = i < 4 ? straightEdge : bevelEdge;
+				if (cost + g[s] < best) {
+					best = cost + g[s];
+					step = cost;
+					next = s;
+				}
+			}
+			if (next < 0 || pathSize > width * height) {
+				pathSize = 0;
+				length = 0;
+				return false;
+			}
+			length += step;
+			current = next;
+			append(current);
+		}
+		return true;
+	}
+
+	private void append(int node) {
+		if (pathSize == path.length)
+			path = Arrays.copyOf(path, Math.max(16, path.length << 1));
+		path[pathSize++] = node;
+	}
+
+	/**
+	 * 不是障碍, 或者是起点、终点
+	 */
+	private boolean passable(int node) {
+		return node == start || node == goal || !grid.isBlocked(node);
+	}
+
+	private double heuristic(int a, int b) {
+		return Heuristic.OCTILE.estimate(Math.abs(a % width - b % width), Math.abs(a / width - b / width),
+				straightEdge, bevelEdge);
+	}
+
+	/**
+	 * 当前批次第一次访问的结点 G = RHS = 无穷大
+	 */
+	private void touch(int node) {
+		if (visited[node] != generation) {
+			visited[node] = generation;
+			g[node] = INFINITY;
+			rhs[node] = INFINITY;
+			heapIndex[node] = -1;
+		}
+	}
+
+	/**
+	 * 保证缓冲区足够容纳网格, 并开始新的搜索批次
+	 */
+	private void ensureCapacity(int cells) {
+		if (g.length < cells) {
+			g = new double[cells];
+			rhs = new double[cells];
+			k1 = new double[cells];
+			k2 = new double[cells];
+			heapIndex = new int[cells];
+			visited = new int[cells];
+			heap = new int[cells];
+			generation = 0;
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+
+	private void insert(int node) {
+		double m = Math.min(g[node], rhs[node]);
+		k1[node] = m + heuristic(start, node) + km;
+		k2[node] = m;
+		siftUp(heapSize++, node);
+	}
+
+	private void remove(int node) {
+		int i = heapIndex[node];
+		heapIndex[node] = -1;
+		int last = heap[--heapSize];
+		if (i < heapSize) {
+			siftUp(i, last);
+			siftDown(heapIndex[last], last);
+		}
+	}
+
+	private static int compare(double a1, double a2, double b1, double b2) {
+		if (a1 != b1)
+			return a1 > b1 ? 1 : -1;
+		return Double.compare(a2, b2);
+	}
+
+	private int compare(int a, int b) {
+		return compare(k1[a], k2[a], k1[b], k2[b]);
+	}
+
+	private void siftUp(int k, int node) {
+		while (k > 0) {
+			int p = (k - 1) >>> 1;
+			int e = heap[p];
+			if (compare(node, e) >= 0)
+				break;
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private void siftDown(int k, int node) {
+		int half = heapSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && compare(c, heap[right]) > 0)
+				c = heap[child = right];
+			if (compare(node, c) <= 0)
+				break;
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	@Override
+	public int[] getPath() {
+		return path;
+	}
+
+	@Override
+	public int getPathSize() {
+		return pathSize;
+	}
+
+	@Override
+	public int getPathX(int i) {
+		return path[i] % width;
+	}
+
+	@Override
+	public int getPathY(int i) {
+		return path[i] / width;
+	}
+
+	@Override
+	public double getLength() {
+		return length;
+	}
+
+	@Override
+	public int getExpanded() {
+		return expanded;
+	}
+
+	public double getStraightEdge() {
+		return straightEdge;
+	}
+
+	public void setStraightEdge(double straightEdge) {
+		this.straightEdge = straightEdge;
+	}
+
+	public double getBevelEdge() {
+		return bevelEdge;
+	}
+
+	public void setBevelEdge(double bevelEdge) {
+		this.bevelEdge = bevelEdge;
+	}
+
+}
@@ -0,0 +1,326 @@
+package com.pactera.astar;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+
+/**
+ * ClassName: DistanceField
+ *
+ * @Description: 单源距离场与流场; 从源点做一次完整的 Dijkstra 泛洪, 得到每一格到源点的代价(float)以及走向源点的下一步方向.
+ *               移动规则与 GridAStar 相同: 源点即使是障碍也可以出发, 障碍格只能作为起点(站在货架旁的叉车), 不会被其他路径穿过.
+ *               多个智能体沿 getDirection 给出的方向前进即可到达源点, 无需各自搜索. 构建完成后只读, 可被多个线程共享
+ */
+public class DistanceField {
+
+	/**
+	 * 二进制格式的文件头 "DFLD" 与版本
+	 */
+	private static final int MAGIC = 0x44464C44;
+	private static final int VERSION = 1;
+	/**
+	 * 没有下一步(源点或不可达)
+	 */
+	public static final byte NONE = -1;
+
+	private final int width;
+	private final int height;
+	/**
+	 * 源点网格下标 y * width + x
+	 */
+	private final int source;
+	/**
+	 * 每一格到源点的代价, 不可达为正无穷
+	 */
+	private final float[] costs;
+	/**
+	 * 每一格走向源点的下一步方向, 为 GridAStar.DX/DY 的下标, 源点与不可达为 NONE
+	 */
+	private final byte[] directions;
+
+	private DistanceField(int width, int height, int source, float[] costs, byte[] directions) {
+		this.width = width;
+		this.height = height;
+		this.source = source;
+		this.costs = costs;
+		this.directions = directions;
+	}
+
+	/**
+	 * 计算源点 (x, y) 的距离场
+	 */
+	public static DistanceField compute(OccupancyGrid grid, int x, int y) {
+		return compute(grid, x, y, 1, Math.sqrt(2));
+	}
+
+	public static DistanceField compute(OccupancyGrid grid, int x, int y, double straightEdge, double bevelEdge) {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		int cells = width * height;
+		int source = y * width + x;
+		double[] g = new double[cells];
+		byte[] directions = new byte[cells];
+		int[] heap = new int[cells];
+		int[] heapIndex = new int[cells];
+		Arrays.fill(g, Double.POSITIVE_INFINITY);
+		Arrays.fill(directions, NONE);
+		Arrays.fill(heapIndex, -1);
+
+		g[source] = 0;
+		heap[0] = source;
+		heapIndex[source] = 0;
+		int heapSize = 1;
+		while (heapSize > 0) {
+			int current = heap[0];
+			int last = heap[--heapSize];
+			heapIndex[current] = -2;
+			if (heapSize > 0)
+				siftDown(heap, heapIndex, g, heapSize, 0, last);
+			// 障碍格只能作为起点, 不再向外扩展
+			if (current != source && grid.isBlocked(current))
+				continue;
+			int cx = current % width;
+			int cy = current / width;
+			for (int i = 0; i < 8; i++) {
+				int nx = cx + GridAStar.DX[i];
+				int ny = cy + GridAStar.DY[i];
+				if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+					continue;
+				int next = ny * width + nx;
+				if (heapIndex[next] == -2)
+					continue;
+				double G = g[current] + (i < 4 ? straightEdge : bevelEdge);
+				if (G < g[next]) {
+					g[next] = G;
+					// 泛洪方向的反方向即为走向源点的方向
+					directions[next] = (byte) opposite(i);
+					if (heapIndex[next] >= 0) {
+						siftUp(heap, heapIndex, g, heapIndex[next], next);
+					} else {
+						siftUp(heap, heapIndex, g, heapSize++, next);
+					}
+				}
+			}
+		}
+
+		float[] costs = new float[cells];
+		for (int i = 0; i < cells; i++)
+			costs[i] = (float) g[i];
+		return new DistanceField(width, height, source, costs, directions);
+	}
+
+	/**
+	 * GridAStar.DX/DY 中方向 i 的反方向
+	 */
+	private static int opposite(int i) {
+		return i < 4 ? (i + 2) & 3 : 4 + ((i - 2) & 3);
+	}
+
+	private static void siftUp(int[] heap, int[] heapIndex, double[] key, int k, int node) {
+		while (k > 0) {
+			int p = (k - 1) >>> 1;
+			int e = heap[p];
+			if (key[node] >= key[e])
+				break;
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private static void siftDown(int[] heap, int[] heapIndex, double[] key, int heapSize, int k, int node) {
+		int half = heapSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && key[c] > key[heap[right]])
+				c = heap[child = right];
+			if (key[node] <= key[c])
+				break;
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	/**
+	 * (x, y) 到源点的代价, 不可达为正无穷
+	 */
+	public float getCost(int x, int y) {
+		return costs[y * width + x];
+	}
+
+	/**
+	 * 是否可以到达源点
+	 */
+	public boolean isReachable(int x, int y) {
+		return costs[y * width + x] != Float.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * (x, y) 走向源点的下一步方向(GridAStar.DX/DY 的下标), 源点与不可达为 NONE
+	 */
+	public byte getDirection(int x, int y) {
+		return directions[y * width + x];
+	}
+
+	/**
+	 * cell 走向源点的下一格, 源点与不可达为 -1
+	 */
+	public int nextHop(int cell) {
+		byte direction = directions[cell];
+		if (direction == NONE)
+			return -1;
+		return (cell / width + GridAStar.DY[direction]) * width + cell % width + GridAStar.DX[direction];
+	}
+
+	/**
+	 * 沿流场从 (x, y) 走到源点的路径网格下标, 不可达为空数组
+	 */
+	public int[] path(int x, int y) {
+		int cell = y * width + x;
+		if (!isReachable(x, y))
+			return new int[0];
+		int count = 1;
+		for (int node = cell; node != source; node = nextHop(node))
+			count++;
+		int[] path = new int[count];
+		count = 0;
+		for (int node = cell; node != source; node = nextHop(node))
+			path[count++] = node;
+		path[count] = source;
+		return path;
+	}
+
+	/**
+	 * 代价转为 double[](不可达为正无穷)
+	 */
+	public double[] toDoubleArray() {
+		double[] result = new double[costs.length];
+		for (int i = 0; i < costs.length; i++)
+			result[i] = costs[i];
+		return result;
+	}
+
+	/**
+	 * 写出为二进制: 文件头、版本、宽、高、源点(int), 每格代价(float), 每格方向(byte); 大端
+	 */
+	public void writeTo(OutputStream out) {
+		try {
+			DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+			data.writeInt(MAGIC);
+			data.writeInt(VERSION);
+			data.writeInt(width);
+			data.writeInt(height);
+			data.writeInt(source);
+			for (float cost : costs)
+				data.writeFloat(cost);
+			data.write(directions);
+			data.flush();
+		} catch (IOException e) {
+			throw new Error(e);
+		}
+	}
+
+	/**
+	 * 读取 writeTo 写出的二进制; 流的长度未知, 代价数组随读到的数据加倍扩容, 损坏的文件头不会一次分配过大的数组
+	 */
+	public static DistanceField readFrom(InputStream in) {
+		try {
+			DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+			if (data.readInt() != MAGIC)
+				throw new Error("not a distance field");
+			int version = data.readInt();
+			if (version != VERSION)
+				throw new Error("unsupported distance field version " + version);
+			int width = data.readInt();
+			int height = data.readInt();
+			int source = data.readInt();
+			long size = (long) width * height;
+			if (width <= 0 || height <= 0 || size > Integer.MAX_VALUE || source < 0 || source >= size)
+				throw new Error("not a distance field");
+			int cells = (int) size;
+			float[] costs = new float[Math.min(cells, 1 << 16)];
+			for (int i = 0; i < cells; i++) {
+				if (i == costs.length)
+					costs = Arrays.copyOf(costs, (int) Math.min(cells, (long) costs.length << 1));
+				costs[i] = data.readFloat();
+			}
+			byte[] directions = new byte[cells];
+			data.readFully(directions);
+			return new DistanceField(width, height, source, costs, directions);
+		} catch (EOFException e) {
+			throw new Error("not a distance field", e);
+		} catch (IOException e) {
+			throw new Error(e);
+		}
+	}
+
+	/**
+	 * 导出为 GeoJSON: 每个可达网格一个中心点, 属性 cost 为代价, dx/dy 为下一步的列、行偏移(源点为 0)
+	 */
+	public FeatureCollection toGeoJson(GridGeometry grid) {
+		List<Feature> features = Lists.newArrayList();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int cell = y * width + x;
+				if (costs[cell] == Float.POSITIVE_INFINITY)
+					continue;
+				Feature feature = Feature.fromGeometry(Point.fromLngLat(grid.getX(x), grid.getY(y)));
+				feature.addNumberProperty("cost", costs[cell]);
+				byte direction = directions[cell];
+				feature.addNumberProperty("dx", direction == NONE ? 0 : GridAStar.DX[direction]);
+				feature.addNumberProperty("dy", direction == NONE ? 0 : GridAStar.DY[direction]);
+				features.add(feature);
+			}
+		}
+		return FeatureCollection.fromFeatures(features);
+	}
+
+	/**
+	 * Getter & Setter; 返回的数组不应修改
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getSource() {
+		return source;
+	}
+
+	/**
+	 * 每一格到源点的代价, 下标 y * width + x
+	 */
+	public float[] getCosts() {
+		return costs;
+	}
+
+	/**
+	 * 每一格走向源点的下一步方向, 下标 y * width + x
+	 */
+	public byte[] getDirections() {
+		return directions;
+	}
+
+}
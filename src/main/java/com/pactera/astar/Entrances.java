@@ -0,0 +1,168 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.mapbox.geojson.Point;
+
+/**
+ * ClassName: Entrances
+ *
+ * @Description: 出入口坐标及其对应的网格; 坐标以 double 保存并通过开放寻址表按数值查找, 网格由网格原点与格子大小直接换算,
+ *               不再逐格计算距离
+ */
+public class Entrances {
+
+	/**
+	 * 出入口经度
+	 */
+	private final double[] xs;
+	/**
+	 * 出入口纬度
+	 */
+	private final double[] ys;
+	/**
+	 * 出入口对应的网格下标 y * width + x, -1 表示尚未计算
+	 */
+	private final int[] cells;
+	/**
+	 * 开放寻址表, 值为出入口下标 + 1, 0 表示空
+	 */
+	private final int[] table;
+
+	public Entrances(List<Point> points) {
+		this.table = new int[Integer.highestOneBit(Math.max(points.size(), 1) * 2) << 1];
+		double[] xs = new double[points.size()];
+		double[] ys = new double[points.size()];
+		int size = 0;
+		for (Point point : points) {
+			if (indexOf(xs, ys, point.longitude(), point.latitude()) >= 0)
+				continue; // 重复的出入口
+			xs[size] = point.longitude();
+			ys[size] = point.latitude();
+			table[slot(xs, ys, point.longitude(), point.latitude())] = ++size;
+		}
+		this.xs = Arrays.copyOf(xs, size);
+		this.ys = Arrays.copyOf(ys, size);
+		this.cells = new int[size];
+		Arrays.fill(this.cells, -1);
+	}
+
+	private static int hash(double x, double y) {
+		long bits = Double.doubleToLongBits(x) * 31 + Double.doubleToLongBits(y);
+		int h = (int) (bits ^ (bits >>> 32));
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * 坐标对应的表位置(已存在的位置或第一个空位)
+	 */
+	private int slot(double[] xs, double[] ys, double x, double y) {
+		int mask = table.length - 1;
+		int i = hash(x, y) & mask;
+		while (table[i] != 0) {
+			int e = table[i] - 1;
+			if (xs[e] == x && ys[e] == y)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private int indexOf(double[] xs, double[] ys, double x, double y) {
+		int e = table[slot(xs, ys, x, y)];
+		return e - 1;
+	}
+
+	/**
+	 * 查找出入口下标, 不存在时返回 -1
+	 */
+	public int indexOf(double lng, double lat) {
+		return indexOf(xs, ys, lng, lat);
+	}
+
+	/**
+	 * 计算每个出入口对应的网格: 取中心最近的行列; toFree 为 true 且该网格是障碍时, 改为最近的可通过网格
+	 */
+	public void snap(GridGeometry grid, OccupancyGrid occupancy, boolean toFree) {
+		for (int i = 0; i < xs.length; i++) {
+			int c = nearest(grid.ceilColumn(xs[i]), grid.getColumns(), xs[i], true, grid);
+			int r = nearest(grid.ceilRow(ys[i]), grid.getRows(), ys[i], false, grid);
+			if (toFree && occupancy.isBlocked(c, r)) {
+				cells[i] = nearestFree(occupancy, c, r);
+			} else {
+				cells[i] = r * grid.getColumns() + c;
+			}
+		}
+	}
+
+	/**
+	 * 在 ceil 与其前一格中取中心更近的一格
+	 */
+	private static int nearest(int ceil, int size, double value, boolean column, GridGeometry grid) {
+		if (ceil >= size)
+			return size - 1;
+		if (ceil == 0)
+			return 0;
+		double after = column ? grid.getX(ceil) : grid.getY(ceil);
+		double before = column ? grid.getX(ceil - 1) : grid.getY(ceil - 1);
+		return Math.abs(before - value) <= Math.abs(after - value) ? ceil - 1 : ceil;
+	}
+
+	/**
+	 * 由近及远按环搜索最近的可通过网格(格子横纵边长相同), 全部是障碍时返回原网格
+	 */
+	private static int nearestFree(OccupancyGrid occupancy, int x, int y) {
+		int width = occupancy.getWidth();
+		int height = occupancy.getHeight();
+		int best = -1;
+		long bestDistance = Long.MAX_VALUE;
+		int limit = Math.max(width, height);
+		for (int k = 1; k <= limit && (long) k * k < bestDistance; k++) {
+			for (int dy = -k; dy <= k; dy++) {
+				int step = (dy == -k || dy == k) ? 1 : 2 * k;
+				for (int dx = -k; dx <= k; dx += step) {
+					int nx = x + dx, ny = y + dy;
+					if (nx < 0 || nx >= width || ny < 0 || ny >= height || occupancy.isBlocked(nx, ny))
+						continue;
+					long distance = (long) dx * dx + (long) dy * dy;
+					if (distance < bestDistance) {
+						bestDistance = distance;
+						best = ny * width + nx;
+					}
+				}
+			}
+		}
+		return best < 0 ? y * width + x : best;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	public int size() {
+		return xs.length;
+	}
+
+	public double getX(int i) {
+		return xs[i];
+	}
+
+	public double getY(int i) {
+		return ys[i];
+	}
+
+	/**
+	 * 出入口对应的网格下标 y * width + x
+	 */
+	public int getCell(int i) {
+		return cells[i];
+	}
+
+	/**
+	 * 直接设置出入口对应的网格(读取快照时使用)
+	 */
+	void setCell(int i, int cell) {
+		cells[i] = cell;
+	}
+
+}
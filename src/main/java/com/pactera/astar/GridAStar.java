@@ -0,0 +1,308 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: GridAStar
+ *
+ * @Description: 基于一维数组的A星算法; G值、父结点与堆位置保存在按网格大小复用的 double[]/int[] 缓冲区中,
+ *               网格下标为 y * width + x, 对已分配过缓冲区的网格重复搜索不会产生任何对象分配
+ */
+public class GridAStar implements PathFinder {
+
+	/**
+	 * 邻结点偏移: 左、上、右、下、左上、右上、右下、左下(与 AStar 的扩展顺序一致)
+	 */
+	static final int[] DX = { -1, 0, 1, 0, -1, 1, 1, -1 };
+	static final int[] DY = { 0, -1, 0, 1, -1, -1, 1, 1 };
+	/**
+	 * 结点已在close表中
+	 */
+	private static final int CLOSED = -2;
+	/**
+	 * 平移代价
+	 */
+	private double straightEdge = 1;
+	/**
+	 * 斜移代价
+	 */
+	private double bevelEdge = Math.sqrt(2);
+	/**
+	 * H 的估值方法
+	 */
+	private Heuristic heuristic = Heuristic.OCTILE;
+
+	/**
+	 * 起点到当前结点的代价
+	 */
+	private double[] g = new double[0];
+	/**
+	 * 缓存的 G + H, 堆比较时不再重复计算
+	 */
+	private double[] f = new double[0];
+	/**
+	 * 缓存的 H, F 相同时优先 H 较小的结点
+	 */
+	private double[] h = new double[0];
+	/**
+	 * 父结点下标
+	 */
+	private int[] parent = new int[0];
+	/**
+	 * 结点在堆中的位置, -1 表示不在open表, CLOSED 表示已在close表
+	 */
+	private int[] heapIndex = new int[0];
+	/**
+	 * 结点最后一次被访问时的搜索批次, 不等于当前批次的结点视为未访问, 从而无需每次清空缓冲区
+	 */
+	private int[] visited = new int[0];
+	private int generation;
+	/**
+	 * 二叉堆(升序), 元素为网格下标
+	 */
+	private int[] heap = new int[0];
+	private int heapSize;
+
+	/**
+	 * 路径(起点到终点的网格下标)
+	 */
+	private int[] path = new int[0];
+	private int pathSize;
+	/**
+	 * 路径长度(代价)
+	 */
+	private double length;
+	/**
+	 * 最近一次搜索扩展(放入close表)的结点数
+	 */
+	private int expanded;
+	private int width;
+
+	public GridAStar() {
+	}
+
+	public GridAStar(double straightEdge) {
+		this.straightEdge = straightEdge;
+		this.bevelEdge = Math.sqrt(Math.pow(this.straightEdge, 2) + Math.pow(this.straightEdge, 2));
+	}
+
+	/**
+	 * 开始算法, 起点与终点即使落在障碍上也视为可通过
+	 *
+	 * @return 是否找到路径
+	 */
+	@Override
+	public boolean search(OccupancyGrid grid, int startX, int startY, int endX, int endY) {
+		int height = grid.getHeight();
+		int width = grid.getWidth();
+		ensureCapacity(width * height);
+		this.width = width;
+		this.heapSize = 0;
+		this.pathSize = 0;
+		this.length = 0;
+		this.expanded = 0;
+
+		int start = startY * width + startX;
+		int end = endY * width + endX;
+		visit(start);
+		g[start] = 0;
+		f[start] = 0;
+		h[start] = 0;
+		parent[start] = -1;
+		push(start);
+
+		while (heapSize > 0) {
+			if (visited[end] == generation && heapIndex[end] == CLOSED) { // 到达终点
+				length = g[end];
+				drawPath(end);
+				return true;
+			}
+			int current = pop();
+			heapIndex[current] = CLOSED;
+			expanded++;
+			int x = current % width;
+			int y = current / width;
+			for (int i = 0; i < 8; i++) {
+				int nx = x + DX[i];
+				int ny = y + DY[i];
+				// 是否在地图中
+				if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+					continue;
+				int next = ny * width + nx;
+				// 判断是否是不可通过的结点
+				if (grid.isBlocked(nx, ny) && next != start && next != end)
+					continue;
+				double G = g[current] + (i < 4 ? straightEdge : bevelEdge);
+				if (visited[next] != generation) {
+					visit(next);
+					g[next] = G;
+					h[next] = heuristic.estimate(Math.abs(endX - nx), Math.abs(endY - ny), straightEdge, bevelEdge);
+					f[next] = G + h[next];
+					parent[next] = current;
+					push(next);
+				} else if (heapIndex[next] >= 0 && g[next] > G) {
+					g[next] = G;
+					f[next] = G + h[next];
+					parent[next] = current;
+					siftUp(heapIndex[next], next);
+				}
+			}
+		}
+		if (visited[end] == generation && heapIndex[end] == CLOSED) {
+			length = g[end];
+			drawPath(end);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 按父结点回溯路径, 结果为起点到终点的顺序
+	 */
+	private void drawPath(int end) {
+		int count = 0;
+		for (int node = end; node != -1; node = parent[node])
+			count++;
+		if (path.length < count)
+			path = new int[Math.max(count, path.length << 1)];
+		pathSize = count;
+		for (int node = end; node != -1; node = parent[node])
+			path[--count] = node;
+	}
+
+	private void visit(int node) {
+		visited[node] = generation;
+		heapIndex[node] = -1;
+	}
+
+	/**
+	 * 保证缓冲区足够容纳网格, 并开始新的搜索批次
+	 */
+	private void ensureCapacity(int cells) {
+		if (g.length < cells) {
+			g = new double[cells];
+			f = new double[cells];
+			h = new double[cells];
+			parent = new int[cells];
+			heapIndex = new int[cells];
+			visited = new int[cells];
+			heap = new int[cells];
+			generation = 0;
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+
+	private void push(int node) {
+		siftUp(heapSize++, node);
+	}
+
+	private int pop() {
+		int result = heap[0];
+		int last = heap[--heapSize];
+		if (heapSize > 0)
+			siftDown(0, last);
+		return result;
+	}
+
+	/**
+	 * 按 F 升序比较, F 相同时比较 H
+	 */
+	private int compare(int a, int b) {
+		if (f[a] != f[b])
+			return f[a] > f[b] ? 1 : -1;
+		return Double.compare(h[a], h[b]);
+	}
+
+	private void siftUp(int k, int node) {
+		while (k > 0) {
+			int p = (k - 1) >>> 1;
+			int e = heap[p];
+			if (compare(node, e) >= 0)
+				break;
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private void siftDown(int k, int node) {
+		int half = heapSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && compare(c, heap[right]) > 0)
+				c = heap[child = right];
+			if (compare(node, c) <= 0)
+				break;
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	@Override
+	public int[] getPath() {
+		return path;
+	}
+
+	@Override
+	public int getPathSize() {
+		return pathSize;
+	}
+
+	@Override
+	public int getPathX(int i) {
+		return path[i] % width;
+	}
+
+	@Override
+	public int getPathY(int i) {
+		return path[i] / width;
+	}
+
+	@Override
+	public double getLength() {
+		return length;
+	}
+
+	@Override
+	public int getExpanded() {
+		return expanded;
+	}
+
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+
+	public void setHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+	}
+
+	public double getStraightEdge() {
+		return straightEdge;
+	}
+
+	public void setStraightEdge(double straightEdge) {
+		this.straightEdge = straightEdge;
+	}
+
+	public double getBevelEdge() {
+		return bevelEdge;
+	}
+
+	public void setBevelEdge(double bevelEdge) {
+		this.bevelEdge = bevelEdge;
+	}
+
+}
@@ -0,0 +1,234 @@
+package com.pactera.astar;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.turf.TurfMeasurement;
+
+/**
+ * ClassName: GridGeometry
+ *
+ * @Description: 矩阵网格的几何信息; 每列中心经度与每行中心纬度(由北向南)按与逐格遍历相同的累加方式预先计算,
+ *               保证串行与并行栅格化得到完全一致的坐标
+ */
+public class GridGeometry {
+
+	private final double west;
+	private final double south;
+	private final double east;
+	private final double north;
+	/**
+	 * 每格宽度(经度)
+	 */
+	private final double cellWidth;
+	/**
+	 * 每格高度(纬度)
+	 */
+	private final double cellHeight;
+	/**
+	 * 每列中心经度
+	 */
+	private final double[] xs;
+	/**
+	 * 每行中心纬度(由北向南)
+	 */
+	private final double[] ys;
+
+	private GridGeometry(double west, double south, double east, double north, double cellWidth,
+			double cellHeight, double deltaX, double deltaY) {
+		this.west = west;
+		this.south = south;
+		this.east = east;
+		this.north = north;
+		this.cellWidth = cellWidth;
+		this.cellHeight = cellHeight;
+
+		int columns = 0;
+		for (double currentX = west + deltaX; currentX <= east; currentX += cellWidth)
+			columns++;
+		this.xs = new double[columns];
+		double currentX = west + deltaX;
+		for (int c = 0; c < columns; c++, currentX += cellWidth)
+			this.xs[c] = currentX;
+
+		int rows = 0;
+		for (double currentY = north - deltaY; currentY >= south; currentY -= cellHeight)
+			rows++;
+		this.ys = new double[rows];
+		double currentY = north - deltaY;
+		for (int r = 0; r < rows; r++, currentY -= cellHeight)
+			this.ys[r] = currentY;
+	}
+
+	/**
+	 * 由已知的每列、每行中心坐标恢复网格(读取快照时使用)
+	 */
+	GridGeometry(double west, double south, double east, double north, double cellWidth, double cellHeight,
+			double[] xs, double[] ys) {
+		this.west = west;
+		this.south = south;
+		this.east = east;
+		this.north = north;
+		this.cellWidth = cellWidth;
+		this.cellHeight = cellHeight;
+		this.xs = xs;
+		this.ys = ys;
+	}
+
+	/**
+	 * 根据范围 [west, south, east, north] 生成网格, 横向约 100 格
+	 */
+	public static GridGeometry fromBBox(double[] box) {
+		return fromBBox(box, 0);
+	}
+
+	/**
+	 * 根据范围 [west, south, east, north] 生成网格
+	 *
+	 * @param cellSize 每格边长(米), 小于等于 0 时横向约 100 格
+	 */
+	public static GridGeometry fromBBox(double[] box, double cellSize) {
+		// TurfMeasurement.distance 的单位为千米
+		double width = TurfMeasurement.distance(Point.fromLngLat(box[0], box[1]), Point.fromLngLat(box[2], box[1]));
+		double resolution = cellSize > 0 ? cellSize / 1000 : width / 100;
+
+		double west = box[0];
+		double south = box[1];
+		double east = box[2];
+		double north = box[3];
+
+		double xFraction = resolution
+				/ (TurfMeasurement.distance(Point.fromLngLat(west, south), Point.fromLngLat(east, south)));
+		double cellWidth = xFraction * (east - west);
+		double yFraction = resolution
+				/ (TurfMeasurement.distance(Point.fromLngLat(west, south), Point.fromLngLat(west, north)));
+		double cellHeight = yFraction * (north - south);
+
+		double bboxHorizontalSide = (east - west);
+		double bboxVerticalSide = (north - south);
+		double columns = Math.floor(bboxHorizontalSide / cellWidth);
+		double rows = Math.floor(bboxVerticalSide / cellHeight);
+		if (columns * rows > Integer.MAX_VALUE)
+			throw new Error("cell size too small: " + (long) columns + " x " + (long) rows);
+		// adjust origin of the grid
+		double deltaX = (bboxHorizontalSide - columns * cellWidth) / 2;
+		double deltaY = (bboxVerticalSide - rows * cellHeight) / 2;
+
+		return new GridGeometry(west, south, east, north, cellWidth, cellHeight, deltaX, deltaY);
+	}
+
+	/**
+	 * 中心经度大于等于 x 的第一列, 不存在时返回列数
+	 */
+	public int ceilColumn(double x) {
+		int lo = 0, hi = xs.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (xs[mid] < x)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * 中心经度小于等于 x 的最后一列, 不存在时返回 -1
+	 */
+	public int floorColumn(double x) {
+		int lo = 0, hi = xs.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (xs[mid] <= x)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo - 1;
+	}
+
+	/**
+	 * 中心纬度小于等于 y 的第一行(行由北向南), 不存在时返回行数
+	 */
+	public int ceilRow(double y) {
+		int lo = 0, hi = ys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (ys[mid] > y)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * 中心纬度大于等于 y 的最后一行(行由北向南), 不存在时返回 -1
+	 */
+	public int floorRow(double y) {
+		int lo = 0, hi = ys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (ys[mid] >= y)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo - 1;
+	}
+
+	/**
+	 * 网格中心点坐标 "x|y"
+	 */
+	public String[][] toPointMatrix() {
+		String[][] pointMatrix = new String[ys.length][xs.length];
+		for (int r = 0; r < ys.length; r++) {
+			for (int c = 0; c < xs.length; c++) {
+				pointMatrix[r][c] = xs[c] + "|" + ys[r];
+			}
+		}
+		return pointMatrix;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	public int getRows() {
+		return ys.length;
+	}
+
+	public int getColumns() {
+		return xs.length;
+	}
+
+	public double getX(int column) {
+		return xs[column];
+	}
+
+	public double getY(int row) {
+		return ys[row];
+	}
+
+	public double getWest() {
+		return west;
+	}
+
+	public double getSouth() {
+		return south;
+	}
+
+	public double getEast() {
+		return east;
+	}
+
+	public double getNorth() {
+		return north;
+	}
+
+	public double getCellWidth() {
+		return cellWidth;
+	}
+
+	public double getCellHeight() {
+		return cellHeight;
+	}
+
+}
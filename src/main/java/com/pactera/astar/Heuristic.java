@@ -0,0 +1,55 @@
+package com.pactera.astar;
+
+/**
+ * ClassName: Heuristic
+ *
+ * @Description: H 的估值方法, dx、dy 为当前结点到终点的行列差(绝对值); 按平移代价 straightEdge 与斜移代价 bevelEdge 缩放.
+ *               8方向网格中 straightEdge <= bevelEdge 时 CHEBYSHEV 可采纳, bevelEdge >= √2 * straightEdge(默认代价)时
+ *               EUCLIDEAN 也可采纳; straightEdge <= bevelEdge <= 2 * straightEdge 时 OCTILE 是可采纳的估值中最紧的.
+ *               MANHATTAN 在 bevelEdge < 2 * straightEdge 时高估, 不可采纳, 不保证最短路径
+ */
+public enum Heuristic {
+
+	/**
+	 * 曼哈顿距离: 坐标分别取差值相加; 斜移代价小于 2 倍平移代价时高估, 不保证最短
+	 */
+	MANHATTAN {
+		@Override
+		public double estimate(int dx, int dy, double straightEdge, double bevelEdge) {
+			return straightEdge * (dx + dy);
+		}
+	},
+	/**
+	 * 八方向距离: 先斜移再平移
+	 */
+	OCTILE {
+		@Override
+		public double estimate(int dx, int dy, double straightEdge, double bevelEdge) {
+			return dx > dy ? bevelEdge * dy + straightEdge * (dx - dy) : bevelEdge * dx + straightEdge * (dy - dx);
+		}
+	},
+	/**
+	 * 切比雪夫距离: 斜移与平移代价相同时等于八方向距离
+	 */
+	CHEBYSHEV {
+		@Override
+		public double estimate(int dx, int dy, double straightEdge, double bevelEdge) {
+			return straightEdge * Math.max(dx, dy);
+		}
+	},
+	/**
+	 * 欧氏距离
+	 */
+	EUCLIDEAN {
+		@Override
+		public double estimate(int dx, int dy, double straightEdge, double bevelEdge) {
+			return straightEdge * Math.sqrt((double) dx * dx + (double) dy * dy);
+		}
+	};
+
+	/**
+	 * 估算剩余代价
+	 */
+	public abstract double estimate(int dx, int dy, double straightEdge, double bevelEdge);
+
+}
@@ -0,0 +1,323 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: HierarchicalAStar
+ *
+ * @Description: 分层A星算法(HPA*); 起点与终点先在所在簇及其相邻簇(3 x 3 个簇)的范围内泛洪, 连接到范围内的过渡点,
+ *               再在 ClusterGraph 抽象图上搜索, 最后拼接起点/终点泛洪路径、簇内预先计算的路径与过渡边得到完整路径.
+ *               起点或终点是障碍时第一步可能跨入相邻簇, 因此泛洪范围包含相邻簇, 保证连通性与平面搜索一致.
+ *               只在簇内与过渡点处求最短, 结果接近但不保证最短
+ */
+public class HierarchicalAStar implements PathFinder {
+
+	/**
+	 * 默认簇大小
+	 */
+	public static final int DEFAULT_CLUSTER_SIZE = 16;
+	private static final int CLOSED = -2;
+	/**
+	 * 抽象边的类型: 起点泛洪、终点泛洪、簇内路径、过渡边
+	 */
+	private static final int VIA_START = 0, VIA_END = 1, VIA_INTRA = 2, VIA_INTER = 3;
+
+	private int clusterSize = DEFAULT_CLUSTER_SIZE;
+	/**
+	 * 抽象图; 与搜索的障碍网格不一致时按 clusterSize 重新构建
+	 */
+	private ClusterGraph graph;
+
+	private double[] g = new double[0];
+	private double[] f = new double[0];
+	private int[] parent = new int[0];
+	private int[] via = new int[0];
+	private int[] heapIndex = new int[0];
+	private int[] visited = new int[0];
+	private int generation;
+	private int[] heap = new int[0];
+	private int heapSize;
+
+	private ClusterGraph.Flood startFlood;
+	private ClusterGraph.Flood endFlood;
+
+	private int[] path = new int[0];
+	private int pathSize;
+	private double length;
+	private int expanded;
+	private int width;
+	private int start;
+	private int end;
+	private int endX;
+	private int endY;
+
+	public HierarchicalAStar() {
+	}
+
+	public HierarchicalAStar(ClusterGraph graph) {
+		this.graph = graph;
+		this.clusterSize = graph.getClusterSize();
+	}
+
+	@Override
+	public boolean search(OccupancyGrid grid, int startX, int startY, int endX, int endY) {
+		if (graph == null || graph.getGrid() != grid)
+			graph = ClusterGraph.build(grid, clusterSize);
+		if (startFlood == null || startFlood.capacity() < 9 * graph.getClusterSize() * graph.getClusterSize()) {
+			startFlood = new ClusterGraph.Flood(3 * graph.getClusterSize());
+			endFlood = new ClusterGraph.Flood(3 * graph.getClusterSize());
+		}
+		this.width = grid.getWidth();
+		ensureCapacity(width * grid.getHeight());
+		this.heapSize = 0;
+		this.pathSize = 0;
+		this.length = 0;
+		this.expanded = 0;
+		this.start = startY * width + startX;
+		this.end = endY * width + endX;
+		this.endX = endX;
+		this.endY = endY;
+
+		int[] bounds = graph.neighborhood(graph.clusterOf(start));
+		startFlood.run(grid, bounds[0], bounds[1], bounds[2], bounds[3], start, start, end, graph.getStraightEdge(),
+				graph.getBevelEdge());
+		bounds = graph.neighborhood(graph.clusterOf(end));
+		endFlood.run(grid, bounds[0], bounds[1], bounds[2], bounds[3], end, start, end, graph.getStraightEdge(),
+				graph.getBevelEdge());
+
+		visit(start);
+		g[start] = 0;
+		f[start] = 0;
+		parent[start] = -1;
+		push(start);
+		while (heapSize > 0) {
+			int current = pop();
+			heapIndex[current] = CLOSED;
+			expanded++;
+			if (current == end) {
+				length = g[end];
+				drawPath();
+				return true;
+			}
+			expand(current);
+		}
+		return false;
+	}
+
+	/**
+	 * 扩展抽象结点(网格下标)
+	 */
+	private void expand(int current) {
+		int c = graph.clusterOf(current);
+		ClusterGraph.Cluster cluster = graph.getCluster(c);
+		if (current == start) {
+			for (int neighbor : graph.neighbors(c)) {
+				for (int node : graph.getCluster(neighbor).nodes) {
+					if (node != start)
+						relax(current, node, startFlood.distance(node), VIA_START);
+				}
+			}
+			relax(current, end, startFlood.distance(end), VIA_START);
+		}
+		int i = cluster.indexOf(current);
+		if (i >= 0) {
+			int n = cluster.nodes.length;
+			if (current != start) {
+				for (int j = 0; j < n; j++) {
+					if (j != i)
+						relax(current, cluster.nodes[j], cluster.distances[i * n + j], VIA_INTRA);
+				}
+			}
+			for (int k = cluster.offsets[i]; k < cluster.offsets[i + 1]; k++)
+				relax(current, cluster.partners[k], cluster.costs[k], VIA_INTER);
+		}
+		if (current != start && endFlood.contains(current))
+			relax(current, end, endFlood.distance(current), VIA_END);
+	}
+
+	private void relax(int current, int next, double cost, int type) {
+		if (cost == Double.POSITIVE_INFINITY)
+			return;
+		double G = g[current] + cost;
+		if (visited[next] != generation) {
+			visit(next);
+		} else if (heapIndex[next] == CLOSED || g[next] <= G) {
+			return;
+		}
+		g[next] = G;
+		int dx = Math.abs(endX - next % width), dy = Math.abs(endY - next / width);
+		f[next] = G + Heuristic.OCTILE.estimate(dx, dy, graph.getStraightEdge(), graph.getBevelEdge());
+		parent[next] = current;
+		via[next] = type;
+		if (heapIndex[next] >= 0)
+			siftUp(heapIndex[next], next);
+		else
+			push(next);
+	}
+
+	/**
+	 * 回溯抽象路径, 并展开每条抽象边
+	 */
+	private void drawPath() {
+		int edges = 0;
+		for (int node = end; parent[node] != -1; node = parent[node])
+			edges++;
+		int[] nodes = new int[edges + 1];
+		for (int node = end, k = edges; k >= 0; node = parent[node], k--)
+			nodes[k] = node;
+		pathSize = 0;
+		append(new int[] { start });
+		for (int k = 1; k <= edges; k++) {
+			int from = nodes[k - 1], to = nodes[k];
+			switch (via[to]) {
+			case VIA_START:
+				append(startFlood.trace(to));
+				break;
+			case VIA_END:
+				int[] reversed = endFlood.trace(from);
+				for (int a = 0, b = reversed.length - 1; a < b; a++, b--) {
+					int t = reversed[a];
+					reversed[a] = reversed[b];
+					reversed[b] = t;
+				}
+				append(reversed);
+				break;
+			case VIA_INTRA:
+				ClusterGraph.Cluster cluster = graph.getCluster(graph.clusterOf(from));
+				append(cluster.path(cluster.indexOf(from), cluster.indexOf(to)));
+				break;
+			default:
+				append(new int[] { from, to });
+			}
+		}
+	}
+
+	/**
+	 * 追加一段路径, 第一格与当前路径的最后一格相同时跳过
+	 */
+	private void append(int[] segment) {
+		int from = pathSize > 0 && segment[0] == path[pathSize - 1] ? 1 : 0;
+		if (path.length < pathSize + segment.length)
+			path = Arrays.copyOf(path, Math.max(pathSize + segment.length, path.length << 1));
+		for (int k = from; k < segment.length; k++)
+			path[pathSize++] = segment[k];
+	}
+
+	private void visit(int node) {
+		visited[node] = generation;
+		heapIndex[node] = -1;
+	}
+
+	private void ensureCapacity(int cells) {
+		if (g.length < cells) {
+			g = new double[cells];
+			f = new double[cells];
+			parent = new int[cells];
+			via = new int[cells];
+			heapIndex = new int[cells];
+			visited = new int[cells];
+			heap = new int[cells];
+			generation = 0;
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+
+	private void push(int node) {
+		siftUp(heapSize++, node);
+	}
+
+	private int pop() {
+		int result = heap[0];
+		int last = heap[--heapSize];
+		if (heapSize > 0)
+			siftDown(0, last);
+		return result;
+	}
+
+	private void siftUp(int k, int node) {
+		double key = f[node];
+		while (k > 0) {
+			int p = (k - 1) >>> 1;
+			int e = heap[p];
+			if (key >= f[e])
+				break;
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private void siftDown(int k, int node) {
+		double key = f[node];
+		int half = heapSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && f[c] > f[heap[right]])
+				c = heap[child = right];
+			if (key <= f[c])
+				break;
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	@Override
+	public int[] getPath() {
+		return path;
+	}
+
+	@Override
+	public int getPathSize() {
+		return pathSize;
+	}
+
+	@Override
+	public int getPathX(int i) {
+		return path[i] % width;
+	}
+
+	@Override
+	public int getPathY(int i) {
+		return path[i] / width;
+	}
+
+	@Override
+	public double getLength() {
+		return length;
+	}
+
+	@Override
+	public int getExpanded() {
+		return expanded;
+	}
+
+	public ClusterGraph getGraph() {
+		return graph;
+	}
+
+	public void setGraph(ClusterGraph graph) {
+		this.graph = graph;
+	}
+
+	public int getClusterSize() {
+		return clusterSize;
+	}
+
+	public void setClusterSize(int clusterSize) {
+		this.clusterSize = clusterSize;
+	}
+
+}
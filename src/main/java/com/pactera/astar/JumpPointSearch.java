@@ -0,0 +1,352 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: JumpPointSearch
+ *
+ * @Description: 跳点搜索(Jump Point Search); 沿直线与对角线方向跳过对称的中间网格, 只把跳点放入open表, 长走廊中扩展的结点数远少于A星.
+ *               与 GridAStar 使用相同的移动规则(8方向, 允许斜穿障碍的角), 使用八方向距离作为估值, 得到的路径代价与最优的A星相同.
+ *               缓冲区按网格大小复用, 重复搜索不会产生对象分配
+ */
+public class JumpPointSearch implements PathFinder {
+
+	/**
+	 * 结点已在close表中
+	 */
+	private static final int CLOSED = -2;
+	/**
+	 * 平移代价
+	 */
+	private double straightEdge = 1;
+	/**
+	 * 斜移代价
+	 */
+	private double bevelEdge = Math.sqrt(2);
+
+	private double[] g = new double[0];
+	private double[] f = new double[0];
+	private int[] parent = new int[0];
+	private int[] heapIndex = new int[0];
+	private int[] visited = new int[0];
+	private int generation;
+	private int[] heap = new int[0];
+	private int heapSize;
+
+	/**
+	 * 路径(起点到终点的网格下标, 跳点之间的网格已补齐)
+	 */
+	private int[] path = new int[0];
+	private int pathSize;
+	private double length;
+	/**
+	 * 最近一次搜索扩展(放入close表)的跳点数
+	 */
+	private int expanded;
+
+	private OccupancyGrid grid;
+	private int width;
+	private int height;
+	private int start;
+	private int end;
+	private int endX;
+	private int endY;
+
+	public JumpPointSearch() {
+	}
+
+	public JumpPointSearch(double straightEdge) {
+		this.straightEdge = straightEdge;
+		this.bevelEdge = Math.sqrt(Math.pow(this.straightEdge, 2) + Math.pow(this.straightEdge, 2));
+	}
+
+	@Override
+	public boolean search(OccupancyGrid grid, int startX, int startY, int endX, int endY) {
+		this.grid = grid;
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		ensureCapacity(width * height);
+		this.heapSize = 0;
+		this.pathSize = 0;
+		this.length = 0;
+		this.expanded = 0;
+		this.start = startY * width + startX;
+		this.end = endY * width + endX;
+		this.endX = endX;
+		this.endY = endY;
+
+		visit(start);
+		g[start] = 0;
+		f[start] = 0;
+		parent[start] = -1;
+		push(start);
+
+		boolean found = false;
+		while (heapSize > 0) {
+			int current = pop();
+			heapIndex[current] = CLOSED;
+			expanded++;
+			if (current == end) {
+				found = true;
+				break;
+			}
+			expand(current);
+		}
+		this.grid = null;
+		if (found) {
+			length = g[end];
+			drawPath(end);
+		}
+		return found;
+	}
+
+	/**
+	 * 按父结点方向裁剪邻结点, 沿每个方向跳跃并把跳点加入open表
+	 */
+	private void expand(int current) {
+		int x = current % width;
+		int y = current / width;
+		int p = parent[current];
+		if (p < 0) {
+			for (int i = 0; i < 8; i++)
+				jumpFrom(current, x, y, GridAStar.DX[i], GridAStar.DY[i]);
+			return;
+		}
+		int dx = Integer.signum(x - p % width);
+		int dy = Integer.signum(y - p / width);
+		if (dx != 0 && dy != 0) {
+			jumpFrom(current, x, y, 0, dy);
+			jumpFrom(current, x, y, dx, 0);
+			jumpFrom(current, x, y, dx, dy);
+			if (!passable(x - dx, y))
+				jumpFrom(current, x, y, -dx, dy);
+			if (!passable(x, y - dy))
+				jumpFrom(current, x, y, dx, -dy);
+		} else if (dx != 0) {
+			jumpFrom(current, x, y, dx, 0);
+			if (!passable(x, y + 1))
+				jumpFrom(current, x, y, dx, 1);
+			if (!passable(x, y - 1))
+				jumpFrom(current, x, y, dx, -1);
+		} else {
+			jumpFrom(current, x, y, 0, dy);
+			if (!passable(x + 1, y))
+				jumpFrom(current, x, y, 1, dy);
+			if (!passable(x - 1, y))
+				jumpFrom(current, x, y, -1, dy);
+		}
+	}
+
+	private void jumpFrom(int current, int x, int y, int dx, int dy) {
+		int next = jump(x + dx, y + dy, dx, dy);
+		if (next < 0)
+			return;
+		int nx = next % width;
+		int ny = next / width;
+		double G = g[current] + distance(x, y, nx, ny);
+		if (visited[next] != generation) {
+			visit(next);
+			g[next] = G;
+			f[next] = G + distance(nx, ny, endX, endY);
+			parent[next] = current;
+			push(next);
+		} else if (heapIndex[next] >= 0 && g[next] > G) {
+			g[next] = G;
+			f[next] = G + distance(nx, ny, endX, endY);
+			parent[next] = current;
+			siftUp(heapIndex[next], next);
+		}
+	}
+
+	/**
+	 * 从 (x, y) 沿 (dx, dy) 方向跳跃, 返回遇到的跳点(终点或存在强迫邻居的网格), 没有时返回 -1
+	 */
+	private int jump(int x, int y, int dx, int dy) {
+		while (passable(x, y)) {
+			if (x == endX && y == endY)
+				return y * width + x;
+			if (dx != 0 && dy != 0) {
+				if ((passable(x - dx, y + dy) && !passable(x - dx, y))
+						|| (passable(x + dx, y - dy) && !passable(x, y - dy)))
+					return y * width + x;
+				// 对角线上的每一格都先沿两个分量方向做直线跳跃
+				if (jump(x + dx, y, dx, 0) >= 0 || jump(x, y + dy, 0, dy) >= 0)
+					return y * width + x;
+			} else if (dx != 0) {
+				if ((passable(x + dx, y + 1) && !passable(x, y + 1))
+						|| (passable(x + dx, y - 1) && !passable(x, y - 1)))
+					return y * width + x;
+			} else {
+				if ((passable(x + 1, y + dy) && !passable(x + 1, y))
+						|| (passable(x - 1, y + dy) && !passable(x - 1, y)))
+					return y * width + x;
+			}
+			x += dx;
+			y += dy;
+		}
+		return -1;
+	}
+
+	/**
+	 * 是否在地图中且可通过, 起点与终点视为可通过
+	 */
+	private boolean passable(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height)
+			return false;
+		if (!grid.isBlocked(x, y))
+			return true;
+		int index = y * width + x;
+		return index == start || index == end;
+	}
+
+	/**
+	 * 八方向距离, 跳点之间是直线或对角线, 因此也是两点间的实际代价
+	 */
+	private double distance(int x0, int y0, int x1, int y1) {
+		int dx = Math.abs(x1 - x0);
+		int dy = Math.abs(y1 - y0);
+		return dx > dy ? bevelEdge * dy + straightEdge * (dx - dy) : bevelEdge * dx + straightEdge * (dy - dx);
+	}
+
+	/**
+	 * 按父结点回溯跳点, 并补齐跳点之间的网格, 结果为起点到终点的顺序
+	 */
+	private void drawPath(int end) {
+		int count = 1;
+		for (int node = end; parent[node] != -1; node = parent[node]) {
+			int p = parent[node];
+			count += Math.max(Math.abs(node % width - p % width), Math.abs(node / width - p / width));
+		}
+		if (path.length < count)
+			path = new int[Math.max(count, path.length << 1)];
+		pathSize = count;
+		for (int node = end; parent[node] != -1; node = parent[node]) {
+			int p = parent[node];
+			int x = node % width, y = node / width;
+			int dx = Integer.signum(p % width - x), dy = Integer.signum(p / width - y);
+			for (; x != p % width || y != p / width; x += dx, y += dy)
+				path[--count] = y * width + x;
+		}
+		path[--count] = start;
+	}
+
+	private void visit(int node) {
+		visited[node] = generation;
+		heapIndex[node] = -1;
+	}
+
+	/**
+	 * 保证缓冲区足够容纳网格, 并开始新的搜索批次
+	 */
+	private void ensureCapacity(int cells) {
+		if (g.length < cells) {
+			g = new double[cells];
+			f = new double[cells];
+			parent = new int[cells];
+			heapIndex = new int[cells];
+			visited = new int[cells];
+			heap = new int[cells];
+			generation = 0;
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+
+	private void push(int node) {
+		siftUp(heapSize++, node);
+	}
+
+	private int pop() {
+		int result = heap[0];
+		int last = heap[--heapSize];
+		if (heapSize > 0)
+			siftDown(0, last);
+		return result;
+	}
+
+	private void siftUp(int k, int node) {
+		double key = f[node];
+		while (k > 0) {
+			int p = (k - 1) >>> 1;
+			int e = heap[p];
+			if (key >= f[e])
+				break;
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private void siftDown(int k, int node) {
+		double key = f[node];
+		int half = heapSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && f[c] > f[heap[right]])
+				c = heap[child = right];
+			if (key <= f[c])
+				break;
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	@Override
+	public int[] getPath() {
+		return path;
+	}
+
+	@Override
+	public int getPathSize() {
+		return pathSize;
+	}
+
+	@Override
+	public int getPathX(int i) {
+		return path[i] % width;
+	}
+
+	@Override
+	public int getPathY(int i) {
+		return path[i] / width;
+	}
+
+	@Override
+	public double getLength() {
+		return length;
+	}
+
+	@Override
+	public int getExpanded() {
+		return expanded;
+	}
+
+	public double getStraightEdge() {
+		return straightEdge;
+	}
+
+	public void setStraightEdge(double straightEdge) {
+		this.straightEdge = straightEdge;
+	}
+
+	public double getBevelEdge() {
+		return bevelEdge;
+	}
+
+	public void setBevelEdge(double bevelEdge) {
+		this.bevelEdge = bevelEdge;
+	}
+
+}
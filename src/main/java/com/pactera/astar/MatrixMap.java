@@ -1,9 +1,12 @@
 package com.pactera.astar;
 
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -12,41 +15,93 @@ import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.geojson.GeoJson;
 import com.mapbox.geojson.LineString;
 import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
 import com.mapbox.turf.TurfMeasurement;
-import com.pactera.astar.modal.Node;
-import com.pactera.turf.TurfMisc;
+import com.pactera.turf.TurfBooleans;
 
 public class MatrixMap {
 
 	/**
-	 * 矩阵图
+	 * 障碍网格、网格几何信息、出入口与出入口路径表, 作为一个整体替换; 每次查询只读取一次, 并发更新时不会混用新旧数据
 	 */
-	private int[][] matrix;
+	private volatile State state;
 	/**
-	 * 矩阵中每一格代表的坐标值 '|' 隔开; 例: x|y
+	 * 矩阵图(兼容旧接口), 仅在调用 getMatrix 时由障碍网格生成
 	 */
-	private String[][] pointMatrix;
+	private volatile int[][] matrix;
 	/**
-	 * 起始节点
+	 * 矩阵中每一格代表的坐标值 '|' 隔开; 例: x|y, 仅在调用 getPointMatrix 时生成
 	 */
-	private Node start;
+	private volatile String[][] pointMatrix;
 	/**
-	 * 最终节点
+	 * 生成矩阵图时的障碍物索引, 移除临时障碍物时据此判断网格是否仍在其他障碍物内
 	 */
-	private Node end;
+	private ObstacleIndex obstacles;
 	/**
-	 * 起始节点到最终节点的长度(代价)
+	 * 从快照读取时障碍物的读取方法, 第一次增加或移除障碍物时才读取为 obstacles
 	 */
-	private double length;
+	private Supplier<ObstacleIndex> obstacleLoader;
 	/**
-	 * 起始节点到最终节点的路径集合
+	 * 生成矩阵图之后增加的临时障碍物(如叉车、临时堆放的托盘)
 	 */
-	private List<int[]> paths = Lists.newArrayList();
+	private List<Polygon> dynamicObstacles = Lists.newArrayList();
 	/**
-	 * 出入口坐标对应的网格 例: ("x|y", [6,12])
+	 * 障碍物(生成矩阵图时的障碍物与临时障碍物)变化的次数, 在锁外构建的可视图据此判断是否已过期
 	 */
-	private Map<String, int[]> entMap = new HashMap<>();
-	private Map<String, Double> distanceMap = new HashMap<>();
+	private long obstacleVersion;
+	/**
+	 * 出入口对应的网格是障碍时是否改为最近的可通过网格
+	 */
+	private boolean snapToFree;
+	/**
+	 * 栅格化并行度, 小于等于 1 时串行
+	 */
+	private int parallelism = 1;
+	/**
+	 * 栅格化方式
+	 */
+	private Rasterizer.Mode rasterMode = Rasterizer.Mode.POINT;
+	/**
+	 * 障碍网格是否存放在堆外内存
+	 */
+	private boolean offHeap;
+	/**
+	 * 路径搜索算法
+	 */
+	private PathFinder.Engine engine = PathFinder.Engine.ASTAR;
+	/**
+	 * shortestPath 是否在障碍物多边形的可视图上搜索(欧氏最短路径), 为 true 时不使用 engine
+	 */
+	private boolean visibilityRouting;
+	/**
+	 * 分层寻路的抽象图, 使用 HIERARCHICAL 算法时按 clusterSize 构建, 重新生成矩阵图时清空
+	 */
+	private volatile ClusterGraph hierarchy;
+	private int clusterSize = HierarchicalAStar.DEFAULT_CLUSTER_SIZE;
+	/**
+	 * 四叉树, 使用 QUADTREE 算法时构建, 障碍网格变化后重新构建
+	 */
+	private volatile QuadTree quadTree;
+	/**
+	 * 障碍物多边形的可视图, 使用可视图路由时构建, 增加、移除障碍物或重新生成矩阵图时清空
+	 */
+	private volatile VisibilityGraph visibilityGraph;
+	/**
+	 * 每格边长(米), 小于等于 0 时按平面图宽度横向约 100 格
+	 */
+	private double cellSize;
+	/**
+	 * 路径缓存, 默认为 null, 不缓存
+	 */
+	private volatile RouteCache routeCache;
+	/**
+	 * 矩阵图版本, 矩阵图或搜索算法变化时递增, 路径缓存据此失效
+	 */
+	private volatile long version;
+	/**
+	 * 每个线程复用的搜索上下文
+	 */
+	private static final ThreadLocal<SearchContext> contexts = ThreadLocal.withInitial(SearchContext::new);
 
 	public MatrixMap() {
 	}
@@ -55,6 +110,10 @@ public class MatrixMap {
 		this.generateMatrix(geojson);
 	}
 
+	public MatrixMap(InputStream in) {
+		this.generateMatrix(in);
+	}
+
 	/**
 	 * 生成矩阵图
 	 * 
@@ -63,130 +122,532 @@ public class MatrixMap {
 	public Map<String, Object> generateMatrix(GeoJson geojson) {
 		// Handle obstacles
 		FeatureCollection obstacles = null;
-		FeatureCollection collection = null;
 		if ("FeatureCollection".equals(geojson.type())) {
 			FeatureCollection featureCollection = (FeatureCollection) geojson;
 			if (featureCollection.features().size() == 0) {
 				throw new Error("null obstacles");
 			} else {
 				obstacles = featureCollection;
-				List<Feature> features = Lists.newArrayList(featureCollection.features());
-				collection = FeatureCollection.fromFeatures(features);
 			}
 		} else if ("Feature".equals(geojson.type())) {
 			Feature feature = (Feature) geojson;
 			if ("Polygon".equals(feature.geometry().type())) {
 				// define path grid area
 				obstacles = FeatureCollection.fromFeatures(new Feature[] { Feature.fromGeometry(feature.geometry()) });
-				collection = FeatureCollection.fromFeatures(new Feature[] { Feature.fromGeometry(feature.geometry()) });
 			}
 		} else {
 			throw new Error("invalid obstacles");
 		}
 
-		this.initEntMap(obstacles);
+		// 外包矩形直接由障碍物计算, 不再复制要素列表
+		return this.generateMatrix(TurfMeasurement.bbox(obstacles), new ObstacleIndex(obstacles), points(obstacles));
+	}
 
-		double[] box = TurfMeasurement.bbox(com.pactera.turf.TurfTransformation
-				.transformScale(TurfMeasurement.bboxPolygon(TurfMeasurement.bbox(collection)), 1.15));
-
-		double width = TurfMeasurement.distance(Point.fromLngLat(box[0], box[1]), Point.fromLngLat(box[2], box[1]));
-		double resolution = width / 100;
-
-		double west = box[0];
-		double south = box[1];
-		double east = box[2];
-		double north = box[3];
-
-		double xFraction = resolution
-				/ (TurfMeasurement.distance(Point.fromLngLat(west, south), Point.fromLngLat(east, south)));
-		double cellWidth = xFraction * (east - west);
-		double yFraction = resolution
-				/ (TurfMeasurement.distance(Point.fromLngLat(west, south), Point.fromLngLat(west, north)));
-		double cellHeight = yFraction * (north - south);
-
-		double bboxHorizontalSide = (east - west);
-		double bboxVerticalSide = (north - south);
-		double columns = Math.floor(bboxHorizontalSide / cellWidth);
-		double rows = Math.floor(bboxVerticalSide / cellHeight);
-		// adjust origin of the grid
-		double deltaX = (bboxHorizontalSide - columns * cellWidth) / 2;
-		double deltaY = (bboxVerticalSide - rows * cellHeight) / 2;
-
-		// loop through points only once to speed up process
-		// define matrix grid for A-star algorithm
-		String[][] pointMatrix = new String[(int) rows + 1][(int) columns + 1];
-		int[][] matrix = new int[(int) rows + 1][(int) columns + 1];
-		double currentY = north - deltaY;
-		int r = 0;
-		while (currentY >= south) {
-			String[] pointMatrixRow = new String[(int) columns + 1];
-			int[] matrixRow = new int[(int) columns + 1];
-			double currentX = west + deltaX;
-			int c = 0;
-			while (currentX <= east) {
-				Point pt = Point.fromLngLat(currentX, currentY);
-				boolean isInsideObstacle = TurfMisc.isInside(pt, obstacles);
-				matrixRow[c] = isInsideObstacle ? 1 : 0;
-				// map point's coords
-				pointMatrixRow[c] = currentX + "|" + currentY;
-
-				// 计算当前点与出入口的最小距离并保存出入口对应的网格坐标
-				this.saveEntMap(pt, new int[] { r, c });
-
-				currentX += cellWidth;
-				c++;
-			}
-			matrix[r] = matrixRow;
-			pointMatrix[r] = pointMatrixRow;
-			currentY -= cellHeight;
-			r++;
+	/**
+	 * 流式读取 GeoJSON(UTF-8)生成矩阵图, 不生成 FeatureCollection, 不保留任何属性; 不关闭输入流
+	 */
+	public Map<String, Object> generateMatrix(InputStream in) {
+		ObstacleReader reader = new ObstacleReader();
+		reader.read(in);
+		return this.generateMatrix(reader);
+	}
+
+	/**
+	 * 由已读取的障碍物生成矩阵图, 需要保留属性时先用 ObstacleReader(keys).read 读取
+	 */
+	public Map<String, Object> generateMatrix(ObstacleReader reader) {
+		if (reader.getFeatures() == 0 || reader.getBBox() == null) {
+			throw new Error("null obstacles");
 		}
+		return this.generateMatrix(reader.getBBox(), new ObstacleIndex(reader.getGeometries()), reader.getPoints());
+	}
 
-		this.matrix = matrix;
-		this.pointMatrix = pointMatrix;
+	/**
+	 * 按障碍物外包矩形放大 1.15 倍划分网格, 栅格化障碍物并定位出入口
+	 */
+	private synchronized Map<String, Object> generateMatrix(double[] bbox, ObstacleIndex index, List<Point> points) {
+		double[] box = TurfMeasurement.bbox(com.pactera.turf.TurfTransformation
+				.transformScale(TurfMeasurement.bboxPolygon(bbox), 1.15));
+
+		GridGeometry grid = GridGeometry.fromBBox(box, cellSize);
+		OccupancyGrid occupancy = offHeap ? OccupancyGrid.allocateDirect(grid.getColumns(), grid.getRows())
+				: OccupancyGrid.allocate(grid.getColumns(), grid.getRows());
+		new Rasterizer(parallelism, rasterMode).rasterize(grid, index, occupancy);
+
+		// 栅格化之后由网格原点与格子大小直接换算出入口对应的网格
+		Entrances entrances = new Entrances(points);
+		entrances.snap(grid, occupancy, snapToFree);
+
+		this.state = new State(occupancy, grid, entrances, null);
+		this.obstacles = index;
+		this.obstacleLoader = null;
+		this.dynamicObstacles = Lists.newArrayList();
+		this.matrix = null;
+		this.pointMatrix = null;
+		this.hierarchy = null;
+		this.quadTree = null;
+		this.visibilityGraph = null;
+		this.obstacleVersion++;
+		this.version++;
 
 		Map<String, Object> matrixMap = Maps.newHashMap();
-		matrixMap.put("matrix", matrix);
-		matrixMap.put("pointMatrix", pointMatrix);
+		matrixMap.put("occupancy", occupancy);
+		matrixMap.put("grid", grid);
 		return matrixMap;
 	}
 
 	/**
-	 * 计算2点间最短距离
+	 * 计算2点间最短距离, 使用当前线程的搜索上下文
 	 * 
 	 * @param start
 	 * @param end
 	 * @return
 	 */
 	public LineString shortestPath(double[] start, double[] end) {
-		if (this.matrix == null) {
-			throw new Error("没有矩阵图");
+		return this.shortestPath(start, end, contexts.get());
+	}
+
+	/**
+	 * 计算2点间最短距离, 搜索状态与结果(长度、网格路径)保存在 context 中, 不修改当前对象
+	 * 
+	 * @param start
+	 * @param end
+	 * @param context
+	 * @return
+	 */
+	public LineString shortestPath(double[] start, double[] end, SearchContext context) {
+		// 先读版本再读矩阵图, 并发更新时缓存的路径不会属于比版本更旧的矩阵图; 之后只使用这里读到的矩阵图、出入口与路径表
+		long version = this.version;
+		State state = this.state();
+		OccupancyGrid occupancy = state.occupancy;
+		Entrances entrances = state.entrances;
+		int startEnt = entrances.indexOf(start[0], start[1]);
+		int endEnt = entrances.indexOf(end[0], end[1]);
+
+		// 出入口对应的网格下标为 y * width + x(既x代表column,y代表row); 否则参数直接是网格坐标
+		int width = occupancy.getWidth();
+		boolean entrance = startEnt >= 0 && endEnt >= 0;
+		if (this.visibilityRouting) {
+			return this.visibilityPath(start, end, entrance, occupancy, context);
+		}
+		int startCell = entrance ? entrances.getCell(startEnt) : gridCell(occupancy, start[0], start[1]);
+		int endCell = entrance ? entrances.getCell(endEnt) : gridCell(occupancy, end[0], end[1]);
+
+		RouteCache cache = this.routeCache;
+		if (cache != null) {
+			RouteCache.Entry cached = cache.get(this, version, startCell, endCell);
+			if (cached != null) {
+				context.cached(cached, occupancy);
+				return cached.matches(start, end) ? cached.getLineString()
+						: lineString(state.grid, start, end, context);
+			}
 		}
-		int[] startGrid = this.entMap.get(start[0] + "|" + start[1]);
-		int[] endGrid = this.entMap.get(end[0] + "|" + end[1]);
 
-		// 这里entMap取出来的数据直接是xy坐标格式,需要转换为二维数组格式(既x代表column,y代表row)
-		if (startGrid != null && endGrid != null) {
-			this.start = new Node(startGrid[1], startGrid[0]);
-			this.end = new Node(endGrid[1], endGrid[0]);
+		RoutingTable table = state.routingTable;
+		if (entrance && table != null) {
+			context.route(table, startEnt, endEnt, occupancy);
 		} else {
-			this.start = new Node((int) start[0], (int) start[1]);
-			this.end = new Node((int) end[0], (int) end[1]);
+			this.findPath(occupancy, startCell % width, startCell / width, endCell % width, endCell / width, context);
+		}
+		LineString lineString = lineString(state.grid, start, end, context);
+		if (cache != null) {
+			cache.put(this, version, startCell, endCell,
+					new RouteCache.Entry(context.copyPath(), context.getLength(), lineString));
+		}
+		return lineString;
+	}
+
+	/**
+	 * 计算起点到多个终点的最短距离, 使用当前线程的搜索上下文
+	 */
+	public Routes shortestPaths(double[] start, List<double[]> targets) {
+		return this.shortestPaths(start, targets, contexts.get());
+	}
+
+	/**
+	 * 计算起点到多个终点的最短距离: 从起点做一次 Dijkstra 泛洪, 所有可达终点的距离确定后停止, 代替逐个调用 shortestPath.
+	 * 起点与终点全部是出入口时取出入口网格, 否则全部视为网格坐标(与 shortestPath 相同, 出入口与网格坐标混用时出入口的经纬度
+	 * 超出矩阵图而抛出 Error); 不使用 engine 指定的算法、出入口路径表与路径缓存
+	 *
+	 * @return 每个终点的长度与路径, LineString 按需生成
+	 */
+	public Routes shortestPaths(double[] start, List<double[]> targets, SearchContext context) {
+		State state = this.state();
+		OccupancyGrid occupancy = state.occupancy;
+		int width = occupancy.getWidth();
+		// 与 shortestPath 相同: 全部是出入口时取出入口网格, 否则全部视为网格坐标
+		Entrances entrances = state.entrances;
+		boolean entrance = entrances.indexOf(start[0], start[1]) >= 0;
+		for (int i = 0; entrance && i < targets.size(); i++) {
+			entrance = entrances.indexOf(targets.get(i)[0], targets.get(i)[1]) >= 0;
+		}
+		int startCell = entrance ? cellOf(start, state) : gridCell(occupancy, start[0], start[1]);
+		int[] targetCells = new int[targets.size()];
+		for (int i = 0; i < targetCells.length; i++) {
+			double[] target = targets.get(i);
+			targetCells[i] = entrance ? cellOf(target, state) : gridCell(occupancy, target[0], target[1]);
+		}
+
+		MultiTargetSearch search = context.getMultiTargetSearch();
+		search.search(occupancy, startCell, targetCells);
+		int[][] cells = new int[targetCells.length][];
+		double[] lengths = new double[targetCells.length];
+		for (int i = 0; i < targetCells.length; i++) {
+			cells[i] = search.trace(targetCells[i]);
+			lengths[i] = cells[i].length > 0 ? search.getDistance(targetCells[i]) : 0;
+		}
+		return new Routes(state.grid, width, start, Lists.newArrayList(targets), cells, lengths, search.getExpanded());
+	}
+
+	/**
+	 * 计算从 source 到每一格的代价场与走向 source 的流场, 坐标的含义与 shortestPaths 相同
+	 */
+	public DistanceField distanceField(double[] source) {
+		State state = this.state();
+		OccupancyGrid occupancy = state.occupancy;
+		int cell = cellOf(source, state);
+		return DistanceField.compute(occupancy, cell % occupancy.getWidth(), cell / occupancy.getWidth());
+	}
+
+	/**
+	 * 出入口坐标对应的网格下标, 其他坐标视为网格坐标(x代表column,y代表row), 超出矩阵图时抛出 Error
+	 */
+	private static int cellOf(double[] point, State state) {
+		Entrances entrances = state.entrances;
+		int entrance = entrances.indexOf(point[0], point[1]);
+		return entrance >= 0 ? entrances.getCell(entrance) : gridCell(state.occupancy, point[0], point[1]);
+	}
+
+	/**
+	 * 在可视图上搜索: 出入口直接使用经纬度, 其他坐标取网格中心; 不使用出入口路径表与路径缓存.
+	 * 路径为起点、绕过障碍物的拐点(经纬度)、终点, 未找到路径时只有起点与终点
+	 */
+	private LineString visibilityPath(double[] start, double[] end, boolean entrance, OccupancyGrid occupancy,
+			SearchContext context) {
+		if (!entrance) {
+			gridCell(occupancy, start[0], start[1]);
+			gridCell(occupancy, end[0], end[1]);
 		}
-		AStar astar = new AStar();
-		astar.start(this);
+		// 已构建时不加锁
+		VisibilityGraph graph = this.visibilityGraph;
+		if (graph == null)
+			graph = this.buildVisibilityGraph();
+		double startU = entrance ? graph.toU(start[0]) : (int) start[0];
+		double startV = entrance ? graph.toV(start[1]) : (int) start[1];
+		double endU = entrance ? graph.toU(end[0]) : (int) end[0];
+		double endV = entrance ? graph.toV(end[1]) : (int) end[1];
+		context.searchVisible(graph, startU, startV, endU, endV);
+
+		VisibilitySearch search = context.getVisibilitySearch();
+		List<Point> path = Lists.newArrayListWithCapacity(search.getPathSize() + 2);
+		path.add(Point.fromLngLat(start[0], start[1]));
+		for (int i = 1; i < search.getPathSize() - 1; i++) {
+			path.add(Point.fromLngLat(graph.toX(search.getPathU(i)), graph.toY(search.getPathV(i))));
+		}
+		path.add(Point.fromLngLat(end[0], end[1]));
+		return LineString.fromLngLats(Collections.unmodifiableList(path));
+	}
 
-		List<int[]> results = this.getPaths();
-		Collections.reverse(results);
-		List<Point> path = Lists.newArrayList();
+	/**
+	 * 由搜索结果生成路径: 起点、路径上每一格的中心、终点; 坐标列表不可修改
+	 */
+	private static LineString lineString(GridGeometry grid, double[] start, double[] end, SearchContext context) {
+		List<Point> path = Lists.newArrayListWithCapacity(context.getPathSize() + 2);
 		path.add(Point.fromLngLat(start[0], start[1]));
-		for (int[] coord : results) {
-			String[] coords = pointMatrix[coord[1]][coord[0]].split("\\|");
-			path.add(Point.fromLngLat(Double.parseDouble(coords[0]), Double.parseDouble(coords[1])));
+		for (int i = 0; i < context.getPathSize(); i++) {
+			path.add(Point.fromLngLat(grid.getX(context.getPathX(i)), grid.getY(context.getPathY(i))));
 		}
 		path.add(Point.fromLngLat(end[0], end[1]));
 
-		return LineString.fromLngLats(path);
+		return LineString.fromLngLats(Collections.unmodifiableList(path));
+	}
+
+	/**
+	 * 在矩阵图中使用 engine 指定的算法搜索2个网格间的路径(x代表column,y代表row), 结果保存在 context 中
+	 * 
+	 * @return 是否找到路径
+	 */
+	public boolean findPath(int startX, int startY, int endX, int endY, SearchContext context) {
+		return this.findPath(this.state().occupancy, startX, startY, endX, endY, context);
+	}
+
+	/**
+	 * 在指定的矩阵图上搜索; 抽象图、四叉树已按该矩阵图构建时直接使用, 不加锁
+	 */
+	private boolean findPath(OccupancyGrid occupancy, int startX, int startY, int endX, int endY,
+			SearchContext context) {
+		gridCell(occupancy, startX, startY);
+		gridCell(occupancy, endX, endY);
+		PathFinder.Engine engine = this.engine;
+		if (engine == PathFinder.Engine.HIERARCHICAL)
+			((HierarchicalAStar) context.getPathFinder(engine)).setGraph(hierarchy(occupancy));
+		else if (engine == PathFinder.Engine.QUADTREE)
+			((QuadTreeAStar) context.getPathFinder(engine)).setTree(quadTree(occupancy));
+		return context.search(engine, occupancy, startX, startY, endX, endY);
+	}
+
+	/**
+	 * 矩阵图 occupancy 的抽象图; 只有需要构建时才加锁, 矩阵图已被更新时构建的抽象图不保存
+	 */
+	private ClusterGraph hierarchy(OccupancyGrid occupancy) {
+		ClusterGraph graph = this.hierarchy;
+		if (graph != null && graph.getGrid() == occupancy)
+			return graph;
+		synchronized (this) {
+			graph = this.hierarchy;
+			if (graph == null || graph.getGrid() != occupancy) {
+				graph = ClusterGraph.build(occupancy, this.clusterSize);
+				if (occupancy == this.getOccupancy())
+					this.hierarchy = graph;
+			}
+			return graph;
+		}
+	}
+
+	/**
+	 * 矩阵图 occupancy 的四叉树, 加锁规则与 hierarchy 相同
+	 */
+	private QuadTree quadTree(OccupancyGrid occupancy) {
+		QuadTree tree = this.quadTree;
+		if (tree != null && tree.getGrid() == occupancy)
+			return tree;
+		synchronized (this) {
+			tree = this.quadTree;
+			if (tree == null || tree.getGrid() != occupancy) {
+				tree = QuadTree.build(occupancy);
+				if (occupancy == this.getOccupancy())
+					this.quadTree = tree;
+			}
+			return tree;
+		}
+	}
+
+	/**
+	 * 当前的矩阵图, 没有矩阵图时抛出 Error
+	 */
+	private State state() {
+		State state = this.state;
+		if (state == null) {
+			throw new Error("没有矩阵图");
+		}
+		return state;
+	}
+
+	/**
+	 * 网格坐标(x代表column,y代表row)对应的网格下标 y * width + x; 超出矩阵图时抛出 Error, 否则会折行到相邻行
+	 * 或读到 OccupancyGrid 行尾的填充位
+	 */
+	private static int gridCell(OccupancyGrid occupancy, double x, double y) {
+		if (!(x >= 0 && x < occupancy.getWidth() && y >= 0 && y < occupancy.getHeight())) {
+			throw new Error("超出矩阵图: " + x + "," + y);
+		}
+		return (int) y * occupancy.getWidth() + (int) x;
+	}
+
+	/**
+	 * 预先计算出入口之间的全对路径表, 之后出入口到出入口的 shortestPath 直接查表; 构建耗时与内存见 RoutingTable
+	 */
+	public synchronized RoutingTable buildRoutingTable() {
+		State state = this.state();
+		RoutingTable table = state.routingTable;
+		if (table == null) {
+			table = RoutingTable.build(state.occupancy, state.entrances);
+			this.state = new State(state.occupancy, state.grid, state.entrances, table);
+		}
+		return table;
+	}
+
+	/**
+	 * 构建分层寻路的抽象图(已构建时直接返回), HIERARCHICAL 算法在首次搜索时自动调用
+	 */
+	public synchronized ClusterGraph buildHierarchy() {
+		return hierarchy(this.state().occupancy);
+	}
+
+	/**
+	 * 构建障碍网格的四叉树(已构建时直接返回), QUADTREE 算法在首次搜索时自动调用; 障碍网格变化后重新构建
+	 */
+	public synchronized QuadTree buildQuadTree() {
+		return quadTree(this.state().occupancy);
+	}
+
+	/**
+	 * 构建障碍物多边形(生成矩阵图时的障碍物与临时障碍物)的可视图(已构建时直接返回), 可视图路由在首次搜索时自动调用.
+	 * 构建耗时约为结点数的平方次可视判断(见 VisibilityGraph), 构建时不持有锁, 其他查询与障碍物更新不被阻塞;
+	 * 构建期间障碍物发生变化时返回的可视图不保存
+	 */
+	public VisibilityGraph buildVisibilityGraph() {
+		GridGeometry grid;
+		List<Polygon> polygons = Lists.newArrayList();
+		long obstacleVersion;
+		synchronized (this) {
+			State state = this.state();
+			VisibilityGraph graph = this.visibilityGraph;
+			if (graph != null)
+				return graph;
+			ObstacleIndex index = this.obstacleIndex();
+			for (int i = 0; i < index.size(); i++) {
+				if (index.getGeometry(i) instanceof Polygon)
+					polygons.add((Polygon) index.getGeometry(i));
+			}
+			polygons.addAll(this.dynamicObstacles);
+			grid = state.grid;
+			obstacleVersion = this.obstacleVersion;
+		}
+		VisibilityGraph graph = VisibilityGraph.build(grid, polygons);
+		synchronized (this) {
+			if (obstacleVersion != this.obstacleVersion)
+				return graph;
+			if (this.visibilityGraph == null)
+				this.visibilityGraph = graph;
+			return this.visibilityGraph;
+		}
+	}
+
+	/**
+	 * 增加临时障碍物, 只重新判断障碍物外包矩形内的网格(网格中心在障碍物内即为障碍), 不重新生成矩阵图.
+	 * 障碍网格、分层寻路的抽象图均以副本替换, 正在进行的搜索不受影响; 全对路径表被清空, 路径缓存随版本失效.
+	 * 已构建的可视图在原图的基础上增加该障碍物(VisibilityGraph.withObstacle), 不重新构建
+	 *
+	 * @return 障碍状态发生变化的网格下标 y * width + x, 可直接传给 DStarLite.update 修复已有路径
+	 */
+	public synchronized int[] addObstacle(Polygon polygon) {
+		this.state();
+		this.dynamicObstacles.add(polygon);
+		VisibilityGraph graph = this.visibilityGraph;
+		this.visibilityGraph = graph != null ? graph.withObstacle(polygon) : null;
+		this.obstacleVersion++;
+		return this.updateCells(polygon);
+	}
+
+	/**
+	 * 移除由 addObstacle 增加的临时障碍物, 仍在其他障碍物内的网格保持为障碍; 可视图在下一次可视图路由时重新构建
+	 *
+	 * @return 障碍状态发生变化的网格下标 y * width + x; polygon 不是临时障碍物时为空
+	 */
+	public synchronized int[] removeObstacle(Polygon polygon) {
+		this.state();
+		if (!this.dynamicObstacles.remove(polygon)) {
+			return new int[0];
+		}
+		this.visibilityGraph = null;
+		this.obstacleVersion++;
+		return this.updateCells(polygon);
+	}
+
+	/**
+	 * 重新判断 polygon 外包矩形内的网格, 有变化时在障碍网格的副本上修改后替换
+	 */
+	private int[] updateCells(Polygon polygon) {
+		double[] box = TurfMeasurement.bbox(polygon);
+		State state = this.state;
+		GridGeometry grid = state.grid;
+		OccupancyGrid current = state.occupancy;
+		int width = current.getWidth();
+		int c0 = grid.ceilColumn(box[0]), c1 = grid.floorColumn(box[2]);
+		int r0 = grid.ceilRow(box[3]), r1 = grid.floorRow(box[1]);
+
+		OccupancyGrid next = null;
+		int[] changed = new int[0];
+		int count = 0;
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				boolean blocked = this.isObstacle(Point.fromLngLat(grid.getX(c), grid.getY(r)));
+				if (blocked == current.isBlocked(c, r))
+					continue;
+				if (next == null)
+					next = offHeap ? current.copyDirect() : current.copy();
+				next.set(c, r, blocked);
+				if (count == changed.length)
+					changed = Arrays.copyOf(changed, Math.max(16, count << 1));
+				changed[count++] = r * width + c;
+				minX = Math.min(minX, c);
+				minY = Math.min(minY, r);
+				maxX = Math.max(maxX, c);
+				maxY = Math.max(maxY, r);
+			}
+		}
+		if (next == null) {
+			return new int[0];
+		}
+
+		ClusterGraph hierarchy = this.hierarchy;
+		this.hierarchy = hierarchy != null && hierarchy.getGrid() == current
+				? hierarchy.rebuild(next, minX, minY, maxX, maxY)
+				: null;
+		Entrances entrances = state.entrances;
+		if (snapToFree) {
+			// 出入口网格可能变为障碍, 重新就近取可通过网格
+			List<Point> points = Lists.newArrayListWithCapacity(entrances.size());
+			for (int i = 0; i < entrances.size(); i++)
+				points.add(Point.fromLngLat(entrances.getX(i), entrances.getY(i)));
+			entrances = new Entrances(points);
+			entrances.snap(grid, next, true);
+		}
+		// 障碍网格与出入口一起替换, 全对路径表清空
+		this.state = new State(next, grid, entrances, null);
+		this.matrix = null;
+		this.version++;
+		return Arrays.copyOf(changed, count);
+	}
+
+	/**
+	 * 点是否在生成矩阵图时的障碍物或临时障碍物内
+	 */
+	private boolean isObstacle(Point pt) {
+		if (this.obstacleIndex().isInside(pt)) {
+			return true;
+		}
+		for (Polygon polygon : this.dynamicObstacles) {
+			if (TurfBooleans.booleanPointInPolygon(pt, polygon)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 生成矩阵图时的障碍物索引, 从快照读取时在第一次使用时读取
+	 */
+	synchronized ObstacleIndex obstacleIndex() {
+		if (this.obstacles == null && this.obstacleLoader != null) {
+			this.obstacles = this.obstacleLoader.get();
+			this.obstacleLoader = null;
+		}
+		return this.obstacles;
+	}
+
+	/**
+	 * 写出二进制快照(网格几何信息、障碍网格、出入口、出入口路径表与障碍物), 格式见 MatrixMapSnapshot
+	 */
+	public synchronized void writeSnapshot(Path file) {
+		MatrixMapSnapshot.write(this, file);
+	}
+
+	/**
+	 * 读取二进制快照, 文件以内存映射方式读取, 障碍网格直接使用映射的内存, 读取后即可搜索
+	 */
+	public static MatrixMap readSnapshot(Path file) {
+		return MatrixMapSnapshot.read(file);
+	}
+
+	/**
+	 * 由快照恢复
+	 */
+	synchronized void restore(OccupancyGrid occupancy, GridGeometry grid, Entrances entrances, RoutingTable table,
+			Supplier<ObstacleIndex> obstacleLoader, List<Polygon> dynamicObstacles) {
+		this.state = new State(occupancy, grid, entrances, table);
+		this.obstacles = null;
+		this.obstacleLoader = obstacleLoader;
+		this.dynamicObstacles = Lists.newArrayList(dynamicObstacles);
+		this.matrix = null;
+		this.pointMatrix = null;
+		this.hierarchy = null;
+		this.quadTree = null;
+		this.visibilityGraph = null;
+		this.obstacleVersion++;
+		this.version++;
 	}
 
 	/**
@@ -194,84 +655,206 @@ public class MatrixMap {
 	 * 
 	 * @param collection
 	 */
-	private void initEntMap(FeatureCollection collection) {
+	private static List<Point> points(FeatureCollection collection) {
+		List<Point> points = Lists.newArrayList();
 		collection.features().forEach(feature -> {
 			if (feature.geometry().type().equals("Point")) {
-				Point point = (Point) feature.geometry();
-				this.entMap.put(point.longitude() + "|" + point.latitude(), null);
+				points.add((Point) feature.geometry());
 			}
 		});
+		return points;
 	}
 
 	/**
-	 * 跟新出入口对应网格
-	 * 
-	 * @param point
-	 * @param position
-	 */
-	private void saveEntMap(Point current, int[] position) {
-		this.entMap.keySet().forEach((key) -> {
-			String[] xy = key.split("\\|");
-			double newDistance = TurfMeasurement.distance(current,
-					Point.fromLngLat(Double.parseDouble(xy[0]), Double.parseDouble(xy[1])));
-			Double distance = this.distanceMap.get(key);
-			if (distance == null || newDistance < distance) {
-				this.distanceMap.put(key, newDistance);
-				this.entMap.put(key, position);
-			}
-		});
-
+	 * Getter & Setter; generateMatrix 之后矩阵图只读, 调用方不应修改返回的数组; addObstacle/removeObstacle 替换为新的障碍网格
+	 */
+	public OccupancyGrid getOccupancy() {
+		State state = this.state;
+		return state == null ? null : state.occupancy;
 	}
 
 	/**
-	 * Getter & Setter
+	 * 兼容旧接口, 首次调用时由障碍网格生成
 	 */
 	public int[][] getMatrix() {
+		int[][] matrix = this.matrix;
+		OccupancyGrid occupancy = this.getOccupancy();
+		if (matrix == null && occupancy != null) {
+			matrix = occupancy.toMatrix();
+			this.matrix = matrix;
+		}
 		return matrix;
 	}
 
-	public void setMatrix(int[][] matrix) {
-		this.matrix = matrix;
+	public GridGeometry getGrid() {
+		State state = this.state;
+		return state == null ? null : state.grid;
+	}
+
+	public Entrances getEntrances() {
+		State state = this.state;
+		return state == null ? null : state.entrances;
+	}
+
+	public ClusterGraph getHierarchy() {
+		return hierarchy;
+	}
+
+	public int getClusterSize() {
+		return clusterSize;
+	}
+
+	/**
+	 * 分层寻路的簇大小, 修改后下一次搜索时重新构建抽象图
+	 */
+	public synchronized void setClusterSize(int clusterSize) {
+		this.clusterSize = clusterSize;
+		this.hierarchy = null;
+		this.version++;
+	}
+
+	public QuadTree getQuadTree() {
+		return quadTree;
+	}
+
+	public VisibilityGraph getVisibilityGraph() {
+		return visibilityGraph;
+	}
+
+	public double getCellSize() {
+		return cellSize;
 	}
 
+	/**
+	 * 每格边长(米), 小于等于 0 时按平面图宽度横向约 100 格; 下一次 generateMatrix 时生效
+	 */
+	public void setCellSize(double cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * 生成矩阵图之后增加的临时障碍物(只读)
+	 */
+	public List<Polygon> getDynamicObstacles() {
+		return Collections.unmodifiableList(dynamicObstacles);
+	}
+
+	public RoutingTable getRoutingTable() {
+		State state = this.state;
+		return state == null ? null : state.routingTable;
+	}
+
+	/**
+	 * 兼容旧接口, 首次调用时由网格几何信息生成
+	 */
 	public String[][] getPointMatrix() {
+		String[][] pointMatrix = this.pointMatrix;
+		GridGeometry grid = this.getGrid();
+		if (pointMatrix == null && grid != null) {
+			pointMatrix = grid.toPointMatrix();
+			this.pointMatrix = pointMatrix;
+		}
 		return pointMatrix;
 	}
 
-	public void setPointMatrix(String[][] pointMatrix) {
-		this.pointMatrix = pointMatrix;
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
 	}
 
-	public Node getStart() {
-		return start;
+	public Rasterizer.Mode getRasterMode() {
+		return rasterMode;
 	}
 
-	public void setStart(Node start) {
-		this.start = start;
+	public void setRasterMode(Rasterizer.Mode rasterMode) {
+		this.rasterMode = rasterMode;
 	}
 
-	public Node getEnd() {
-		return end;
+	public boolean isSnapToFree() {
+		return snapToFree;
 	}
 
-	public void setEnd(Node end) {
-		this.end = end;
+	public void setSnapToFree(boolean snapToFree) {
+		this.snapToFree = snapToFree;
 	}
 
-	public double getLength() {
-		return length;
+	public boolean isOffHeap() {
+		return offHeap;
 	}
 
-	public void setLength(double length) {
-		this.length = length;
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
 	}
 
-	public List<int[]> getPaths() {
-		return paths;
+	public PathFinder.Engine getEngine() {
+		return engine;
 	}
 
-	public void setPaths(List<int[]> paths) {
-		this.paths = paths;
+	public synchronized void setEngine(PathFinder.Engine engine) {
+		this.engine = engine;
+		this.version++;
+	}
+
+	public boolean isVisibilityRouting() {
+		return visibilityRouting;
+	}
+
+	/**
+	 * shortestPath 改为在障碍物多边形的可视图上搜索; findPath 等网格搜索不受影响. 可视图在首次查询时构建(不持有锁),
+	 * 耗时约为结点数的平方次可视判断, 数千个结点时为数百万次; 增加临时障碍物时增量更新, 移除临时障碍物后重新构建
+	 */
+	public void setVisibilityRouting(boolean visibilityRouting) {
+		this.visibilityRouting = visibilityRouting;
+	}
+
+	public RouteCache getRouteCache() {
+		return routeCache;
+	}
+
+	/**
+	 * 设置路径缓存, 为 null 时不缓存. 缓存不能同时被多个矩阵图使用(抛出 Error), 替换后原缓存被清空
+	 */
+	public synchronized void setRouteCache(RouteCache routeCache) {
+		RouteCache previous = this.routeCache;
+		if (routeCache != null)
+			routeCache.attach(this);
+		if (previous != null && previous != routeCache)
+			previous.detach(this);
+		this.routeCache = routeCache;
+	}
+
+	/**
+	 * 矩阵图版本
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * 同一次生成(或更新)的障碍网格、网格几何信息、出入口与出入口路径表, 不可修改
+	 */
+	private static final class State {
+
+		private final OccupancyGrid occupancy;
+		private final GridGeometry grid;
+		/**
+		 * 出入口坐标及其对应的网格(按 occupancy 的宽度换算)
+		 */
+		private final Entrances entrances;
+		/**
+		 * 出入口之间的全对路径表, 调用 buildRoutingTable 后才有
+		 */
+		private final RoutingTable routingTable;
+
+		State(OccupancyGrid occupancy, GridGeometry grid, Entrances entrances, RoutingTable routingTable) {
+			this.occupancy = occupancy;
+			this.grid = grid;
+			this.entrances = entrances;
+			this.routingTable = routingTable;
+		}
 	}
 
 }
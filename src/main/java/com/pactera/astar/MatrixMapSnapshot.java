@@ -0,0 +1,393 @@
+package com.pactera.astar;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+
+/**
+ * ClassName: MatrixMapSnapshot
+ *
+ * @Description: MatrixMap 的二进制快照; 读取时整个文件以 MappedByteBuffer 映射, 障碍网格直接包装映射的内存(OccupancyGrid.wrap),
+ *               不复制也不生成 int[][], 多个 JVM 可以共享同一份页缓存. 全部小端, 障碍网格按 8 字节对齐. 文件结构:
+ *
+ *               <pre>
+ * int    MAGIC, VERSION
+ * int    设置(1 snapToFree, 2 offHeap); double cellSize
+ * int    列数, 行数
+ * double west, south, east, north, cellWidth, cellHeight
+ * double 每列中心经度[列数], 每行中心纬度[行数]
+ * int    出入口数 n; double 经度[n], 纬度[n]; int 网格[n]
+ * int    是否有出入口路径表; 有时: long 构建耗时(纳秒), double 距离[n * n], 每对 i < j: int 网格数(不可达为 -1), int 网格[]
+ * int    字节数, 生成矩阵图时的障碍物; int 临时障碍物数, 临时障碍物
+ *        障碍物: int 个数, 每个 int 类型(0 点, 1 面), 点为 double 经度, 纬度, 面为 int 环数, 每环 int 点数与点坐标
+ * long   障碍网格(OccupancyGrid.words 个, 8 字节对齐)
+ *               </pre>
+ *
+ *               障碍物坐标按 double 原样保存(GeoJSON 会舍入), 只在读取后第一次 addObstacle/removeObstacle 时读取;
+ *               分层寻路的抽象图不保存, 首次使用时构建.
+ *               影响障碍网格与出入口的设置(snapToFree、offHeap、cellSize)随快照保存; 搜索设置(engine、clusterSize、
+ *               visibilityRouting、routeCache、parallelism、rasterMode)不保存, 读取后按需重新设置
+ */
+class MatrixMapSnapshot {
+
+	/**
+	 * "MXSP" 与格式版本, 格式变化时递增版本
+	 */
+	static final int MAGIC = 0x4D585350;
+	static final int VERSION = 2;
+	/**
+	 * 设置的位
+	 */
+	private static final int SNAP_TO_FREE = 1;
+	private static final int OFF_HEAP = 2;
+
+	private MatrixMapSnapshot() {
+	}
+
+	/**
+	 * 写出快照: 先写入同目录下的临时文件再替换, 正在映射旧文件的进程不受影响
+	 */
+	static void write(MatrixMap map, Path file) {
+		OccupancyGrid occupancy = map.getOccupancy();
+		if (occupancy == null) {
+			throw new Error("没有矩阵图");
+		}
+		GridGeometry grid = map.getGrid();
+		Entrances entrances = map.getEntrances();
+		RoutingTable table = map.getRoutingTable();
+		int width = occupancy.getWidth();
+		int height = occupancy.getHeight();
+
+		Writer out = new Writer();
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+		out.putInt((map.isSnapToFree() ? SNAP_TO_FREE : 0) | (map.isOffHeap() ? OFF_HEAP : 0));
+		out.putDouble(map.getCellSize());
+		out.putInt(width);
+		out.putInt(height);
+		out.putDouble(grid.getWest());
+		out.putDouble(grid.getSouth());
+		out.putDouble(grid.getEast());
+		out.putDouble(grid.getNorth());
+		out.putDouble(grid.getCellWidth());
+		out.putDouble(grid.getCellHeight());
+		for (int c = 0; c < width; c++)
+			out.putDouble(grid.getX(c));
+		for (int r = 0; r < height; r++)
+			out.putDouble(grid.getY(r));
+
+		int n = entrances.size();
+		out.putInt(n);
+		for (int i = 0; i < n; i++)
+			out.putDouble(entrances.getX(i));
+		for (int i = 0; i < n; i++)
+			out.putDouble(entrances.getY(i));
+		for (int i = 0; i < n; i++)
+			out.putInt(entrances.getCell(i));
+
+		out.putInt(table == null ? 0 : 1);
+		if (table != null) {
+			out.putLong(table.getBuildNanos());
+			for (int i = 0; i < n; i++)
+				for (int j = 0; j < n; j++)
+					out.putDouble(table.getDistance(i, j));
+			for (int i = 0; i < n; i++) {
+				for (int j = i + 1; j < n; j++) {
+					if (!table.isReachable(i, j)) {
+						out.putInt(-1);
+						continue;
+					}
+					int size = table.getPathSize(i, j);
+					out.putInt(size);
+					for (int k = 0; k < size; k++)
+						out.putInt(table.getPathCell(i, j, k));
+				}
+			}
+		}
+
+		ObstacleIndex obstacles = map.obstacleIndex();
+		int sizeAt = out.position();
+		out.putInt(0);
+		out.putInt(obstacles.size());
+		for (int i = 0; i < obstacles.size(); i++)
+			putGeometry(out, obstacles.getGeometry(i));
+		out.putInt(sizeAt, out.position() - sizeAt - 4);
+		List<Polygon> dynamic = map.getDynamicObstacles();
+		out.putInt(dynamic.size());
+		for (Polygon polygon : dynamic)
+			putGeometry(out, polygon);
+
+		out.align();
+		for (int w = 0, words = (int) OccupancyGrid.words(width, height); w < words; w++)
+			out.putLong(occupancy.getWord(w));
+
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = out.buffer();
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+				channel.force(false);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			temp = null;
+		} catch (IOException e) {
+			throw new Error("write snapshot failed", e);
+		} finally {
+			// 写入或替换失败时不在目标目录中留下临时文件
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException e) {
+					// 保留原来的异常
+				}
+			}
+		}
+	}
+
+	/**
+	 * 读取快照: 文件以只读方式映射, 障碍网格直接使用映射的内存
+	 */
+	static MatrixMap read(Path file) {
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			throw new Error("read snapshot failed", e);
+		}
+		ByteBuffer in = mapped.order(ByteOrder.LITTLE_ENDIAN);
+		if (in.remaining() < 8 || in.getInt() != MAGIC)
+			throw new Error("not a matrix map snapshot");
+		int version = in.getInt();
+		if (version != VERSION)
+			throw new Error("unsupported snapshot version " + version);
+		try {
+			return read(in);
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new Error("not a matrix map snapshot", e);
+		}
+	}
+
+	/**
+	 * 读取版本号之后的内容; 个数与长度都先与剩余字节数比较, 截断或损坏的文件不会分配过大的数组
+	 */
+	private static MatrixMap read(ByteBuffer in) {
+		int flags = in.getInt();
+		double cellSize = in.getDouble();
+		int width = getCount(in, 8);
+		int height = getCount(in, 8);
+		long gridSize = (long) width * height;
+		double west = in.getDouble(), south = in.getDouble(), east = in.getDouble(), north = in.getDouble();
+		double cellWidth = in.getDouble(), cellHeight = in.getDouble();
+		double[] xs = new double[width];
+		double[] ys = new double[height];
+		for (int c = 0; c < width; c++)
+			xs[c] = in.getDouble();
+		for (int r = 0; r < height; r++)
+			ys[r] = in.getDouble();
+		GridGeometry grid = new GridGeometry(west, south, east, north, cellWidth, cellHeight, xs, ys);
+
+		int n = getCount(in, 20);
+		double[] lngs = new double[n];
+		double[] lats = new double[n];
+		for (int i = 0; i < n; i++)
+			lngs[i] = in.getDouble();
+		for (int i = 0; i < n; i++)
+			lats[i] = in.getDouble();
+		List<Point> points = Lists.newArrayListWithCapacity(n);
+		for (int i = 0; i < n; i++)
+			points.add(Point.fromLngLat(lngs[i], lats[i]));
+		Entrances entrances = new Entrances(points);
+		int[] cells = new int[n];
+		for (int i = 0; i < n; i++) {
+			cells[i] = getCell(in, gridSize);
+			entrances.setCell(i, cells[i]);
+		}
+
+		RoutingTable table = null;
+		if (in.getInt() != 0) {
+			checkRemaining(in, 8 + 8L * n * n);
+			long buildTime = in.getLong();
+			double[] distances = new double[n * n];
+			for (int i = 0; i < distances.length; i++)
+				distances[i] = in.getDouble();
+			int[][] paths = new int[n * n][];
+			for (int i = 0; i < n; i++) {
+				for (int j = i + 1; j < n; j++) {
+					int size = in.getInt();
+					if (size < 0)
+						continue;
+					checkRemaining(in, 4L * size);
+					int[] path = new int[size];
+					for (int k = 0; k < size; k++)
+						path[k] = getCell(in, gridSize);
+					paths[i * n + j] = path;
+				}
+			}
+			table = new RoutingTable(n, distances, paths, cells, width, buildTime);
+		}
+
+		int obstacleBytes = getCount(in, 1);
+		ByteBuffer obstacles = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+		in.position(in.position() + obstacleBytes);
+		List<Polygon> dynamic = Lists.newArrayList();
+		for (int i = 0, count = getCount(in, 4); i < count; i++) {
+			Geometry geometry = getGeometry(in);
+			if (!(geometry instanceof Polygon))
+				throw new Error("not a matrix map snapshot");
+			dynamic.add((Polygon) geometry);
+		}
+
+		in.position((in.position() + 7) & ~7);
+		checkRemaining(in, OccupancyGrid.words(width, height) << 3);
+		OccupancyGrid occupancy = OccupancyGrid.wrap(in, width, height);
+
+		MatrixMap map = new MatrixMap();
+		map.setSnapToFree((flags & SNAP_TO_FREE) != 0);
+		map.setOffHeap((flags & OFF_HEAP) != 0);
+		map.setCellSize(cellSize);
+		map.restore(occupancy, grid, entrances, table, () -> {
+			List<Geometry> geometries = Lists.newArrayList();
+			try {
+				for (int i = 0, count = getCount(obstacles, 4); i < count; i++)
+					geometries.add(getGeometry(obstacles));
+			} catch (BufferUnderflowException e) {
+				throw new Error("not a matrix map snapshot", e);
+			}
+			return new ObstacleIndex(geometries);
+		}, dynamic);
+		return map;
+	}
+
+	private static void putGeometry(Writer out, Geometry geometry) {
+		if (geometry instanceof Point) {
+			out.putInt(0);
+			out.putDouble(((Point) geometry).longitude());
+			out.putDouble(((Point) geometry).latitude());
+			return;
+		}
+		List<List<Point>> rings = ((Polygon) geometry).coordinates();
+		out.putInt(1);
+		out.putInt(rings.size());
+		for (List<Point> ring : rings) {
+			out.putInt(ring.size());
+			for (Point point : ring) {
+				out.putDouble(point.longitude());
+				out.putDouble(point.latitude());
+			}
+		}
+	}
+
+	private static Geometry getGeometry(ByteBuffer in) {
+		int type = in.getInt();
+		if (type == 0)
+			return Point.fromLngLat(in.getDouble(), in.getDouble());
+		if (type != 1)
+			throw new Error("not a matrix map snapshot");
+		int count = getCount(in, 4);
+		List<List<Point>> rings = Lists.newArrayListWithCapacity(count);
+		for (int r = 0; r < count; r++) {
+			int size = getCount(in, 16);
+			List<Point> ring = Lists.newArrayListWithCapacity(size);
+			for (int i = 0; i < size; i++)
+				ring.add(Point.fromLngLat(in.getDouble(), in.getDouble()));
+			rings.add(ring);
+		}
+		return Polygon.fromLngLats(rings);
+	}
+
+	/**
+	 * 读取个数, 剩余字节数不足 个数 x bytes 时不是完整的快照
+	 */
+	private static int getCount(ByteBuffer in, int bytes) {
+		int count = in.getInt();
+		checkRemaining(in, count < 0 ? -1 : (long) count * bytes);
+		return count;
+	}
+
+	/**
+	 * 读取网格下标, 不在 [0, size) 内时不是完整的快照
+	 */
+	private static int getCell(ByteBuffer in, long size) {
+		int cell = in.getInt();
+		if (cell < 0 || cell >= size)
+			throw new Error("not a matrix map snapshot");
+		return cell;
+	}
+
+	private static void checkRemaining(ByteBuffer in, long bytes) {
+		if (bytes < 0 || bytes > in.remaining())
+			throw new Error("not a matrix map snapshot");
+	}
+
+	/**
+	 * 小端写缓冲区, 容量不足时加倍
+	 */
+	private static class Writer {
+
+		private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+		private void ensure(int bytes) {
+			if (buffer.remaining() < bytes) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() << 1, buffer.position() + bytes))
+						.order(ByteOrder.LITTLE_ENDIAN);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+
+		void putInt(int value) {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) {
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+		void putDouble(double value) {
+			ensure(8);
+			buffer.putDouble(value);
+		}
+
+		void putInt(int index, int value) {
+			buffer.putInt(index, value);
+		}
+
+		int position() {
+			return buffer.position();
+		}
+
+		/**
+		 * 补齐到 8 字节
+		 */
+		void align() {
+			while ((buffer.position() & 7) != 0) {
+				ensure(1);
+				buffer.put((byte) 0);
+			}
+		}
+
+		ByteBuffer buffer() {
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+}
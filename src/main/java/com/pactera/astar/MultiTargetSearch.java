@@ -0,0 +1,247 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: MultiTargetSearch
+ *
+ * @Description: 一对多最短路径; 从起点做一次 Dijkstra 泛洪, 所有可达的终点都出堆(距离确定)后立即停止, 代替对每个终点单独搜索.
+ *               移动规则与 GridAStar 相同: 起点与终点即使落在障碍上也视为可通过, 但障碍上的终点不会被其他路径穿过.
+ *               缓冲区按网格大小复用(批次标记, 无需清空), 同一时刻只能被一个线程使用
+ */
+public class MultiTargetSearch {
+
+	/**
+	 * 结点已出堆, 距离确定
+	 */
+	private static final int CLOSED = -2;
+	/**
+	 * 平移代价
+	 */
+	private double straightEdge = 1;
+	/**
+	 * 斜移代价
+	 */
+	private double bevelEdge = Math.sqrt(2);
+
+	/**
+	 * 起点到当前结点的代价
+	 */
+	private double[] g = new double[0];
+	/**
+	 * 父结点下标
+	 */
+	private int[] parent = new int[0];
+	/**
+	 * 结点在堆中的位置, -1 表示不在堆中, CLOSED 表示已出堆
+	 */
+	private int[] heapIndex = new int[0];
+	/**
+	 * 结点最后一次被访问时的搜索批次
+	 */
+	private int[] visited = new int[0];
+	/**
+	 * 网格是终点时记录当前批次
+	 */
+	private int[] targeted = new int[0];
+	private int generation;
+	/**
+	 * 二叉堆(按 G 升序), 元素为网格下标
+	 */
+	private int[] heap = new int[0];
+	private int heapSize;
+
+	private int start;
+	/**
+	 * 最近一次搜索扩展(出堆)的结点数
+	 */
+	private int expanded;
+
+	public MultiTargetSearch() {
+	}
+
+	public MultiTargetSearch(double straightEdge) {
+		this.straightEdge = straightEdge;
+		this.bevelEdge = Math.sqrt(Math.pow(this.straightEdge, 2) + Math.pow(this.straightEdge, 2));
+	}
+
+	/**
+	 * 从 start 出发搜索到 targets 的最短路径, 网格下标均为 y * width + x
+	 *
+	 * @return 可达的终点数(重复的终点只计一次)
+	 */
+	public int search(OccupancyGrid grid, int start, int[] targets) {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		ensureCapacity(width * height);
+		this.start = start;
+		this.heapSize = 0;
+		this.expanded = 0;
+
+		int remaining = 0;
+		for (int target : targets) {
+			if (targeted[target] != generation) {
+				targeted[target] = generation;
+				remaining++;
+			}
+		}
+		int reached = 0;
+
+		visit(start);
+		g[start] = 0;
+		parent[start] = -1;
+		siftUp(heapSize++, start);
+		while (heapSize > 0 && remaining > 0) {
+			int current = heap[0];
+			int last = heap[--heapSize];
+			heapIndex[current] = CLOSED;
+			if (heapSize > 0)
+				siftDown(0, last);
+			expanded++;
+			if (targeted[current] == generation) {
+				remaining--;
+				reached++;
+			}
+			// 障碍上的终点只能作为终点, 不再向外扩展
+			if (current != start && grid.isBlocked(current))
+				continue;
+			int x = current % width;
+			int y = current / width;
+			for (int i = 0; i < 8; i++) {
+				int nx = x + GridAStar.DX[i];
+				int ny = y + GridAStar.DY[i];
+				if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+					continue;
+				int next = ny * width + nx;
+				if (grid.isBlocked(nx, ny) && targeted[next] != generation && next != start)
+					continue;
+				double G = g[current] + (i < 4 ? straightEdge : bevelEdge);
+				if (visited[next] != generation) {
+					visit(next);
+					g[next] = G;
+					parent[next] = current;
+					siftUp(heapSize++, next);
+				} else if (heapIndex[next] >= 0 && G < g[next]) {
+					g[next] = G;
+					parent[next] = current;
+					siftUp(heapIndex[next], next);
+				}
+			}
+		}
+		return reached;
+	}
+
+	/**
+	 * 最近一次搜索中 cell 的距离是否已确定(终点是否可达)
+	 */
+	public boolean isSettled(int cell) {
+		return visited[cell] == generation && heapIndex[cell] == CLOSED;
+	}
+
+	/**
+	 * 起点到 cell 的距离, 未确定时为正无穷
+	 */
+	public double getDistance(int cell) {
+		return isSettled(cell) ? g[cell] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * 按父结点回溯起点到 cell 的路径网格下标, 未确定时为空数组
+	 */
+	public int[] trace(int cell) {
+		if (!isSettled(cell))
+			return new int[0];
+		int count = 0;
+		for (int node = cell; node != -1; node = parent[node])
+			count++;
+		int[] path = new int[count];
+		for (int node = cell; node != -1; node = parent[node])
+			path[--count] = node;
+		return path;
+	}
+
+	private void visit(int node) {
+		visited[node] = generation;
+		heapIndex[node] = -1;
+	}
+
+	/**
+	 * 保证缓冲区足够容纳网格, 并开始新的搜索批次
+	 */
+	private void ensureCapacity(int cells) {
+		if (g.length < cells) {
+			g = new double[cells];
+			parent = new int[cells];
+			heapIndex = new int[cells];
+			visited = new int[cells];
+			targeted = new int[cells];
+			heap = new int[cells];
+			generation = 0;
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			Arrays.fill(targeted, 0);
+			generation = 1;
+		}
+	}
+
+	private void siftUp(int k, int node) {
+		while (k > 0) {
+			int p = (k - 1) >>> 1;
+			int e = heap[p];
+			if (g[node] >= g[e])
+				break;
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private void siftDown(int k, int node) {
+		int half = heapSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && g[c] > g[heap[right]])
+				c = heap[child = right];
+			if (g[node] <= g[c])
+				break;
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	public int getExpanded() {
+		return expanded;
+	}
+
+	public double getStraightEdge() {
+		return straightEdge;
+	}
+
+	public void setStraightEdge(double straightEdge) {
+		this.straightEdge = straightEdge;
+	}
+
+	public double getBevelEdge() {
+		return bevelEdge;
+	}
+
+	public void setBevelEdge(double bevelEdge) {
+		this.bevelEdge = bevelEdge;
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.pactera.astar;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.pactera.astar.modal.Coord;
+import com.pactera.astar.modal.Node;
+
+/**
+ * ClassName: NodeHeap
+ *
+ * @Description: 带索引的二叉堆(升序), 以网格下标 y * width + x 记录结点在堆中的位置, 支持 O(1) 查找与 O(log n) 的 decrease-key
+ */
+public class NodeHeap extends AbstractQueue<Node> {
+
+	/**
+	 * 网格宽度(列数)
+	 */
+	private final int width;
+	/**
+	 * 堆数组
+	 */
+	private Node[] heap;
+	/**
+	 * 网格下标 -> 堆中位置, -1 表示不在堆中
+	 */
+	private final int[] position;
+	private int size;
+
+	public NodeHeap(int width, int height) {
+		this.width = width;
+		this.heap = new Node[16];
+		this.position = new int[width * height];
+		Arrays.fill(this.position, -1);
+	}
+
+	/**
+	 * 结点对应的网格下标
+	 */
+	public int indexOf(Coord coord) {
+		return coord.getY() * width + coord.getX();
+	}
+
+	/**
+	 * 查找网格下标对应的堆中结点
+	 */
+	public Node get(int index) {
+		int i = position[index];
+		return i < 0 ? null : heap[i];
+	}
+
+	/**
+	 * 结点的 G 值变小后调整其在堆中的位置
+	 */
+	public void decreaseKey(Node node) {
+		int i = position[indexOf(node.getCoord())];
+		if (i < 0)
+			throw new Error("node not in heap");
+		siftUp(i, node);
+	}
+
+	@Override
+	public boolean offer(Node node) {
+		if (node == null)
+			throw new NullPointerException();
+		int index = indexOf(node.getCoord());
+		if (position[index] >= 0) {
+			decreaseKey(node);
+			return true;
+		}
+		if (size >= heap.length)
+			heap = Arrays.copyOf(heap, heap.length << 1);
+		siftUp(size++, node);
+		return true;
+	}
+
+	@Override
+	public Node poll() {
+		if (size == 0)
+			return null;
+		Node result = heap[0];
+		position[indexOf(result.getCoord())] = -1;
+		Node last = heap[--size];
+		heap[size] = null;
+		if (size > 0)
+			siftDown(0, last);
+		return result;
+	}
+
+	@Override
+	public Node peek() {
+		return size == 0 ? null : heap[0];
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Node))
+			return false;
+		Node node = (Node) o;
+		return get(indexOf(node.getCoord())) == node;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			position[indexOf(heap[i].getCoord())] = -1;
+			heap[i] = null;
+		}
+		size = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Iterator<Node> iterator() {
+		return new Iterator<Node>() {
+			private int cursor = 0;
+
+			@Override
+			public boolean hasNext() {
+				return cursor < size;
+			}
+
+			@Override
+			public Node next() {
+				if (cursor >= size)
+					throw new NoSuchElementException();
+				return heap[cursor++];
+			}
+		};
+	}
+
+	private void siftUp(int k, Node node) {
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			Node e = heap[parent];
+			if (node.compareTo(e) >= 0)
+				break;
+			place(k, e);
+			k = parent;
+		}
+		place(k, node);
+	}
+
+	private void siftDown(int k, Node node) {
+		int half = size >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			Node c = heap[child];
+			int right = child + 1;
+			if (right < size && c.compareTo(heap[right]) > 0)
+				c = heap[child = right];
+			if (node.compareTo(c) <= 0)
+				break;
+			place(k, c);
+			k = child;
+		}
+		place(k, node);
+	}
+
+	private void place(int k, Node node) {
+		heap[k] = node;
+		position[indexOf(node.getCoord())] = k;
+	}
+
+}
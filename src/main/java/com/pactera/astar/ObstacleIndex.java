@@ -0,0 +1,197 @@
+package com.pactera.astar;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.pactera.turf.TurfBooleans;
+
+/**
+ * ClassName: ObstacleIndex
+ *
+ * @Description: 障碍物的均匀分桶索引; 按障碍物外包矩形分桶, 判断点是否在障碍物内时只检查该点所在桶中外包矩形包含该点的障碍物,
+ *               判断结果与 TurfMisc.isInside 一致
+ */
+public class ObstacleIndex {
+
+	/**
+	 * 障碍物(Polygon 或 Point)
+	 */
+	private final Geometry[] geometries;
+	/**
+	 * 障碍物外包矩形, 每4个值一组 [west, south, east, north]
+	 */
+	private final double[] boxes;
+	private double west = Double.POSITIVE_INFINITY;
+	private double south = Double.POSITIVE_INFINITY;
+	private double east = Double.NEGATIVE_INFINITY;
+	private double north = Double.NEGATIVE_INFINITY;
+	/**
+	 * 横向、纵向桶数
+	 */
+	private int columns;
+	private int rows;
+	private double bucketWidth;
+	private double bucketHeight;
+	/**
+	 * 每个桶包含的障碍物下标
+	 */
+	private int[][] buckets;
+
+	public ObstacleIndex(FeatureCollection collection) {
+		this(geometries(collection));
+	}
+
+	public ObstacleIndex(List<? extends Geometry> obstacles) {
+		List<Geometry> list = Lists.newArrayList();
+		for (Geometry geometry : obstacles) {
+			if (geometry instanceof Polygon || geometry instanceof Point) {
+				list.add(geometry);
+			}
+		}
+		this.geometries = list.toArray(new Geometry[0]);
+		this.boxes = new double[geometries.length * 4];
+		for (int i = 0; i < geometries.length; i++) {
+			bbox(geometries[i], i * 4);
+			west = Math.min(west, boxes[i * 4]);
+			south = Math.min(south, boxes[i * 4 + 1]);
+			east = Math.max(east, boxes[i * 4 + 2]);
+			north = Math.max(north, boxes[i * 4 + 3]);
+		}
+		this.buildBuckets();
+	}
+
+	private static List<Geometry> geometries(FeatureCollection collection) {
+		List<Geometry> list = Lists.newArrayList();
+		for (Feature feature : collection.features()) {
+			if (feature.geometry() != null) {
+				list.add(feature.geometry());
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * 计算外包矩形, Polygon 只需外环
+	 */
+	private void bbox(Geometry geometry, int offset) {
+		double w = Double.POSITIVE_INFINITY, s = Double.POSITIVE_INFINITY;
+		double e = Double.NEGATIVE_INFINITY, n = Double.NEGATIVE_INFINITY;
+		List<Point> points = geometry instanceof Polygon ? ((Polygon) geometry).coordinates().get(0)
+				: Lists.newArrayList((Point) geometry);
+		for (Point point : points) {
+			w = Math.min(w, point.longitude());
+			s = Math.min(s, point.latitude());
+			e = Math.max(e, point.longitude());
+			n = Math.max(n, point.latitude());
+		}
+		boxes[offset] = w;
+		boxes[offset + 1] = s;
+		boxes[offset + 2] = e;
+		boxes[offset + 3] = n;
+	}
+
+	/**
+	 * 桶数约为障碍物数量, 按范围的长宽比分配到横纵两个方向
+	 */
+	private void buildBuckets() {
+		if (geometries.length == 0) {
+			columns = rows = 0;
+			buckets = new int[0][];
+			return;
+		}
+		double width = east - west;
+		double height = north - south;
+		double side = Math.sqrt(geometries.length);
+		if (width > 0 && height > 0) {
+			double aspect = Math.sqrt(width / height);
+			columns = (int) Math.max(1, Math.min(geometries.length, Math.ceil(side * aspect)));
+			rows = (int) Math.max(1, Math.min(geometries.length, Math.ceil(side / aspect)));
+		} else {
+			columns = width > 0 ? (int) Math.ceil(side) : 1;
+			rows = height > 0 ? (int) Math.ceil(side) : 1;
+		}
+		bucketWidth = width > 0 ? width / columns : 1;
+		bucketHeight = height > 0 ? height / rows : 1;
+
+		int[] counts = new int[columns * rows];
+		for (int i = 0; i < geometries.length; i++) {
+			int c0 = column(boxes[i * 4]), c1 = column(boxes[i * 4 + 2]);
+			int r0 = row(boxes[i * 4 + 1]), r1 = row(boxes[i * 4 + 3]);
+			for (int r = r0; r <= r1; r++)
+				for (int c = c0; c <= c1; c++)
+					counts[r * columns + c]++;
+		}
+		buckets = new int[columns * rows][];
+		for (int b = 0; b < buckets.length; b++) {
+			buckets[b] = new int[counts[b]];
+			counts[b] = 0;
+		}
+		for (int i = 0; i < geometries.length; i++) {
+			int c0 = column(boxes[i * 4]), c1 = column(boxes[i * 4 + 2]);
+			int r0 = row(boxes[i * 4 + 1]), r1 = row(boxes[i * 4 + 3]);
+			for (int r = r0; r <= r1; r++)
+				for (int c = c0; c <= c1; c++) {
+					int b = r * columns + c;
+					buckets[b][counts[b]++] = i;
+				}
+		}
+	}
+
+	private int column(double x) {
+		int c = (int) ((x - west) / bucketWidth);
+		return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+	}
+
+	private int row(double y) {
+		int r = (int) ((y - south) / bucketHeight);
+		return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+	}
+
+	/**
+	 * 判断点是否在任一障碍物内
+	 */
+	public boolean isInside(Point pt) {
+		double x = pt.longitude();
+		double y = pt.latitude();
+		if (geometries.length == 0 || x < west || x > east || y < south || y > north)
+			return false;
+		for (int i : buckets[row(y) * columns + column(x)]) {
+			int offset = i * 4;
+			if (x < boxes[offset] || y < boxes[offset + 1] || x > boxes[offset + 2] || y > boxes[offset + 3])
+				continue;
+			Geometry geometry = geometries[i];
+			if (geometry instanceof Polygon) {
+				if (TurfBooleans.booleanPointInPolygon(pt, (Polygon) geometry)) {
+					return true;
+				}
+			} else if (x == ((Point) geometry).longitude() && y == ((Point) geometry).latitude()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	public int size() {
+		return geometries.length;
+	}
+
+	public Geometry getGeometry(int i) {
+		return geometries[i];
+	}
+
+	/**
+	 * 障碍物外包矩形 [west, south, east, north]
+	 */
+	public double[] getBBox(int i) {
+		return new double[] { boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3] };
+	}
+
+}
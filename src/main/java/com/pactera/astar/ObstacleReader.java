@@ -0,0 +1,281 @@
+package com.pactera.astar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+
+/**
+ * ClassName: ObstacleReader
+ *
+ * @Description: 流式读取 GeoJSON 障碍物; 以 JsonReader 逐个 token 读取, 不生成 FeatureCollection, 只保留 Polygon 与 Point 的几何
+ *               (与 ObstacleIndex 一致)以及指定的属性, 其余属性直接跳过, 适合 properties 很大的大型平面图. 外包矩形在读取时累计,
+ *               包含所有几何的坐标, 与 TurfMeasurement.bbox(FeatureCollection) 相同. 支持 FeatureCollection、Feature 与单独的几何,
+ *               同一时刻只能被一个线程使用
+ */
+public class ObstacleReader {
+
+	/**
+	 * 需要保留的属性名
+	 */
+	private final Set<String> keys;
+
+	/**
+	 * 读取到的障碍物(Polygon 或 Point)
+	 */
+	private List<Geometry> geometries = Lists.newArrayList();
+	/**
+	 * 每个障碍物保留的属性, 没有保留的属性时为 null
+	 */
+	private List<JsonObject> properties = Lists.newArrayList();
+	/**
+	 * 所有坐标的外包矩形 [west, south, east, north]
+	 */
+	private double[] bbox;
+	/**
+	 * 读取的要素数(包括跳过的几何类型)
+	 */
+	private int features;
+
+	/**
+	 * @param keys 需要保留的属性名, 为空时不保留属性
+	 */
+	public ObstacleReader(String... keys) {
+		this.keys = Sets.newHashSet(keys);
+	}
+
+	/**
+	 * 读取 UTF-8 编码的 GeoJSON, 不关闭输入流
+	 *
+	 * @return 障碍物数
+	 */
+	public int read(InputStream in) {
+		return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+
+	public int read(Reader in) {
+		this.geometries = Lists.newArrayList();
+		this.properties = Lists.newArrayList();
+		this.bbox = new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY };
+		this.features = 0;
+		try {
+			JsonReader reader = new JsonReader(in);
+			readObject(reader);
+			if (reader.peek() != JsonToken.END_DOCUMENT)
+				throw new Error("invalid obstacles");
+		} catch (IOException | IllegalStateException | NumberFormatException e) {
+			throw new Error("invalid obstacles", e);
+		}
+		return geometries.size();
+	}
+
+	/**
+	 * 读取顶层对象或 Feature; type 可能出现在任意位置, 几何与属性先读出再按 type 处理
+	 */
+	private void readObject(JsonReader reader) throws IOException {
+		String type = null;
+		Geometry geometry = null;
+		JsonObject kept = null;
+		Object coordinates = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if ("type".equals(name)) {
+				type = reader.nextString();
+			} else if ("features".equals(name)) {
+				reader.beginArray();
+				while (reader.hasNext())
+					readObject(reader);
+				reader.endArray();
+			} else if ("geometry".equals(name)) {
+				if (reader.peek() == JsonToken.NULL) {
+					reader.nextNull();
+				} else {
+					geometry = readGeometry(reader);
+				}
+			} else if ("coordinates".equals(name)) {
+				coordinates = readCoordinates(reader);
+			} else if ("properties".equals(name) && !keys.isEmpty() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+				kept = readProperties(reader);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if ("Feature".equals(type)) {
+			features++;
+			add(geometry, kept);
+		} else if (type != null && !"FeatureCollection".equals(type)) {
+			// 单独的几何
+			features++;
+			add(toGeometry(type, coordinates), null);
+		}
+	}
+
+	/**
+	 * 读取 Feature 的 geometry
+	 */
+	private Geometry readGeometry(JsonReader reader) throws IOException {
+		String type = null;
+		Object coordinates = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if ("type".equals(name)) {
+				type = reader.nextString();
+			} else if ("coordinates".equals(name)) {
+				coordinates = readCoordinates(reader);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return toGeometry(type, coordinates);
+	}
+
+	/**
+	 * 读取坐标: 位置为 double[], 其余层级为 List; 读取时累计外包矩形
+	 */
+	private Object readCoordinates(JsonReader reader) throws IOException {
+		reader.beginArray();
+		if (reader.peek() == JsonToken.NUMBER) {
+			double x = reader.nextDouble();
+			double y = reader.nextDouble();
+			while (reader.hasNext())
+				reader.skipValue();
+			reader.endArray();
+			bbox[0] = Math.min(bbox[0], x);
+			bbox[1] = Math.min(bbox[1], y);
+			bbox[2] = Math.max(bbox[2], x);
+			bbox[3] = Math.max(bbox[3], y);
+			return new double[] { x, y };
+		}
+		List<Object> list = Lists.newArrayList();
+		while (reader.hasNext())
+			list.add(readCoordinates(reader));
+		reader.endArray();
+		return list;
+	}
+
+	/**
+	 * 只保留指定的属性, 其余属性跳过而不解析
+	 */
+	private JsonObject readProperties(JsonReader reader) throws IOException {
+		JsonObject kept = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (keys.contains(name)) {
+				if (kept == null)
+					kept = new JsonObject();
+				kept.add(name, new JsonParser().parse(reader));
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return kept;
+	}
+
+	/**
+	 * 坐标转为几何, Polygon 与 Point 以外的类型返回 null; 坐标的层级与类型不符时抛出 Error
+	 */
+	@SuppressWarnings("unchecked")
+	private static Geometry toGeometry(String type, Object coordinates) {
+		if (coordinates == null)
+			return null;
+		if ("Point".equals(type)) {
+			if (!(coordinates instanceof double[]))
+				throw new Error("invalid obstacles");
+			double[] position = (double[]) coordinates;
+			return Point.fromLngLat(position[0], position[1]);
+		}
+		if ("Polygon".equals(type)) {
+			if (!(coordinates instanceof List))
+				throw new Error("invalid obstacles");
+			List<Object> rings = (List<Object>) coordinates;
+			List<List<Point>> polygon = Lists.newArrayListWithCapacity(rings.size());
+			for (Object ring : rings) {
+				if (!(ring instanceof List))
+					throw new Error("invalid obstacles");
+				List<Object> positions = (List<Object>) ring;
+				List<Point> points = Lists.newArrayListWithCapacity(positions.size());
+				for (Object position : positions) {
+					if (!(position instanceof double[]))
+						throw new Error("invalid obstacles");
+					points.add(Point.fromLngLat(((double[]) position)[0], ((double[]) position)[1]));
+				}
+				polygon.add(points);
+			}
+			return Polygon.fromLngLats(polygon);
+		}
+		return null;
+	}
+
+	private void add(Geometry geometry, JsonObject kept) {
+		if (geometry == null)
+			return;
+		geometries.add(geometry);
+		properties.add(kept);
+	}
+
+	/**
+	 * Getter & Setter; 返回的列表只读
+	 */
+	public List<Geometry> getGeometries() {
+		return Collections.unmodifiableList(geometries);
+	}
+
+	/**
+	 * 第 i 个障碍物保留的属性, 没有保留的属性时为 null
+	 */
+	public JsonObject getProperties(int i) {
+		return properties.get(i);
+	}
+
+	/**
+	 * 出入口(Point)
+	 */
+	public List<Point> getPoints() {
+		List<Point> points = Lists.newArrayList();
+		for (Geometry geometry : geometries) {
+			if (geometry instanceof Point)
+				points.add((Point) geometry);
+		}
+		return points;
+	}
+
+	/**
+	 * 所有坐标的外包矩形 [west, south, east, north], 没有坐标时为 null
+	 */
+	public double[] getBBox() {
+		if (bbox == null || bbox[0] > bbox[2])
+			return null;
+		return bbox.clone();
+	}
+
+	public int getFeatures() {
+		return features;
+	}
+
+	public Set<String> getKeys() {
+		return Collections.unmodifiableSet(keys);
+	}
+
+}
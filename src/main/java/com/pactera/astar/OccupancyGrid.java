@@ -0,0 +1,225 @@
+package com.pactera.astar;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * ClassName: OccupancyGrid
+ *
+ * @Description: 按位压缩的障碍网格, 每格 1 bit, 每行按 long 对齐(stride 个 long); 可以存放在堆内 long[] 或堆外
+ *               ByteBuffer 中. 构建完成后只读, 可被多个线程共享; 增量修改障碍时先复制再修改, 不影响正在使用旧网格的线程
+ */
+public abstract class OccupancyGrid {
+
+	/**
+	 * 列数
+	 */
+	protected final int width;
+	/**
+	 * 行数
+	 */
+	protected final int height;
+	/**
+	 * 每行占用的 long 个数
+	 */
+	protected final int stride;
+
+	protected OccupancyGrid(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.stride = (width + 63) >>> 6;
+	}
+
+	/**
+	 * 创建全部可通过的堆内网格
+	 */
+	public static OccupancyGrid allocate(int width, int height) {
+		return new HeapGrid(width, height, new long[(int) words(width, height)]);
+	}
+
+	/**
+	 * 创建全部可通过的堆外网格
+	 */
+	public static OccupancyGrid allocateDirect(int width, int height) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect((int) (words(width, height) << 3));
+		return new BufferGrid(width, height, buffer.order(ByteOrder.LITTLE_ENDIAN));
+	}
+
+	/**
+	 * 以已有的 ByteBuffer(小端, 从 position 开始)作为网格数据, 不复制
+	 */
+	public static OccupancyGrid wrap(ByteBuffer buffer, int width, int height) {
+		ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		if (slice.remaining() < words(width, height) << 3)
+			throw new Error("buffer too small");
+		return new BufferGrid(width, height, slice);
+	}
+
+	/**
+	 * 由 int[][] 矩阵图创建, 值为 AStar.BAR 的网格为障碍
+	 */
+	public static OccupancyGrid fromMatrix(int[][] matrix) {
+		OccupancyGrid grid = allocate(matrix.length == 0 ? 0 : matrix[0].length, matrix.length);
+		for (int y = 0; y < matrix.length; y++)
+			grid.setRow(y, matrix[y]);
+		return grid;
+	}
+
+	/**
+	 * 网格数据所需的 long 个数
+	 */
+	public static long words(int width, int height) {
+		return (long) ((width + 63) >>> 6) * height;
+	}
+
+	protected abstract long getWord(int word);
+
+	protected abstract void setWord(int word, long value);
+
+	/**
+	 * 是否是障碍
+	 */
+	public boolean isBlocked(int x, int y) {
+		return (getWord(y * stride + (x >>> 6)) & (1L << x)) != 0;
+	}
+
+	/**
+	 * 是否是障碍, index 为 y * width + x
+	 */
+	public boolean isBlocked(int index) {
+		return isBlocked(index % width, index / width);
+	}
+
+	/**
+	 * 设置一格, 只应在构建阶段调用
+	 */
+	void set(int x, int y, boolean blocked) {
+		int word = y * stride + (x >>> 6);
+		long value = getWord(word);
+		setWord(word, blocked ? value | (1L << x) : value & ~(1L << x));
+	}
+
+	/**
+	 * 以 int[] 行数据设置一行, 值为 AStar.BAR 的网格为障碍; 不同的行互不影响, 可以并行设置
+	 */
+	void setRow(int y, int[] row) {
+		for (int w = 0; w < stride; w++) {
+			long value = 0;
+			int from = w << 6;
+			int to = Math.min(width, from + 64);
+			for (int x = from; x < to; x++) {
+				if (row[x] == AStar.BAR)
+					value |= 1L << x;
+			}
+			setWord(y * stride + w, value);
+		}
+	}
+
+	/**
+	 * 复制为堆内网格
+	 */
+	public OccupancyGrid copy() {
+		long[] words = new long[stride * height];
+		for (int i = 0; i < words.length; i++)
+			words[i] = getWord(i);
+		return new HeapGrid(width, height, words);
+	}
+
+	/**
+	 * 复制为堆外网格
+	 */
+	public OccupancyGrid copyDirect() {
+		OccupancyGrid grid = allocateDirect(width, height);
+		for (int i = 0, n = stride * height; i < n; i++)
+			grid.setWord(i, getWord(i));
+		return grid;
+	}
+
+	/**
+	 * 转换为 int[][] 矩阵图(障碍为 AStar.BAR)
+	 */
+	public int[][] toMatrix() {
+		int[][] matrix = new int[height][width];
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				matrix[y][x] = isBlocked(x, y) ? AStar.BAR : 0;
+		return matrix;
+	}
+
+	/**
+	 * 障碍网格数
+	 */
+	public int cardinality() {
+		int count = 0;
+		for (int i = 0, n = stride * height; i < n; i++)
+			count += Long.bitCount(getWord(i));
+		return count;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getStride() {
+		return stride;
+	}
+
+	/**
+	 * 堆内 long[] 网格
+	 */
+	private static class HeapGrid extends OccupancyGrid {
+
+		private final long[] words;
+
+		HeapGrid(int width, int height, long[] words) {
+			super(width, height);
+			this.words = words;
+		}
+
+		@Override
+		protected long getWord(int word) {
+			return words[word];
+		}
+
+		@Override
+		protected void setWord(int word, long value) {
+			words[word] = value;
+		}
+
+		@Override
+		public boolean isBlocked(int x, int y) {
+			return (words[y * stride + (x >>> 6)] & (1L << x)) != 0;
+		}
+	}
+
+	/**
+	 * ByteBuffer 网格(堆外或内存映射)
+	 */
+	private static class BufferGrid extends OccupancyGrid {
+
+		private final ByteBuffer buffer;
+
+		BufferGrid(int width, int height, ByteBuffer buffer) {
+			super(width, height);
+			this.buffer = buffer;
+		}
+
+		@Override
+		protected long getWord(int word) {
+			return buffer.getLong(word << 3);
+		}
+
+		@Override
+		protected void setWord(int word, long value) {
+			buffer.putLong(word << 3, value);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.pactera.astar;
+
+import java.util.function.Supplier;
+
+/**
+ * ClassName: PathFinder
+ *
+ * @Description: 障碍网格上的路径搜索算法; 实现类复用内部缓冲区, 同一时刻只能被一个线程使用. 起点与终点即使落在障碍上也视为可通过,
+ *               平移与斜移(8方向)均允许
+ */
+public interface PathFinder {
+
+	/**
+	 * 开始搜索
+	 *
+	 * @return 是否找到路径
+	 */
+	boolean search(OccupancyGrid grid, int startX, int startY, int endX, int endY);
+
+	/**
+	 * 路径包含的网格数(起点到终点), 未找到路径时为 0
+	 */
+	int getPathSize();
+
+	int getPathX(int i);
+
+	int getPathY(int i);
+
+	/**
+	 * 路径网格下标 y * width + x(起点到终点), 只有前 getPathSize 个有效
+	 */
+	int[] getPath();
+
+	/**
+	 * 路径长度(代价)
+	 */
+	double getLength();
+
+	/**
+	 * 最近一次搜索扩展(放入close表)的结点数
+	 */
+	int getExpanded();
+
+	/**
+	 * 可选的搜索算法
+	 */
+	enum Engine {
+		/**
+		 * A星算法
+		 */
+		ASTAR(GridAStar::new),
+		/**
+		 * 跳点搜索(Jump Point Search), 适用于平移、斜移代价固定的网格
+		 */
+		JPS(JumpPointSearch::new),
+		/**
+		 * 双向A星算法(NBA*), 结果最短; 仓库平面图上扩展的结点数与 ASTAR 相当, 出入口之间多扩展 13%~50%,
+		 * 单线程耗时约为 ASTAR 的 1.2~1.8 倍, 只有在多核上开启并行扩展
+		 * (SearchContext.getPathFinder 取得实例后 setParallel)且使用专用线程池时才可能更快;
+		 * 默认的 ForkJoinPool.commonPool() 繁忙时两侧先后执行, 比单线程更慢
+		 */
+		BIDIRECTIONAL(BidirectionalAStar::new),
+		/**
+		 * 分层A星算法(HPA*), 结果接近最短
+		 */
+		HIERARCHICAL(HierarchicalAStar::new),
+		/**
+		 * 任意角度的 Lazy Theta* 算法, 路径只包含拐点
+		 */
+		THETA(ThetaStar::new),
+		/**
+		 * 自适应四叉树上的A星算法, 大片空地只是一个结点, 结果接近最短, 路径只包含拐点
+		 */
+		QUADTREE(QuadTreeAStar::new);
+
+		private final Supplier<PathFinder> factory;
+
+		Engine(Supplier<PathFinder> factory) {
+			this.factory = factory;
+		}
+
+		public PathFinder create() {
+			return factory.get();
+		}
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.pactera.astar;
+
+/**
+ * ClassName: PathRenderer
+ *
+ * @Description: 路径绘制回调, 用于调试输出; 搜索默认不绘制, 只有设置了 PathRenderer 才会调用
+ */
+public interface PathRenderer {
+
+	/**
+	 * 绘制一次搜索结果
+	 *
+	 * @param occupancy 障碍网格(只读)
+	 * @param start     起点网格下标 y * width + x
+	 * @param end       终点网格下标 y * width + x
+	 * @param path      路径网格下标(起点到终点), 只有前 size 个有效
+	 * @param size      路径网格数, 未找到路径时为 0
+	 */
+	void render(OccupancyGrid occupancy, int start, int end, int[] path, int size);
+
+}
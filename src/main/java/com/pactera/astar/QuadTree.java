@@ -0,0 +1,161 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: QuadTree
+ *
+ * @Description: 障碍网格的自适应四叉树; 从覆盖整个网格的 2 的幂正方形开始, 只有包含障碍边界(既有障碍又有可通过网格)或超出网格的
+ *               正方形才继续四等分, 大片空地成为一个叶结点, 货架附近细分到单个网格. 只保存可通过的叶结点, 叶结点边长不超过 maxSize.
+ *               构建只需一次前缀和与 O(叶结点数 x 层数) 的判断; 构建完成后只读, 可被多个线程共享
+ */
+public class QuadTree {
+
+	/**
+	 * 默认的叶结点最大边长
+	 */
+	public static final int DEFAULT_MAX_SIZE = 64;
+
+	private final OccupancyGrid grid;
+	private final int width;
+	private final int height;
+	private final int maxSize;
+	/**
+	 * 每个网格所在的可通过叶结点, 障碍为 -1
+	 */
+	private final int[] leafOf;
+	/**
+	 * 叶结点左上角的列、行与边长
+	 */
+	private int[] xs = new int[16];
+	private int[] ys = new int[16];
+	private int[] sizes = new int[16];
+	private int count;
+
+	private QuadTree(OccupancyGrid grid, int maxSize) {
+		this.grid = grid;
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		this.maxSize = maxSize;
+		this.leafOf = new int[width * height];
+		Arrays.fill(leafOf, -1);
+	}
+
+	/**
+	 * 构建四叉树
+	 */
+	public static QuadTree build(OccupancyGrid grid) {
+		return build(grid, DEFAULT_MAX_SIZE);
+	}
+
+	public static QuadTree build(OccupancyGrid grid, int maxSize) {
+		if (maxSize < 1)
+			throw new Error("invalid max size " + maxSize);
+		QuadTree tree = new QuadTree(grid, maxSize);
+		int width = tree.width;
+		int height = tree.height;
+		// 障碍数的二维前缀和, 判断正方形内是否全为障碍或全可通过
+		int[] blocked = new int[(width + 1) * (height + 1)];
+		for (int y = 0; y < height; y++) {
+			int row = 0;
+			for (int x = 0; x < width; x++) {
+				if (grid.isBlocked(x, y))
+					row++;
+				blocked[(y + 1) * (width + 1) + x + 1] = blocked[y * (width + 1) + x + 1] + row;
+			}
+		}
+		int size = 1;
+		while (size < width || size < height)
+			size <<= 1;
+		tree.divide(blocked, 0, 0, size);
+		tree.xs = Arrays.copyOf(tree.xs, tree.count);
+		tree.ys = Arrays.copyOf(tree.ys, tree.count);
+		tree.sizes = Arrays.copyOf(tree.sizes, tree.count);
+		return tree;
+	}
+
+	/**
+	 * 左上角 (x0, y0)、边长 size 的正方形: 全可通过且在网格内时成为叶结点, 全为障碍时丢弃, 否则四等分
+	 */
+	private void divide(int[] blocked, int x0, int y0, int size) {
+		if (x0 >= width || y0 >= height)
+			return;
+		int x1 = Math.min(x0 + size, width);
+		int y1 = Math.min(y0 + size, height);
+		int stride = width + 1;
+		int count = blocked[y1 * stride + x1] - blocked[y0 * stride + x1] - blocked[y1 * stride + x0]
+				+ blocked[y0 * stride + x0];
+		if (count == (x1 - x0) * (y1 - y0))
+			return;
+		if (count == 0 && x0 + size <= width && y0 + size <= height && size <= maxSize) {
+			addLeaf(x0, y0, size);
+			return;
+		}
+		int half = size >> 1;
+		divide(blocked, x0, y0, half);
+		divide(blocked, x0 + half, y0, half);
+		divide(blocked, x0, y0 + half, half);
+		divide(blocked, x0 + half, y0 + half, half);
+	}
+
+	private void addLeaf(int x0, int y0, int size) {
+		if (count == xs.length) {
+			xs = Arrays.copyOf(xs, count << 1);
+			ys = Arrays.copyOf(ys, count << 1);
+			sizes = Arrays.copyOf(sizes, count << 1);
+		}
+		xs[count] = x0;
+		ys[count] = y0;
+		sizes[count] = size;
+		for (int y = y0; y < y0 + size; y++)
+			Arrays.fill(leafOf, y * width + x0, y * width + x0 + size, count);
+		count++;
+	}
+
+	/**
+	 * 网格下标 y * width + x 所在的可通过叶结点, 障碍为 -1
+	 */
+	public int leafOf(int cell) {
+		return leafOf[cell];
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	public OccupancyGrid getGrid() {
+		return grid;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 可通过的叶结点数(搜索结点数)
+	 */
+	public int getLeafCount() {
+		return count;
+	}
+
+	/**
+	 * 叶结点 i 左上角的列
+	 */
+	public int getX(int i) {
+		return xs[i];
+	}
+
+	/**
+	 * 叶结点 i 左上角的行
+	 */
+	public int getY(int i) {
+		return ys[i];
+	}
+
+	/**
+	 * 叶结点 i 的边长(网格数)
+	 */
+	public int getSize(int i) {
+		return sizes[i];
+	}
+
+}
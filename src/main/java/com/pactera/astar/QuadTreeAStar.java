@@ -0,0 +1,420 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: QuadTreeAStar
+ *
+ * @Description: 四叉树上的A星算法; 搜索结点为 QuadTree 的可通过叶结点, 相邻(共边或共角)的叶结点之间经由一对相邻网格过渡,
+ *               过渡位置在公共边上按当前位置与终点选择. 叶结点是可通过的正方形, 叶结点内任意两格之间可以直线到达,
+ *               因此路径只包含拐点(进入与离开每个叶结点的网格), 长度按网格中心之间的直线距离计算. 起点或终点是障碍时作为单独的结点,
+ *               与周围 8 格相连. 大片空地只是一个结点, 扩展的结点数远少于逐格搜索, 结果接近但不保证最短
+ */
+public class QuadTreeAStar implements PathFinder {
+
+	private static final int CLOSED = -2;
+	/**
+	 * 平移代价, 两个网格中心之间的代价为平移代价乘以欧氏距离
+	 */
+	private double straightEdge = 1;
+	private int maxSize = QuadTree.DEFAULT_MAX_SIZE;
+	/**
+	 * 四叉树; 与搜索的障碍网格不一致时按 maxSize 重新构建
+	 */
+	private QuadTree tree;
+
+	private double[] g = new double[0];
+	private double[] f = new double[0];
+	private int[] parent = new int[0];
+	/**
+	 * 结点的当前位置(进入叶结点的网格), 以及从父结点离开时所在的网格
+	 */
+	private int[] entry = new int[0];
+	private int[] exit = new int[0];
+	private int[] heapIndex = new int[0];
+	private int[] visited = new int[0];
+	private int generation;
+	private int[] heap = new int[0];
+	private int heapSize;
+
+	private int[] path = new int[0];
+	private int pathSize;
+	private double length;
+	private int expanded;
+
+	private int width;
+	private int height;
+	private int start;
+	private int end;
+	private int endX;
+	private int endY;
+	/**
+	 * 起点、终点所在的结点; 起点或终点是障碍时分别为叶结点数、叶结点数 + 1
+	 */
+	private int startNode;
+	private int endNode;
+	private int blockedEnd;
+
+	public QuadTreeAStar() {
+	}
+
+	public QuadTreeAStar(QuadTree tree) {
+		this.tree = tree;
+		this.maxSize = tree.getMaxSize();
+	}
+
+	@Override
+	public boolean search(OccupancyGrid grid, int startX, int startY, int endX, int endY) {
+		if (tree == null || tree.getGrid() != grid)
+			tree = QuadTree.build(grid, maxSize);
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		int leaves = tree.getLeafCount();
+		ensureCapacity(leaves + 2);
+		this.heapSize = 0;
+		this.pathSize = 0;
+		this.length = 0;
+		this.expanded = 0;
+		this.start = startY * width + startX;
+		this.end = endY * width + endX;
+		this.endX = endX;
+		this.endY = endY;
+		this.startNode = tree.leafOf(start) >= 0 ? tree.leafOf(start) : leaves;
+		this.blockedEnd = leaves + 1;
+		this.endNode = tree.leafOf(end) >= 0 ? tree.leafOf(end) : blockedEnd;
+		if (start == end) {
+			ensurePath(1);
+			path[0] = start;
+			pathSize = 1;
+			return true;
+		}
+
+		visit(startNode);
+		g[startNode] = 0;
+		f[startNode] = distance(start, end);
+		parent[startNode] = -1;
+		entry[startNode] = start;
+		push(startNode);
+		while (heapSize > 0) {
+			int current = pop();
+			heapIndex[current] = CLOSED;
+			expanded++;
+			if (current == endNode) {
+				drawPath();
+				return true;
+			}
+			if (current == leaves) {
+				expandCell(current, startX, startY);
+			} else {
+				expandLeaf(current);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 障碍上的起点: 与周围 8 格所在的叶结点(或障碍上的终点)相连
+	 */
+	private void expandCell(int current, int x, int y) {
+		for (int i = 0; i < 8; i++) {
+			int nx = x + GridAStar.DX[i];
+			int ny = y + GridAStar.DY[i];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+				continue;
+			int cell = ny * width + nx;
+			int next = cell == end ? endNode : tree.leafOf(cell);
+			if (next >= 0)
+				relax(current, start, cell, next);
+		}
+	}
+
+	/**
+	 * 扩展叶结点: 四条边与四个角外侧的叶结点, 以及相邻的障碍上的终点
+	 */
+	private void expandLeaf(int current) {
+		int x0 = tree.getX(current), y0 = tree.getY(current);
+		int x1 = x0 + tree.getSize(current) - 1, y1 = y0 + tree.getSize(current) - 1;
+		if (y0 > 0)
+			side(current, x0, x1, y0, y0 - 1, true);
+		if (y1 < height - 1)
+			side(current, x0, x1, y1, y1 + 1, true);
+		if (x0 > 0)
+			side(current, y0, y1, x0, x0 - 1, false);
+		if (x1 < width - 1)
+			side(current, y0, y1, x1, x1 + 1, false);
+		corner(current, x0, y0, x0 - 1, y0 - 1);
+		corner(current, x1, y0, x1 + 1, y0 - 1);
+		corner(current, x0, y1, x0 - 1, y1 + 1);
+		corner(current, x1, y1, x1 + 1, y1 + 1);
+		if (endNode == blockedEnd && endX >= x0 - 1 && endX <= x1 + 1 && endY >= y0 - 1 && endY <= y1 + 1) {
+			int x = Math.min(Math.max(endX, x0), x1);
+			int y = Math.min(Math.max(endY, y0), y1);
+			relax(current, y * width + x, end, blockedEnd);
+		}
+	}
+
+	/**
+	 * 叶结点一条边外侧的叶结点; horizontal 时 from..to 为列, inside/outside 为边内、外侧的行, 否则 from..to 为行
+	 */
+	private void side(int current, int from, int to, int inside, int outside, boolean horizontal) {
+		for (int t = from; t <= to; t++) {
+			int next = tree.leafOf(horizontal ? outside * width + t : t * width + outside);
+			if (next < 0)
+				continue;
+			// 与相邻叶结点的公共边 [t, last]
+			int last = Math.min(to, (horizontal ? tree.getX(next) : tree.getY(next)) + tree.getSize(next) - 1);
+			int k = crossing(current, t, last, inside, outside, horizontal);
+			if (horizontal)
+				relax(current, inside * width + k, outside * width + k, next);
+			else
+				relax(current, k * width + inside, k * width + outside, next);
+			t = last;
+		}
+	}
+
+	/**
+	 * 在公共边 [from, to] 上选择过渡位置: 当前位置、终点在边上的投影以及两者连线与边的交点中代价最小者
+	 */
+	private int crossing(int current, int from, int to, int inside, int outside, boolean horizontal) {
+		int position = entry[current];
+		double pu = horizontal ? position % width : position / width;
+		double pv = horizontal ? position / width : position % width;
+		double eu = horizontal ? endX : endY;
+		double ev = horizontal ? endY : endX;
+		int best = clamp((int) pu, from, to);
+		double bestCost = crossingCost(best, inside, outside, pu, pv, eu, ev);
+		int candidate = clamp((int) eu, from, to);
+		double cost = crossingCost(candidate, inside, outside, pu, pv, eu, ev);
+		if (cost < bestCost) {
+			best = candidate;
+			bestCost = cost;
+		}
+		if (ev != pv) {
+			double u = pu + (eu - pu) * ((inside + outside) / 2.0 - pv) / (ev - pv);
+			candidate = clamp((int) Math.round(u), from, to);
+			if (crossingCost(candidate, inside, outside, pu, pv, eu, ev) < bestCost)
+				best = candidate;
+		}
+		return best;
+	}
+
+	private static double crossingCost(int k, int inside, int outside, double pu, double pv, double eu, double ev) {
+		return Math.hypot(k - pu, inside - pv) + Math.hypot(k - eu, outside - ev);
+	}
+
+	private static int clamp(int value, int from, int to) {
+		return Math.min(Math.max(value, from), to);
+	}
+
+	/**
+	 * 叶结点角外侧斜向的叶结点
+	 */
+	private void corner(int current, int x, int y, int nx, int ny) {
+		if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+			return;
+		int next = tree.leafOf(ny * width + nx);
+		if (next >= 0)
+			relax(current, y * width + x, ny * width + nx, next);
+	}
+
+	/**
+	 * 从 current 的当前位置直线走到其内的 from, 再跨入相邻结点 next 的 to
+	 */
+	private void relax(int current, int from, int to, int next) {
+		if (visited[next] == generation && heapIndex[next] == CLOSED)
+			return;
+		double G = g[current] + distance(entry[current], from) + distance(from, to);
+		if (visited[next] != generation) {
+			visit(next);
+			g[next] = Double.POSITIVE_INFINITY;
+		}
+		if (G < g[next]) {
+			g[next] = G;
+			f[next] = G + distance(to, end);
+			parent[next] = current;
+			entry[next] = to;
+			exit[next] = from;
+			if (heapIndex[next] >= 0)
+				siftUp(heapIndex[next], next);
+			else
+				push(next);
+		}
+	}
+
+	/**
+	 * 两个网格中心之间的代价
+	 */
+	private double distance(int a, int b) {
+		double dx = a % width - b % width;
+		double dy = a / width - b / width;
+		return straightEdge * Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * 按父结点回溯拐点(终点、各结点的进入与离开网格、起点), 去掉重复的网格后反转为起点到终点的顺序
+	 */
+	private void drawPath() {
+		int count = 2;
+		for (int node = endNode; parent[node] != -1; node = parent[node])
+			count += 2;
+		ensurePath(count);
+		pathSize = 0;
+		add(end);
+		for (int node = endNode; parent[node] != -1; node = parent[node]) {
+			add(entry[node]);
+			add(exit[node]);
+		}
+		add(start);
+		for (int i = 0, j = pathSize - 1; i < j; i++, j--) {
+			int t = path[i];
+			path[i] = path[j];
+			path[j] = t;
+		}
+		length = 0;
+		for (int i = 1; i < pathSize; i++)
+			length += distance(path[i - 1], path[i]);
+	}
+
+	private void add(int cell) {
+		if (pathSize == 0 || path[pathSize - 1] != cell)
+			path[pathSize++] = cell;
+	}
+
+	private void ensurePath(int count) {
+		if (path.length < count)
+			path = new int[Math.max(count, path.length << 1)];
+	}
+
+	private void visit(int node) {
+		visited[node] = generation;
+		heapIndex[node] = -1;
+	}
+
+	/**
+	 * 保证缓冲区足够容纳所有结点, 并开始新的搜索批次
+	 */
+	private void ensureCapacity(int nodes) {
+		if (g.length < nodes) {
+			g = new double[nodes];
+			f = new double[nodes];
+			parent = new int[nodes];
+			entry = new int[nodes];
+			exit = new int[nodes];
+			heapIndex = new int[nodes];
+			visited = new int[nodes];
+			heap = new int[nodes];
+			generation = 0;
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+
+	private void push(int node) {
+		siftUp(heapSize++, node);
+	}
+
+	private int pop() {
+		int result = heap[0];
+		int last = heap[--heapSize];
+		if (heapSize > 0)
+			siftDown(0, last);
+		return result;
+	}
+
+	private void siftUp(int k, int node) {
+		while (k > 0) {
+			int p = (k - 1) >>> 1;
+			int e = heap[p];
+			if (f[node] >= f[e])
+				break;
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private void siftDown(int k, int node) {
+		int half = heapSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && f[c] > f[heap[right]])
+				c = heap[child = right];
+			if (f[node] <= f[c])
+				break;
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	/**
+	 * Getter & Setter; 路径只包含拐点, 相邻两点之间是直线
+	 */
+	@Override
+	public int[] getPath() {
+		return path;
+	}
+
+	@Override
+	public int getPathSize() {
+		return pathSize;
+	}
+
+	@Override
+	public int getPathX(int i) {
+		return path[i] % width;
+	}
+
+	@Override
+	public int getPathY(int i) {
+		return path[i] / width;
+	}
+
+	@Override
+	public double getLength() {
+		return length;
+	}
+
+	@Override
+	public int getExpanded() {
+		return expanded;
+	}
+
+	public QuadTree getTree() {
+		return tree;
+	}
+
+	/**
+	 * 设置四叉树(MatrixMap 构建后共享), 与搜索的障碍网格不一致时会被重新构建
+	 */
+	public void setTree(QuadTree tree) {
+		this.tree = tree;
+		this.maxSize = tree.getMaxSize();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		this.tree = null;
+	}
+
+	public double getStraightEdge() {
+		return straightEdge;
+	}
+
+	public void setStraightEdge(double straightEdge) {
+		this.straightEdge = straightEdge;
+	}
+
+}
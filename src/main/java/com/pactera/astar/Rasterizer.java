@@ -0,0 +1,126 @@
+package com.pactera.astar;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+
+/**
+ * ClassName: Rasterizer
+ *
+ * @Description: 将障碍物栅格化为按位压缩的障碍网格; 各行互不依赖, parallelism 大于 1 时按行并行计算, 结果与串行完全一致
+ */
+public class Rasterizer {
+
+	/**
+	 * 栅格化方式
+	 */
+	public enum Mode {
+		/**
+		 * 逐个网格中心做点面判断
+		 */
+		POINT,
+		/**
+		 * 扫描线: 每行计算一次障碍物边的交点并成段填充
+		 */
+		SCANLINE
+	}
+
+	/**
+	 * 并行度, 小于等于 1 时串行
+	 */
+	private final int parallelism;
+	/**
+	 * 栅格化方式
+	 */
+	private final Mode mode;
+
+	public Rasterizer() {
+		this(1);
+	}
+
+	public Rasterizer(int parallelism) {
+		this(parallelism, Mode.POINT);
+	}
+
+	public Rasterizer(int parallelism, Mode mode) {
+		this.parallelism = parallelism;
+		this.mode = mode;
+	}
+
+	/**
+	 * 生成障碍网格
+	 */
+	public OccupancyGrid rasterize(GridGeometry grid, FeatureCollection obstacles) {
+		return this.rasterize(grid, new ObstacleIndex(obstacles));
+	}
+
+	/**
+	 * 生成堆内障碍网格, 每个网格只与索引中外包矩形包含它的障碍物做点面判断
+	 */
+	public OccupancyGrid rasterize(GridGeometry grid, ObstacleIndex obstacles) {
+		return this.rasterize(grid, obstacles, OccupancyGrid.allocate(grid.getColumns(), grid.getRows()));
+	}
+
+	/**
+	 * 栅格化到指定的障碍网格(例如堆外网格)中, 逐行压缩写入, 不生成完整的 int[][]
+	 */
+	public OccupancyGrid rasterize(GridGeometry grid, ObstacleIndex obstacles, OccupancyGrid target) {
+		IntFunction<int[]> rows;
+		if (mode == Mode.SCANLINE) {
+			rows = new ScanlineFill(grid, obstacles)::fill;
+		} else {
+			rows = r -> rasterizeRow(grid, obstacles, r);
+		}
+
+		if (parallelism <= 1 || grid.getRows() <= 1) {
+			for (int r = 0; r < grid.getRows(); r++) {
+				target.setRow(r, rows.apply(r));
+			}
+			return target;
+		}
+
+		// 每行写入各自的 long, 行与行之间没有共享数据
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.submit(() -> IntStream.range(0, grid.getRows()).parallel()
+					.forEach(r -> target.setRow(r, rows.apply(r)))).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new Error("rasterize interrupted", e);
+		} catch (ExecutionException e) {
+			throw new Error("rasterize failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		return target;
+	}
+
+	/**
+	 * 栅格化一行
+	 */
+	private int[] rasterizeRow(GridGeometry grid, ObstacleIndex obstacles, int r) {
+		int[] matrixRow = new int[grid.getColumns()];
+		double currentY = grid.getY(r);
+		for (int c = 0; c < matrixRow.length; c++) {
+			Point pt = Point.fromLngLat(grid.getX(c), currentY);
+			matrixRow[c] = obstacles.isInside(pt) ? AStar.BAR : 0;
+		}
+		return matrixRow;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.pactera.astar;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.Point;
+
+/**
+ * ClassName: RouteCache
+ *
+ * @Description: 按起点、终点网格缓存的路径(LRU); 超过条目数或总权重(路径坐标数)时淘汰最久未使用的路径. 缓存的 LineString
+ *               坐标不可修改, 可被多个调用方共享. 矩阵图版本变化时整体失效. 线程安全. 同一时间只能属于一个矩阵图,
+ *               不同矩阵图的网格下标与版本号互不相关
+ */
+public class RouteCache {
+
+	/**
+	 * 最大条目数
+	 */
+	private final int maxEntries;
+	/**
+	 * 最大总权重(所有路径的坐标数之和)
+	 */
+	private final long maxWeight;
+	private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+	private long weight;
+	/**
+	 * 缓存对应的矩阵图版本
+	 */
+	private long version = -1;
+	/**
+	 * 使用缓存的矩阵图, 为 null 时未被使用
+	 */
+	private Object owner;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	public RouteCache(int maxEntries) {
+		this(maxEntries, Long.MAX_VALUE);
+	}
+
+	public RouteCache(int maxEntries, long maxWeight) {
+		this.maxEntries = maxEntries;
+		this.maxWeight = maxWeight;
+	}
+
+	private static long key(int startCell, int endCell) {
+		return ((long) startCell << 32) | (endCell & 0xffffffffL);
+	}
+
+	/**
+	 * 缓存交给 owner 使用; 已被其他矩阵图使用时抛出 Error
+	 */
+	synchronized void attach(Object owner) {
+		if (this.owner != null && this.owner != owner) {
+			throw new Error("路径缓存已被其他矩阵图使用");
+		}
+		this.owner = owner;
+	}
+
+	/**
+	 * owner 不再使用缓存, 清空缓存后可交给其他矩阵图
+	 */
+	synchronized void detach(Object owner) {
+		if (this.owner != owner)
+			return;
+		this.owner = null;
+		this.version = -1;
+		clear();
+	}
+
+	/**
+	 * 查找缓存的路径, 版本不一致时先清空缓存; owner 不是缓存当前的使用者时不命中
+	 */
+	public synchronized Entry get(Object owner, long version, int startCell, int endCell) {
+		if (this.owner != owner) {
+			misses.incrementAndGet();
+			return null;
+		}
+		if (this.version != version) {
+			clear();
+			this.version = version;
+		}
+		Entry entry = entries.get(key(startCell, endCell));
+		if (entry == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return entry;
+	}
+
+	/**
+	 * 缓存一条路径, owner 不是缓存当前的使用者、版本已过期或权重超过上限时忽略
+	 */
+	public synchronized void put(Object owner, long version, int startCell, int endCell, Entry entry) {
+		if (this.owner != owner || this.version != version || entry.weight() > maxWeight)
+			return;
+		Entry previous = entries.put(key(startCell, endCell), entry);
+		if (previous != null)
+			weight -= previous.weight();
+		weight += entry.weight();
+		Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+		while ((entries.size() > maxEntries || weight > maxWeight) && iterator.hasNext()) {
+			Entry eldest = iterator.next().getValue();
+			if (eldest == entry)
+				continue;
+			iterator.remove();
+			weight -= eldest.weight();
+			evictions.incrementAndGet();
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * 缓存的路径: 路径网格、长度以及对应的 LineString(首尾为当时查询的坐标)
+	 */
+	public static class Entry {
+
+		private final int[] cells;
+		private final double length;
+		private final LineString lineString;
+
+		public Entry(int[] cells, double length, LineString lineString) {
+			this.cells = cells;
+			this.length = length;
+			this.lineString = lineString;
+		}
+
+		int weight() {
+			return cells.length + 2;
+		}
+
+		/**
+		 * 是否找到路径(未找到的查询同样缓存)
+		 */
+		public boolean isFound() {
+			return cells.length > 0;
+		}
+
+		/**
+		 * 首尾坐标与查询一致时直接返回缓存的 LineString
+		 */
+		boolean matches(double[] start, double[] end) {
+			List<Point> points = lineString.coordinates();
+			Point first = points.get(0);
+			Point last = points.get(points.size() - 1);
+			return first.longitude() == start[0] && first.latitude() == start[1] && last.longitude() == end[0]
+					&& last.latitude() == end[1];
+		}
+
+		/**
+		 * 路径网格下标 y * width + x(起点到终点), 不应修改
+		 */
+		public int[] getCells() {
+			return cells;
+		}
+
+		public double getLength() {
+			return length;
+		}
+
+		public LineString getLineString() {
+			return lineString;
+		}
+	}
+
+}
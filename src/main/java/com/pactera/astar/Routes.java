@@ -0,0 +1,113 @@
+package com.pactera.astar;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.Point;
+
+/**
+ * ClassName: Routes
+ *
+ * @Description: 一对多最短路径的结果(MatrixMap.shortestPaths); 每个终点的长度与路径网格在搜索时确定,
+ *               LineString 在首次调用 getLineString 时才生成. 路径网格与矩阵图版本无关, 矩阵图变化后不会更新
+ */
+public class Routes {
+
+	private final GridGeometry grid;
+	private final int width;
+	private final double[] start;
+	private final List<double[]> targets;
+	/**
+	 * 每个终点的路径网格下标 y * width + x(起点到终点), 不可达为空数组
+	 */
+	private final int[][] cells;
+	/**
+	 * 每个终点的路径长度(代价), 不可达为 0
+	 */
+	private final double[] lengths;
+	/**
+	 * 已生成的 LineString
+	 */
+	private final LineString[] lineStrings;
+	/**
+	 * 搜索扩展的结点数
+	 */
+	private final int expanded;
+
+	Routes(GridGeometry grid, int width, double[] start, List<double[]> targets, int[][] cells, double[] lengths,
+			int expanded) {
+		this.grid = grid;
+		this.width = width;
+		this.start = start;
+		this.targets = targets;
+		this.cells = cells;
+		this.lengths = lengths;
+		this.lineStrings = new LineString[cells.length];
+		this.expanded = expanded;
+	}
+
+	/**
+	 * 终点数
+	 */
+	public int size() {
+		return cells.length;
+	}
+
+	/**
+	 * 第 i 个终点是否可达
+	 */
+	public boolean isFound(int i) {
+		return cells[i].length > 0;
+	}
+
+	/**
+	 * 起点到第 i 个终点的长度(代价), 不可达为 0
+	 */
+	public double getLength(int i) {
+		return lengths[i];
+	}
+
+	/**
+	 * 起点到第 i 个终点的路径网格数, 不可达为 0
+	 */
+	public int getPathSize(int i) {
+		return cells[i].length;
+	}
+
+	public int getPathX(int i, int k) {
+		return cells[i][k] % width;
+	}
+
+	public int getPathY(int i, int k) {
+		return cells[i][k] / width;
+	}
+
+	/**
+	 * 起点到第 i 个终点的路径: 起点、路径上每一格的中心、终点, 与 MatrixMap.shortestPath 的结果格式相同; 首次调用时生成
+	 */
+	public synchronized LineString getLineString(int i) {
+		LineString lineString = lineStrings[i];
+		if (lineString == null) {
+			int[] path = cells[i];
+			List<Point> points = Lists.newArrayListWithCapacity(path.length + 2);
+			points.add(Point.fromLngLat(start[0], start[1]));
+			for (int cell : path)
+				points.add(Point.fromLngLat(grid.getX(cell % width), grid.getY(cell / width)));
+			double[] end = targets.get(i);
+			points.add(Point.fromLngLat(end[0], end[1]));
+			lineString = LineString.fromLngLats(Collections.unmodifiableList(points));
+			lineStrings[i] = lineString;
+		}
+		return lineString;
+	}
+
+	/**
+	 * 搜索扩展的结点数(所有终点共用一次搜索)
+	 */
+	public int getExpanded() {
+		return expanded;
+	}
+
+}
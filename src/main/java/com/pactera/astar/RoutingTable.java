@@ -0,0 +1,246 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: RoutingTable
+ *
+ * @Description: 出入口之间的全对最短路径表; 对每个出入口做一次 Dijkstra 泛洪, 保存两两之间的距离与路径网格(i < j 时保存,
+ *               反向查询时倒序读取). 移动规则与 GridAStar 相同, 出入口网格即使是障碍也可以作为起点或终点, 但不会被其他路径穿过.
+ *               构建完成后只读, 可被多个线程共享
+ */
+public class RoutingTable {
+
+	/**
+	 * 出入口数
+	 */
+	private final int size;
+	/**
+	 * 距离, 下标 i * size + j, 不可达为正无穷
+	 */
+	private final double[] distances;
+	/**
+	 * 路径网格下标 y * width + x(i 到 j 的顺序), 下标 i * size + j 且 i < j, 不可达为 null
+	 */
+	private final int[][] paths;
+	/**
+	 * 出入口网格下标
+	 */
+	private final int[] cells;
+	private final int width;
+	/**
+	 * 构建耗时(纳秒)
+	 */
+	private final long buildTime;
+
+	RoutingTable(int size, double[] distances, int[][] paths, int[] cells, int width, long buildTime) {
+		this.size = size;
+		this.distances = distances;
+		this.paths = paths;
+		this.cells = cells;
+		this.width = width;
+		this.buildTime = buildTime;
+	}
+
+	/**
+	 * 构建出入口路径表
+	 */
+	public static RoutingTable build(OccupancyGrid grid, Entrances entrances) {
+		return build(grid, entrances, 1, Math.sqrt(2));
+	}
+
+	public static RoutingTable build(OccupancyGrid grid, Entrances entrances, double straightEdge,
+			double bevelEdge) {
+		long begin = System.nanoTime();
+		int size = entrances.size();
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		int cells = width * height;
+		boolean[] entrance = new boolean[cells];
+		int[] entranceCells = new int[size];
+		for (int i = 0; i < size; i++) {
+			entranceCells[i] = entrances.getCell(i);
+			entrance[entranceCells[i]] = true;
+		}
+
+		double[] distances = new double[size * size];
+		int[][] paths = new int[size * size][];
+		double[] g = new double[cells];
+		int[] parent = new int[cells];
+		int[] heap = new int[cells];
+		int[] heapIndex = new int[cells];
+		for (int i = 0; i < size; i++) {
+			int source = entranceCells[i];
+			flood(grid, source, entrance, straightEdge, bevelEdge, g, parent, heap, heapIndex);
+			for (int j = 0; j < size; j++) {
+				int target = entranceCells[j];
+				distances[i * size + j] = g[target];
+				if (j > i && g[target] != Double.POSITIVE_INFINITY)
+					paths[i * size + j] = trace(parent, target);
+			}
+		}
+		return new RoutingTable(size, distances, paths, entranceCells, width, System.nanoTime() - begin);
+	}
+
+	/**
+	 * 从 source 出发的 Dijkstra 泛洪, 结果保存在 g 与 parent 中
+	 */
+	private static void flood(OccupancyGrid grid, int source, boolean[] entrance, double straightEdge,
+			double bevelEdge, double[] g, int[] parent, int[] heap, int[] heapIndex) {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		Arrays.fill(g, Double.POSITIVE_INFINITY);
+		Arrays.fill(heapIndex, -1);
+		g[source] = 0;
+		parent[source] = -1;
+		heap[0] = source;
+		heapIndex[source] = 0;
+		int heapSize = 1;
+		while (heapSize > 0) {
+			int current = heap[0];
+			int last = heap[--heapSize];
+			heapIndex[current] = -2;
+			if (heapSize > 0)
+				siftDown(heap, heapIndex, g, heapSize, 0, last);
+			// 障碍上的出入口只能作为终点, 不再向外扩展
+			if (current != source && grid.isBlocked(current))
+				continue;
+			int x = current % width;
+			int y = current / width;
+			for (int i = 0; i < 8; i++) {
+				int nx = x + GridAStar.DX[i];
+				int ny = y + GridAStar.DY[i];
+				if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+					continue;
+				int next = ny * width + nx;
+				if (grid.isBlocked(nx, ny) && !entrance[next])
+					continue;
+				double G = g[current] + (i < 4 ? straightEdge : bevelEdge);
+				if (G < g[next]) {
+					g[next] = G;
+					parent[next] = current;
+					if (heapIndex[next] >= 0) {
+						siftUp(heap, heapIndex, g, heapIndex[next], next);
+					} else {
+						siftUp(heap, heapIndex, g, heapSize++, next);
+					}
+				}
+			}
+		}
+	}
+
+	private static void siftUp(int[] heap, int[] heapIndex, double[] key, int k, int node) {
+		while (k > 0) {
+			int p = (k - 1) >>> 1;
+			int e = heap[p];
+			if (key[node] >= key[e])
+				break;
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private static void siftDown(int[] heap, int[] heapIndex, double[] key, int heapSize, int k, int node) {
+		int half = heapSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && key[c] > key[heap[right]])
+				c = heap[child = right];
+			if (key[node] <= key[c])
+				break;
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	/**
+	 * 按父结点回溯, 结果为 source 到 target 的顺序
+	 */
+	private static int[] trace(int[] parent, int target) {
+		int count = 0;
+		for (int node = target; node != -1; node = parent[node])
+			count++;
+		int[] path = new int[count];
+		for (int node = target; node != -1; node = parent[node])
+			path[--count] = node;
+		return path;
+	}
+
+	/**
+	 * 出入口 i 到 j 的距离, 不可达为正无穷
+	 */
+	public double getDistance(int i, int j) {
+		return distances[i * size + j];
+	}
+
+	/**
+	 * 是否可达
+	 */
+	public boolean isReachable(int i, int j) {
+		return distances[i * size + j] != Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * 出入口 i 到 j 的路径网格数, 不可达为 0
+	 */
+	public int getPathSize(int i, int j) {
+		if (i == j)
+			return 1;
+		int[] path = i < j ? paths[i * size + j] : paths[j * size + i];
+		return path == null ? 0 : path.length;
+	}
+
+	/**
+	 * 出入口 i 到 j 的路径上第 k 个网格下标 y * width + x
+	 */
+	public int getPathCell(int i, int j, int k) {
+		if (i == j)
+			return cells[i];
+		int[] path = i < j ? paths[i * size + j] : paths[j * size + i];
+		return i < j ? path[k] : path[path.length - 1 - k];
+	}
+
+	public int getPathX(int i, int j, int k) {
+		return getPathCell(i, j, k) % width;
+	}
+
+	public int getPathY(int i, int j, int k) {
+		return getPathCell(i, j, k) / width;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 构建耗时(毫秒)
+	 */
+	public double getBuildMillis() {
+		return buildTime / 1e6;
+	}
+
+	long getBuildNanos() {
+		return buildTime;
+	}
+
+	/**
+	 * 距离表与路径占用的内存(字节, 估算数组本身的大小)
+	 */
+	public long getMemoryBytes() {
+		long bytes = 16 + (long) distances.length * 8 + 16 + (long) paths.length * 4 + 16 + (long) cells.length * 4;
+		for (int[] path : paths) {
+			if (path != null)
+				bytes += 16 + (long) path.length * 4;
+		}
+		return bytes;
+	}
+
+}
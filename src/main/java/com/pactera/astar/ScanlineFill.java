@@ -0,0 +1,128 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+
+/**
+ * ClassName: ScanlineFill
+ *
+ * @Description: 扫描线栅格化; 每行只计算一次各障碍物环与该行的交点, 按与 TurfBooleans.booleanPointInPolygon 相同的奇偶规则成段填充,
+ *               落在边界上的网格与逐点判断一样视为障碍
+ */
+class ScanlineFill {
+
+	private final GridGeometry grid;
+	/**
+	 * 每个障碍物的环顶点 {x0, y0, x1, y1, ...}(去掉闭合点), Point 障碍物为 null
+	 */
+	private final double[][][] rings;
+	/**
+	 * Point 障碍物坐标 {x, y}
+	 */
+	private final double[][] points;
+	/**
+	 * 每行纬度范围内的障碍物下标
+	 */
+	private final int[][] rowObstacles;
+
+	ScanlineFill(GridGeometry grid, ObstacleIndex obstacles) {
+		this.grid = grid;
+		int size = obstacles.size();
+		this.rings = new double[size][][];
+		this.points = new double[size][];
+		int[] from = new int[size];
+		int[] to = new int[size];
+		int[] counts = new int[grid.getRows()];
+		for (int i = 0; i < size; i++) {
+			Geometry geometry = obstacles.getGeometry(i);
+			if (geometry instanceof Polygon) {
+				rings[i] = rings((Polygon) geometry);
+			} else {
+				Point point = (Point) geometry;
+				points[i] = new double[] { point.longitude(), point.latitude() };
+			}
+			double[] box = obstacles.getBBox(i);
+			from[i] = grid.ceilRow(box[3]);
+			to[i] = grid.floorRow(box[1]);
+			for (int r = from[i]; r <= to[i]; r++)
+				counts[r]++;
+		}
+		this.rowObstacles = new int[grid.getRows()][];
+		for (int r = 0; r < counts.length; r++) {
+			rowObstacles[r] = new int[counts[r]];
+			counts[r] = 0;
+		}
+		for (int i = 0; i < size; i++) {
+			for (int r = from[i]; r <= to[i]; r++)
+				rowObstacles[r][counts[r]++] = i;
+		}
+	}
+
+	private static double[][] rings(Polygon polygon) {
+		List<List<Point>> coordinates = polygon.coordinates();
+		double[][] rings = new double[coordinates.size()][];
+		for (int k = 0; k < coordinates.size(); k++) {
+			List<Point> ring = coordinates.get(k);
+			int size = ring.size();
+			if (size > 0 && ring.get(0).longitude() == ring.get(size - 1).longitude()
+					&& ring.get(0).latitude() == ring.get(size - 1).latitude())
+				size--;
+			double[] xy = new double[size * 2];
+			for (int i = 0; i < size; i++) {
+				xy[i * 2] = ring.get(i).longitude();
+				xy[i * 2 + 1] = ring.get(i).latitude();
+			}
+			rings[k] = xy;
+		}
+		return rings;
+	}
+
+	/**
+	 * 栅格化一行
+	 */
+	int[] fill(int r) {
+		int[] row = new int[grid.getColumns()];
+		double y = grid.getY(r);
+		double[] crossings = new double[16];
+		for (int i : rowObstacles[r]) {
+			if (rings[i] == null) {
+				if (points[i][1] == y)
+					span(row, points[i][0], points[i][0]);
+				continue;
+			}
+			int n = 0;
+			for (double[] ring : rings[i]) {
+				int size = ring.length / 2;
+				if (crossings.length < n + size)
+					crossings = Arrays.copyOf(crossings, Math.max(n + size, crossings.length << 1));
+				for (int k = 0, j = size - 1; k < size; j = k++) {
+					double xi = ring[k * 2], yi = ring[k * 2 + 1];
+					double xj = ring[j * 2], yj = ring[j * 2 + 1];
+					if ((yi > y) != (yj > y))
+						crossings[n++] = (xj - xi) * (y - yi) / (yj - yi) + xi;
+					// 顶点或水平边落在该行上, 属于边界; 交点仍按半开区间计数, 否则奇偶性被破坏
+					if (yi == y)
+						span(row, yj == y ? Math.min(xi, xj) : xi, yj == y ? Math.max(xi, xj) : xi);
+				}
+			}
+			Arrays.sort(crossings, 0, n);
+			for (int k = 0; k + 1 < n; k += 2)
+				span(row, crossings[k], crossings[k + 1]);
+		}
+		return row;
+	}
+
+	/**
+	 * 填充中心经度位于 [from, to] 的网格
+	 */
+	private void span(int[] row, double from, double to) {
+		int end = grid.floorColumn(to);
+		for (int c = grid.ceilColumn(from); c <= end; c++)
+			row[c] = AStar.BAR;
+	}
+
+}
@@ -0,0 +1,242 @@
+package com.pactera.astar;
+
+/**
+ * ClassName: SearchContext
+ *
+ * @Description: 单次路径搜索的可变状态(算法缓冲区与搜索结果); MatrixMap 本身在 generateMatrix 之后只读,
+ *               因此同一个 MatrixMap 可以被多个线程共享, 每个线程使用各自的 SearchContext. 一个 SearchContext
+ *               同一时刻只能被一个线程使用, 可以跨不同的 MatrixMap 复用; 每种搜索算法在首次使用时创建并保留
+ */
+public class SearchContext {
+
+	/**
+	 * 按 PathFinder.Engine 下标保存的搜索算法
+	 */
+	private final PathFinder[] finders = new PathFinder[PathFinder.Engine.values().length];
+	/**
+	 * 最近一次搜索使用的算法
+	 */
+	private PathFinder current;
+	/**
+	 * 最近一次搜索是否找到路径
+	 */
+	private boolean found;
+	/**
+	 * 路径绘制(调试用), 默认为 null, 不绘制
+	 */
+	private PathRenderer renderer;
+	/**
+	 * 最近一次结果来自出入口路径表时为该表, 否则为 null
+	 */
+	private RoutingTable table;
+	/**
+	 * 最近一次结果来自路径缓存时为缓存的路径, 否则为 null
+	 */
+	private RouteCache.Entry cached;
+	/**
+	 * 一对多搜索, 首次使用时创建
+	 */
+	private MultiTargetSearch multiTarget;
+	/**
+	 * 可视图搜索, 首次使用时创建; 最近一次结果来自可视图时 visible 为 true
+	 */
+	private VisibilitySearch visibility;
+	private boolean visible;
+	private int routeFrom;
+	private int routeTo;
+	private int width;
+
+	public SearchContext() {
+	}
+
+	public SearchContext(GridAStar astar) {
+		this.finders[PathFinder.Engine.ASTAR.ordinal()] = astar;
+	}
+
+	/**
+	 * 在障碍网格中使用A星算法搜索路径
+	 */
+	boolean search(OccupancyGrid grid, int startX, int startY, int endX, int endY) {
+		return search(PathFinder.Engine.ASTAR, grid, startX, startY, endX, endY);
+	}
+
+	/**
+	 * 在障碍网格中使用指定的算法搜索路径
+	 */
+	boolean search(PathFinder.Engine engine, OccupancyGrid grid, int startX, int startY, int endX, int endY) {
+		PathFinder finder = getPathFinder(engine);
+		this.table = null;
+		this.cached = null;
+		this.visible = false;
+		this.width = grid.getWidth();
+		this.current = finder;
+		this.found = current.search(grid, startX, startY, endX, endY);
+		if (renderer != null)
+			renderer.render(grid, startY * grid.getWidth() + startX, endY * grid.getWidth() + endX,
+					current.getPath(), getPathSize());
+		return this.found;
+	}
+
+	/**
+	 * 从出入口路径表中读取出入口 from 到 to 的路径, 不搜索
+	 */
+	boolean route(RoutingTable table, int from, int to, OccupancyGrid grid) {
+		this.table = table;
+		this.cached = null;
+		this.visible = false;
+		this.routeFrom = from;
+		this.routeTo = to;
+		this.width = grid.getWidth();
+		this.found = table.isReachable(from, to);
+		return this.found;
+	}
+
+	/**
+	 * 使用路径缓存中的结果, 不搜索
+	 */
+	boolean cached(RouteCache.Entry entry, OccupancyGrid grid) {
+		this.table = null;
+		this.cached = entry;
+		this.visible = false;
+		this.width = grid.getWidth();
+		this.found = entry.isFound();
+		return this.found;
+	}
+
+	/**
+	 * 在可视图上搜索网格坐标 (startU, startV) 到 (endU, endV) 的路径, 结果没有网格路径(getPathSize 为 0), 拐点见 getVisibilitySearch
+	 */
+	boolean searchVisible(VisibilityGraph graph, double startU, double startV, double endU, double endV) {
+		this.table = null;
+		this.cached = null;
+		this.visible = true;
+		this.found = getVisibilitySearch().search(graph, startU, startV, endU, endV);
+		return this.found;
+	}
+
+	/**
+	 * 复制最近一次结果的路径网格(起点到终点)
+	 */
+	int[] copyPath() {
+		int[] cells = new int[getPathSize()];
+		for (int i = 0; i < cells.length; i++)
+			cells[i] = getPathY(i) * width + getPathX(i);
+		return cells;
+	}
+
+	/**
+	 * 指定算法的实例, 首次调用时创建
+	 */
+	public PathFinder getPathFinder(PathFinder.Engine engine) {
+		PathFinder finder = finders[engine.ordinal()];
+		if (finder == null) {
+			finder = engine.create();
+			finders[engine.ordinal()] = finder;
+		}
+		return finder;
+	}
+
+	/**
+	 * 一对多搜索的实例, 首次调用时创建
+	 */
+	public MultiTargetSearch getMultiTargetSearch() {
+		if (multiTarget == null)
+			multiTarget = new MultiTargetSearch();
+		return multiTarget;
+	}
+
+	/**
+	 * 可视图搜索的实例, 首次调用时创建
+	 */
+	public VisibilitySearch getVisibilitySearch() {
+		if (visibility == null)
+			visibility = new VisibilitySearch();
+		return visibility;
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	public GridAStar getAStar() {
+		return (GridAStar) getPathFinder(PathFinder.Engine.ASTAR);
+	}
+
+	public PathRenderer getRenderer() {
+		return renderer;
+	}
+
+	public void setRenderer(PathRenderer renderer) {
+		this.renderer = renderer;
+	}
+
+	public boolean isFound() {
+		return found;
+	}
+
+	/**
+	 * 起始节点到最终节点的长度(代价)
+	 */
+	public double getLength() {
+		if (!found)
+			return 0;
+		if (visible)
+			return visibility.getLength();
+		if (cached != null)
+			return cached.getLength();
+		return table != null ? table.getDistance(routeFrom, routeTo) : current.getLength();
+	}
+
+	/**
+	 * 路径包含的网格数(起点到终点), 结果来自可视图时为 0
+	 */
+	public int getPathSize() {
+		if (!found || visible)
+			return 0;
+		if (cached != null)
+			return cached.getCells().length;
+		return table != null ? table.getPathSize(routeFrom, routeTo) : current.getPathSize();
+	}
+
+	/**
+	 * 最近一次搜索扩展的结点数
+	 */
+	public int getExpanded() {
+		if (visible)
+			return visibility.getExpanded();
+		return current == null || table != null || cached != null ? 0 : current.getExpanded();
+	}
+
+	/**
+	 * 最近一次结果是否来自出入口路径表
+	 */
+	public boolean isFromTable() {
+		return table != null;
+	}
+
+	/**
+	 * 最近一次结果是否来自可视图
+	 */
+	public boolean isFromVisibility() {
+		return visible;
+	}
+
+	/**
+	 * 最近一次结果是否来自路径缓存
+	 */
+	public boolean isFromCache() {
+		return cached != null;
+	}
+
+	public int getPathX(int i) {
+		if (cached != null)
+			return cached.getCells()[i] % width;
+		return table != null ? table.getPathCell(routeFrom, routeTo, i) % width : current.getPathX(i);
+	}
+
+	public int getPathY(int i) {
+		if (cached != null)
+			return cached.getCells()[i] / width;
+		return table != null ? table.getPathCell(routeFrom, routeTo, i) / width : current.getPathY(i);
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.pactera.astar;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * ClassName: TextPathRenderer
+ *
+ * @Description: 以文本绘制路径: 障碍为 AStar.BAR, 路径为 AStar.PATH, 不在路径上的起点和终点为 9, 其余为 0;
+ *               整张图先拼接在 StringBuilder 中, 再一次性写出
+ */
+public class TextPathRenderer implements PathRenderer {
+
+	private final Appendable out;
+
+	public TextPathRenderer(Appendable out) {
+		this.out = out;
+	}
+
+	/**
+	 * 输出到标准输出
+	 */
+	public static TextPathRenderer stdout() {
+		return new TextPathRenderer(System.out);
+	}
+
+	@Override
+	public void render(OccupancyGrid occupancy, int start, int end, int[] path, int size) {
+		int[] sorted = Arrays.copyOf(path, size);
+		Arrays.sort(sorted);
+		int width = occupancy.getWidth();
+		StringBuilder text = new StringBuilder(width * occupancy.getHeight() * 2 + occupancy.getHeight());
+		for (int y = 0, index = 0; y < occupancy.getHeight(); y++) {
+			for (int x = 0; x < width; x++, index++) {
+				int value;
+				if (Arrays.binarySearch(sorted, index) >= 0)
+					value = AStar.PATH;
+				else if (index == start || index == end)
+					value = 9;
+				else
+					value = occupancy.isBlocked(x, y) ? AStar.BAR : 0;
+				text.append(value).append(' ');
+			}
+			text.append('\n');
+		}
+		write(text);
+	}
+
+	private void write(CharSequence text) {
+		try {
+			out.append(text);
+			if (out instanceof Flushable)
+				((Flushable) out).flush();
+		} catch (IOException e) {
+			throw new Error(e);
+		}
+	}
+
+}
@@ -0,0 +1,398 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: ThetaStar
+ *
+ * @Description: 任意角度的 Theta* 算法(默认 Lazy Theta*); 结点的父结点可以是任意可直视的结点, 路径只包含拐点, 长度按网格中心之间的
+ *               直线距离(平移代价 x 欧氏距离)计算, 通常比8方向路径更短. 可直视的判断沿线段逐格检查经过的网格(supercover),
+ *               线段恰好经过网格角点时只检查对角的网格, 与8方向移动允许斜穿障碍角的规则一致. Lazy Theta* 在结点出堆时才检查可直视,
+ *               检查次数远少于 Theta*
+ */
+public class ThetaStar implements PathFinder {
+
+	/**
+	 * 结点已在close表中
+	 */
+	private static final int CLOSED = -2;
+	/**
+	 * 平移代价, 两个网格中心之间的代价为平移代价乘以欧氏距离
+	 */
+	private double straightEdge = 1;
+	/**
+	 * 是否延迟检查可直视(Lazy Theta*)
+	 */
+	private boolean lazy = true;
+
+	/**
+	 * 起点到当前结点的代价
+	 */
+	private double[] g = new double[0];
+	/**
+	 * 缓存的 G + H
+	 */
+	private double[] f = new double[0];
+	/**
+	 * 缓存的 H(欧氏距离), F 相同时优先 H 较小的结点
+	 */
+	private double[] h = new double[0];
+	/**
+	 * 父结点下标, 起点的父结点是它自己
+	 */
+	private int[] parent = new int[0];
+	/**
+	 * 结点在堆中的位置, -1 表示不在open表, CLOSED 表示已在close表
+	 */
+	private int[] heapIndex = new int[0];
+	/**
+	 * 结点最后一次被访问时的搜索批次
+	 */
+	private int[] visited = new int[0];
+	private int generation;
+	/**
+	 * 二叉堆(升序), 元素为网格下标
+	 */
+	private int[] heap = new int[0];
+	private int heapSize;
+
+	/**
+	 * 路径拐点(起点到终点的网格下标)
+	 */
+	private int[] path = new int[0];
+	private int pathSize;
+	/**
+	 * 路径长度(代价)
+	 */
+	private double length;
+	/**
+	 * 最近一次搜索扩展(放入close表)的结点数
+	 */
+	private int expanded;
+	/**
+	 * 最近一次搜索的可直视检查次数
+	 */
+	private int sightChecks;
+
+	private OccupancyGrid grid;
+	private int width;
+	private int height;
+	private int start;
+	private int end;
+
+	public ThetaStar() {
+	}
+
+	public ThetaStar(double straightEdge) {
+		this.straightEdge = straightEdge;
+	}
+
+	/**
+	 * 开始算法, 起点与终点即使落在障碍上也视为可通过
+	 *
+	 * @return 是否找到路径
+	 */
+	@Override
+	public boolean search(OccupancyGrid grid, int startX, int startY, int endX, int endY) {
+		this.grid = grid;
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		ensureCapacity(width * height);
+		this.heapSize = 0;
+		this.pathSize = 0;
+		this.length = 0;
+		this.expanded = 0;
+		this.sightChecks = 0;
+		this.start = startY * width + startX;
+		this.end = endY * width + endX;
+
+		visit(start);
+		g[start] = 0;
+		h[start] = distance(start, end);
+		f[start] = h[start];
+		parent[start] = start;
+		push(start);
+
+		while (heapSize > 0) {
+			int current = pop();
+			if (lazy)
+				setVertex(current);
+			heapIndex[current] = CLOSED;
+			expanded++;
+			if (current == end) {
+				length = g[end];
+				drawPath(end);
+				return true;
+			}
+			int x = current % width;
+			int y = current / width;
+			for (int i = 0; i < 8; i++) {
+				int nx = x + GridAStar.DX[i];
+				int ny = y + GridAStar.DY[i];
+				// 是否在地图中
+				if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+					continue;
+				int next = ny * width + nx;
+				// 判断是否是不可通过的结点
+				if (grid.isBlocked(nx, ny) && next != start && next != end)
+					continue;
+				if (visited[next] != generation) {
+					visit(next);
+					g[next] = Double.POSITIVE_INFINITY;
+					h[next] = distance(next, end);
+				} else if (heapIndex[next] == CLOSED) {
+					continue;
+				}
+				updateVertex(current, next);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 以 current 的父结点(可直视时)或 current 作为 next 的父结点
+	 */
+	private void updateVertex(int current, int next) {
+		int p = parent[current];
+		int from;
+		double G;
+		if (lazy || lineOfSight(p, next)) {
+			from = p;
+			G = g[p] + distance(p, next);
+		} else {
+			from = current;
+			G = g[current] + distance(current, next);
+		}
+		if (G < g[next]) {
+			g[next] = G;
+			f[next] = G + h[next];
+			parent[next] = from;
+			if (heapIndex[next] >= 0)
+				siftUp(heapIndex[next], next);
+			else
+				push(next);
+		}
+	}
+
+	/**
+	 * Lazy Theta*: 出堆时父结点不可直视, 改为close表中代价最小的邻结点
+	 */
+	private void setVertex(int node) {
+		int p = parent[node];
+		if (p == node || lineOfSight(p, node))
+			return;
+		int x = node % width;
+		int y = node / width;
+		double best = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < 8; i++) {
+			int nx = x + GridAStar.DX[i];
+			int ny = y + GridAStar.DY[i];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+				continue;
+			int n = ny * width + nx;
+			if (visited[n] != generation || heapIndex[n] != CLOSED)
+				continue;
+			double G = g[n] + distance(n, node);
+			if (G < best) {
+				best = G;
+				parent[node] = n;
+			}
+		}
+		g[node] = best;
+	}
+
+	/**
+	 * 网格 a 与 b 的中心之间是否可直视: 沿线段逐格前进, 经过的网格(不含 a)都不是障碍(起点、终点除外).
+	 * 比较 (0.5 + ix) / nx 与 (0.5 + iy) / ny 决定下一步横向、纵向或恰好经过角点时斜向前进
+	 */
+	public boolean lineOfSight(int a, int b) {
+		sightChecks++;
+		int x = a % width, y = a / width;
+		int x1 = b % width, y1 = b / width;
+		int nx = Math.abs(x1 - x), ny = Math.abs(y1 - y);
+		int sx = x1 > x ? 1 : -1, sy = y1 > y ? 1 : -1;
+		for (int ix = 0, iy = 0; ix < nx || iy < ny;) {
+			long decision = (1L + 2 * ix) * ny - (1L + 2 * iy) * nx;
+			if (decision == 0) {
+				x += sx;
+				y += sy;
+				ix++;
+				iy++;
+			} else if (decision < 0) {
+				x += sx;
+				ix++;
+			} else {
+				y += sy;
+				iy++;
+			}
+			if (grid.isBlocked(x, y)) {
+				int cell = y * width + x;
+				if (cell != start && cell != end)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 两个网格中心之间的代价
+	 */
+	private double distance(int a, int b) {
+		double dx = a % width - b % width;
+		double dy = a / width - b / width;
+		return straightEdge * Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * 按父结点回溯拐点, 结果为起点到终点的顺序
+	 */
+	private void drawPath(int end) {
+		int count = 1;
+		for (int node = end; parent[node] != node; node = parent[node])
+			count++;
+		if (path.length < count)
+			path = new int[Math.max(count, path.length << 1)];
+		pathSize = count;
+		int node = end;
+		path[--count] = node;
+		while (parent[node] != node) {
+			node = parent[node];
+			path[--count] = node;
+		}
+	}
+
+	private void visit(int node) {
+		visited[node] = generation;
+		heapIndex[node] = -1;
+	}
+
+	/**
+	 * 保证缓冲区足够容纳网格, 并开始新的搜索批次
+	 */
+	private void ensureCapacity(int cells) {
+		if (g.length < cells) {
+			g = new double[cells];
+			f = new double[cells];
+			h = new double[cells];
+			parent = new int[cells];
+			heapIndex = new int[cells];
+			visited = new int[cells];
+			heap = new int[cells];
+			generation = 0;
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+
+	private void push(int node) {
+		siftUp(heapSize++, node);
+	}
+
+	private int pop() {
+		int result = heap[0];
+		int last = heap[--heapSize];
+		if (heapSize > 0)
+			siftDown(0, last);
+		return result;
+	}
+
+	/**
+	 * 按 F 升序比较, F 相同时比较 H
+	 */
+	private int compare(int a, int b) {
+		if (f[a] != f[b])
+			return f[a] > f[b] ? 1 : -1;
+		return Double.compare(h[a], h[b]);
+	}
+
+	private void siftUp(int k, int node) {
+		while (k > 0) {
+			int p = (k - 1) >>> 1;
+			int e = heap[p];
+			if (compare(node, e) >= 0)
+				break;
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private void siftDown(int k, int node) {
+		int half = heapSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && compare(c, heap[right]) > 0)
+				c = heap[child = right];
+			if (compare(node, c) <= 0)
+				break;
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	/**
+	 * Getter & Setter; 路径只包含拐点, 相邻两点之间是直线
+	 */
+	@Override
+	public int[] getPath() {
+		return path;
+	}
+
+	@Override
+	public int getPathSize() {
+		return pathSize;
+	}
+
+	@Override
+	public int getPathX(int i) {
+		return path[i] % width;
+	}
+
+	@Override
+	public int getPathY(int i) {
+		return path[i] / width;
+	}
+
+	@Override
+	public double getLength() {
+		return length;
+	}
+
+	@Override
+	public int getExpanded() {
+		return expanded;
+	}
+
+	/**
+	 * 最近一次搜索的可直视检查次数
+	 */
+	public int getSightChecks() {
+		return sightChecks;
+	}
+
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	public void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
+	public double getStraightEdge() {
+		return straightEdge;
+	}
+
+	public void setStraightEdge(double straightEdge) {
+		this.straightEdge = straightEdge;
+	}
+
+}
@@ -0,0 +1,611 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+
+/**
+ * ClassName: VisibilityGraph
+ *
+ * @Description: 障碍物多边形的可视图; 结点为障碍物凸顶点沿角平分线向外移动 clearance 后的位置, 两个结点之间的线段不与任何障碍物的边
+ *               相交(接触也视为相交)且在两端都与障碍物相切时连边. 坐标以网格为单位(u 为列方向, v 为行方向, 网格 (0, 0) 的中心为原点),
+ *               与网格搜索的长度可以直接比较, 但不经过栅格化, 路径是多边形障碍物之间精确的欧氏最短路径. 障碍物的边按桶索引,
+ *               判断可视时只检查线段经过的桶. 构建需要两两检查结点(n 个结点约 n²/2 次可视判断); 增加障碍物时用 withObstacle
+ *               在原图的基础上生成新图. 构建完成后只读, 可被多个线程共享, 查询见 VisibilitySearch
+ */
+public class VisibilityGraph {
+
+	/**
+	 * 默认的顶点外移距离(网格)
+	 */
+	public static final double DEFAULT_CLEARANCE = 0.05;
+	/**
+	 * 边索引的桶大小(网格)
+	 */
+	private static final double BUCKET_SIZE = 4;
+
+	private final GridGeometry grid;
+	private final double clearance;
+	/**
+	 * 网格 (0, 0) 中心的经纬度
+	 */
+	private final double originX;
+	private final double originY;
+
+	/**
+	 * 障碍物的边, 每4个值一组 [u1, v1, u2, v2], 以及所属的障碍物
+	 */
+	private double[] edges = new double[64];
+	private int[] edgeOwner = new int[16];
+	private int edgeCount;
+	/**
+	 * 每个障碍物的环(u, v 交替, 首尾不重复)与外包矩形 [minU, minV, maxU, maxV]
+	 */
+	private final double[][][] rings;
+	private final double[] boxes;
+
+	/**
+	 * 结点: 外移后的位置, 原顶点及其前后顶点(判断相切)
+	 */
+	private double[] nodeU = new double[16];
+	private double[] nodeV = new double[16];
+	private double[] corner = new double[16 * 6];
+	private int nodeCount;
+
+	/**
+	 * 邻接表(CSR): 结点 i 的邻结点为 targets[offsets[i] .. offsets[i + 1])
+	 */
+	private int[] offsets;
+	private int[] targets;
+	private double[] weights;
+
+	/**
+	 * 边索引的范围与桶
+	 */
+	private double minU;
+	private double minV;
+	private int columns;
+	private int rows;
+	private int[][] buckets;
+
+	private VisibilityGraph(GridGeometry grid, int obstacles, double clearance) {
+		this.grid = grid;
+		this.clearance = clearance;
+		this.originX = grid.getX(0);
+		this.originY = grid.getY(0);
+		this.rings = new double[obstacles][][];
+		this.boxes = new double[obstacles * 4];
+	}
+
+	/**
+	 * 构建可视图
+	 *
+	 * @param obstacles 障碍物多边形(经纬度)
+	 */
+	public static VisibilityGraph build(GridGeometry grid, List<Polygon> obstacles) {
+		return build(grid, obstacles, DEFAULT_CLEARANCE);
+	}
+
+	public static VisibilityGraph build(GridGeometry grid, List<Polygon> obstacles, double clearance) {
+		VisibilityGraph graph = new VisibilityGraph(grid, obstacles.size(), clearance);
+		for (int i = 0; i < obstacles.size(); i++)
+			graph.addPolygon(i, obstacles.get(i));
+		graph.buildBuckets();
+		for (int i = 0; i < obstacles.size(); i++)
+			graph.addNodes(i);
+		graph.connect();
+		return graph;
+	}
+
+	/**
+	 * 增加一个障碍物后的可视图, 当前图不变. 保留不在新障碍物内的结点; 原有的边只有外包矩形与新障碍物相交时才与新障碍物的边
+	 * 重新判断, 新障碍物的结点与所有结点判断可视; 结果与重新构建相同(结点顺序可能不同), 耗时约为新结点数 × 结点数次可视判断
+	 */
+	public VisibilityGraph withObstacle(Polygon polygon) {
+		int id = rings.length;
+		VisibilityGraph graph = new VisibilityGraph(grid, id + 1, clearance);
+		System.arraycopy(rings, 0, graph.rings, 0, id);
+		System.arraycopy(boxes, 0, graph.boxes, 0, id * 4);
+		graph.edges = Arrays.copyOf(edges, edges.length);
+		graph.edgeOwner = Arrays.copyOf(edgeOwner, edgeOwner.length);
+		graph.edgeCount = edgeCount;
+		graph.addPolygon(id, polygon);
+		graph.buildBuckets();
+
+		// 原有结点落在新障碍物内的丢弃
+		int[] mapping = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			if (graph.inBox(id, nodeU[i], nodeV[i]) && graph.inside(id, nodeU[i], nodeV[i])) {
+				mapping[i] = -1;
+				continue;
+			}
+			mapping[i] = graph.nodeCount;
+			graph.addNode(nodeU[i], nodeV[i], corner[i * 6], corner[i * 6 + 1], corner[i * 6 + 2], corner[i * 6 + 3],
+					corner[i * 6 + 4], corner[i * 6 + 5]);
+		}
+		int kept = graph.nodeCount;
+		graph.addNodes(id);
+
+		int[] pairs = new int[Math.max(64, targets.length)];
+		int count = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				int j = targets[k];
+				if (j <= i || mapping[i] < 0 || mapping[j] < 0)
+					continue;
+				int a = before(i, j) ? i : j, b = a == i ? j : i;
+				if (graph.blocks(id, nodeU[a], nodeV[a], nodeU[b], nodeV[b]))
+					continue;
+				pairs = addPair(pairs, count++, mapping[i], mapping[j]);
+			}
+		}
+		for (int i = kept; i < graph.nodeCount; i++) {
+			for (int j = 0; j < i; j++) {
+				if (graph.isLinked(i, j))
+					pairs = addPair(pairs, count++, i, j);
+			}
+		}
+		graph.toAdjacency(pairs, count);
+		return graph;
+	}
+
+	/**
+	 * 多边形转为网格坐标的环; 外环按逆时针、内环按顺时针排列, 使障碍物始终在边的左侧
+	 */
+	private void addPolygon(int id, Polygon polygon) {
+		List<List<Point>> coordinates = polygon.coordinates();
+		double[][] polygonRings = new double[coordinates.size()][];
+		double minU = Double.POSITIVE_INFINITY, minV = Double.POSITIVE_INFINITY;
+		double maxU = Double.NEGATIVE_INFINITY, maxV = Double.NEGATIVE_INFINITY;
+		for (int r = 0; r < coordinates.size(); r++) {
+			List<Point> points = coordinates.get(r);
+			int n = points.size();
+			if (n > 1 && points.get(0).equals(points.get(n - 1)))
+				n--;
+			double[] ring = new double[n * 2];
+			for (int i = 0; i < n; i++) {
+				ring[i * 2] = toU(points.get(i).longitude());
+				ring[i * 2 + 1] = toV(points.get(i).latitude());
+				minU = Math.min(minU, ring[i * 2]);
+				minV = Math.min(minV, ring[i * 2 + 1]);
+				maxU = Math.max(maxU, ring[i * 2]);
+				maxV = Math.max(maxV, ring[i * 2 + 1]);
+			}
+			double area = area(ring);
+			if (r == 0 ? area < 0 : area > 0)
+				reverse(ring);
+			polygonRings[r] = ring;
+			for (int i = 0; i < n; i++) {
+				int j = (i + 1) % n;
+				addEdge(id, ring[i * 2], ring[i * 2 + 1], ring[j * 2], ring[j * 2 + 1]);
+			}
+		}
+		rings[id] = polygonRings;
+		boxes[id * 4] = minU;
+		boxes[id * 4 + 1] = minV;
+		boxes[id * 4 + 2] = maxU;
+		boxes[id * 4 + 3] = maxV;
+	}
+
+	private static double area(double[] ring) {
+		double area = 0;
+		int n = ring.length / 2;
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+			area += ring[i * 2] * ring[j * 2 + 1] - ring[j * 2] * ring[i * 2 + 1];
+		}
+		return area / 2;
+	}
+
+	private static void reverse(double[] ring) {
+		for (int i = 0, j = ring.length / 2 - 1; i < j; i++, j--) {
+			double u = ring[i * 2], v = ring[i * 2 + 1];
+			ring[i * 2] = ring[j * 2];
+			ring[i * 2 + 1] = ring[j * 2 + 1];
+			ring[j * 2] = u;
+			ring[j * 2 + 1] = v;
+		}
+	}
+
+	private void addEdge(int owner, double u1, double v1, double u2, double v2) {
+		if (edgeCount == edgeOwner.length) {
+			edgeOwner = Arrays.copyOf(edgeOwner, edgeCount << 1);
+			edges = Arrays.copyOf(edges, edgeCount << 3);
+		}
+		edges[edgeCount * 4] = u1;
+		edges[edgeCount * 4 + 1] = v1;
+		edges[edgeCount * 4 + 2] = u2;
+		edges[edgeCount * 4 + 3] = v2;
+		edgeOwner[edgeCount++] = owner;
+	}
+
+	/**
+	 * 按边的外包矩形分桶
+	 */
+	private void buildBuckets() {
+		double maxU = Double.NEGATIVE_INFINITY, maxV = Double.NEGATIVE_INFINITY;
+		minU = Double.POSITIVE_INFINITY;
+		minV = Double.POSITIVE_INFINITY;
+		for (int e = 0; e < edgeCount; e++) {
+			minU = Math.min(minU, Math.min(edges[e * 4], edges[e * 4 + 2]));
+			minV = Math.min(minV, Math.min(edges[e * 4 + 1], edges[e * 4 + 3]));
+			maxU = Math.max(maxU, Math.max(edges[e * 4], edges[e * 4 + 2]));
+			maxV = Math.max(maxV, Math.max(edges[e * 4 + 1], edges[e * 4 + 3]));
+		}
+		if (edgeCount == 0) {
+			minU = minV = maxU = maxV = 0;
+		}
+		columns = (int) ((maxU - minU) / BUCKET_SIZE) + 1;
+		rows = (int) ((maxV - minV) / BUCKET_SIZE) + 1;
+		int[] counts = new int[columns * rows];
+		for (int pass = 0; pass < 2; pass++) {
+			for (int e = 0; e < edgeCount; e++) {
+				int c0 = bucketColumn(Math.min(edges[e * 4], edges[e * 4 + 2]));
+				int c1 = bucketColumn(Math.max(edges[e * 4], edges[e * 4 + 2]));
+				int r0 = bucketRow(Math.min(edges[e * 4 + 1], edges[e * 4 + 3]));
+				int r1 = bucketRow(Math.max(edges[e * 4 + 1], edges[e * 4 + 3]));
+				for (int r = r0; r <= r1; r++) {
+					for (int c = c0; c <= c1; c++) {
+						if (pass == 0)
+							counts[r * columns + c]++;
+						else
+							buckets[r * columns + c][--counts[r * columns + c]] = e;
+					}
+				}
+			}
+			if (pass == 0) {
+				buckets = new int[columns * rows][];
+				for (int b = 0; b < buckets.length; b++)
+					buckets[b] = new int[counts[b]];
+			}
+		}
+	}
+
+	private int bucketColumn(double u) {
+		return Math.min(Math.max((int) Math.floor((u - minU) / BUCKET_SIZE), 0), columns - 1);
+	}
+
+	private int bucketRow(double v) {
+		return Math.min(Math.max((int) Math.floor((v - minV) / BUCKET_SIZE), 0), rows - 1);
+	}
+
+	/**
+	 * 障碍物 id 的凸顶点沿外角平分线外移 clearance, 落在其他障碍物内的丢弃
+	 */
+	private void addNodes(int id) {
+		for (double[] ring : rings[id]) {
+			int n = ring.length / 2;
+			if (n < 3)
+				continue;
+			for (int i = 0; i < n; i++) {
+				int p = (i + n - 1) % n, q = (i + 1) % n;
+				double pu = ring[p * 2], pv = ring[p * 2 + 1];
+				double u = ring[i * 2], v = ring[i * 2 + 1];
+				double qu = ring[q * 2], qv = ring[q * 2 + 1];
+				// 障碍物在边的左侧, 左转即为障碍物的凸顶点
+				if (cross(u - pu, v - pv, qu - u, qv - v) <= 0)
+					continue;
+				double l1 = Math.hypot(u - pu, v - pv), l2 = Math.hypot(qu - u, qv - v);
+				if (l1 == 0 || l2 == 0)
+					continue;
+				// 两条边右侧法向量之和即外角平分线方向
+				double du = (v - pv) / l1 + (qv - v) / l2;
+				double dv = -(u - pu) / l1 - (qu - u) / l2;
+				double length = Math.hypot(du, dv);
+				double nu = u + du / length * clearance;
+				double nv = v + dv / length * clearance;
+				if (contains(nu, nv, null))
+					continue;
+				addNode(nu, nv, u, v, pu, pv, qu, qv);
+			}
+		}
+	}
+
+	private void addNode(double nu, double nv, double u, double v, double pu, double pv, double qu, double qv) {
+		if (nodeCount == nodeU.length) {
+			nodeU = Arrays.copyOf(nodeU, nodeCount << 1);
+			nodeV = Arrays.copyOf(nodeV, nodeCount << 1);
+			corner = Arrays.copyOf(corner, (nodeCount << 1) * 6);
+		}
+		nodeU[nodeCount] = nu;
+		nodeV[nodeCount] = nv;
+		double[] c = { u, v, pu, pv, qu, qv };
+		System.arraycopy(c, 0, corner, nodeCount * 6, 6);
+		nodeCount++;
+	}
+
+	/**
+	 * 两两检查结点: 先判断两端是否相切, 再检查线段是否与障碍物的边相交
+	 */
+	private void connect() {
+		int[] pairs = new int[64];
+		int count = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			for (int j = i + 1; j < nodeCount; j++) {
+				if (isLinked(i, j))
+					pairs = addPair(pairs, count++, i, j);
+			}
+		}
+		toAdjacency(pairs, count);
+	}
+
+	private boolean isLinked(int i, int j) {
+		if (!isTangent(i, nodeU[j], nodeV[j]) || !isTangent(j, nodeU[i], nodeV[i]))
+			return false;
+		// 按坐标确定线段方向, 恰好经过顶点时浮点误差与结点顺序无关, withObstacle 与重新构建的结果相同
+		return before(i, j) ? isVisible(nodeU[i], nodeV[i], nodeU[j], nodeV[j], null)
+				: isVisible(nodeU[j], nodeV[j], nodeU[i], nodeV[i], null);
+	}
+
+	private boolean before(int i, int j) {
+		return nodeU[i] < nodeU[j] || (nodeU[i] == nodeU[j] && nodeV[i] < nodeV[j]);
+	}
+
+	private static int[] addPair(int[] pairs, int count, int i, int j) {
+		if (count * 2 == pairs.length)
+			pairs = Arrays.copyOf(pairs, pairs.length << 1);
+		pairs[count * 2] = i;
+		pairs[count * 2 + 1] = j;
+		return pairs;
+	}
+
+	/**
+	 * 由 count 对结点生成邻接表
+	 */
+	private void toAdjacency(int[] pairs, int count) {
+		int[] degree = new int[nodeCount];
+		for (int k = 0; k < count * 2; k++)
+			degree[pairs[k]]++;
+		offsets = new int[nodeCount + 1];
+		for (int i = 0; i < nodeCount; i++)
+			offsets[i + 1] = offsets[i] + degree[i];
+		targets = new int[count * 2];
+		weights = new double[count * 2];
+		int[] next = Arrays.copyOf(offsets, nodeCount);
+		for (int k = 0; k < count; k++) {
+			int i = pairs[k * 2], j = pairs[k * 2 + 1];
+			double w = Math.hypot(nodeU[i] - nodeU[j], nodeV[i] - nodeV[j]);
+			targets[next[i]] = j;
+			weights[next[i]++] = w;
+			targets[next[j]] = i;
+			weights[next[j]++] = w;
+		}
+	}
+
+	/**
+	 * 线段 (ua, va)-(ub, vb) 是否与障碍物 id 的边相交, 线段的外包矩形与障碍物的外包矩形不相交时直接返回 false
+	 */
+	private boolean blocks(int id, double ua, double va, double ub, double vb) {
+		if (Math.max(ua, ub) < boxes[id * 4] || Math.min(ua, ub) > boxes[id * 4 + 2]
+				|| Math.max(va, vb) < boxes[id * 4 + 1] || Math.min(va, vb) > boxes[id * 4 + 3])
+			return false;
+		for (double[] ring : rings[id]) {
+			int n = ring.length / 2;
+			for (int i = 0; i < n; i++) {
+				int j = (i + 1) % n;
+				if (intersects(ua, va, ub, vb, ring[i * 2], ring[i * 2 + 1], ring[j * 2], ring[j * 2 + 1]))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 结点 i 到 (u, v) 的直线在原顶点处与障碍物相切(前后顶点在直线同侧), 最短路径只会在相切的顶点处转弯
+	 */
+	boolean isTangent(int i, double u, double v) {
+		double ou = corner[i * 6], ov = corner[i * 6 + 1];
+		double s1 = cross(u - ou, v - ov, corner[i * 6 + 2] - ou, corner[i * 6 + 3] - ov);
+		double s2 = cross(u - ou, v - ov, corner[i * 6 + 4] - ou, corner[i * 6 + 5] - ov);
+		return s1 * s2 >= 0;
+	}
+
+	/**
+	 * 线段 (ua, va)-(ub, vb) 是否不与障碍物的边相交(接触也视为相交), ignore 中的障碍物不检查
+	 */
+	public boolean isVisible(double ua, double va, double ub, double vb, int[] ignore) {
+		if (edgeCount == 0)
+			return true;
+		// 线段裁剪到桶的范围内(Liang-Barsky), 范围外没有边
+		double du = ub - ua, dv = vb - va;
+		double t0 = 0, t1 = 1;
+		double[] p = { -du, du, -dv, dv };
+		double[] q = { ua - minU, minU + columns * BUCKET_SIZE - ua, va - minV, minV + rows * BUCKET_SIZE - va };
+		for (int k = 0; k < 4; k++) {
+			if (p[k] == 0) {
+				if (q[k] < 0)
+					return true;
+			} else if (p[k] < 0) {
+				t0 = Math.max(t0, q[k] / p[k]);
+			} else {
+				t1 = Math.min(t1, q[k] / p[k]);
+			}
+		}
+		if (t0 > t1)
+			return true;
+		double u0 = ua + du * t0, v0 = va + dv * t0;
+
+		// 沿线段逐桶前进(Amanatides-Woo), 只检查经过的桶中的边
+		int c = bucketColumn(u0), r = bucketRow(v0);
+		int c1 = bucketColumn(ua + du * t1), r1 = bucketRow(va + dv * t1);
+		int stepC = du > 0 ? 1 : -1, stepR = dv > 0 ? 1 : -1;
+		double tMaxC = du == 0 ? Double.POSITIVE_INFINITY : ((c + (du > 0 ? 1 : 0)) * BUCKET_SIZE + minU - ua) / du;
+		double tMaxR = dv == 0 ? Double.POSITIVE_INFINITY : ((r + (dv > 0 ? 1 : 0)) * BUCKET_SIZE + minV - va) / dv;
+		double tDeltaC = du == 0 ? Double.POSITIVE_INFINITY : BUCKET_SIZE / Math.abs(du);
+		double tDeltaR = dv == 0 ? Double.POSITIVE_INFINITY : BUCKET_SIZE / Math.abs(dv);
+		while (true) {
+			for (int e : buckets[r * columns + c]) {
+				if (ignore != null && contains(ignore, edgeOwner[e]))
+					continue;
+				if (intersects(ua, va, ub, vb, edges[e * 4], edges[e * 4 + 1], edges[e * 4 + 2], edges[e * 4 + 3]))
+					return false;
+			}
+			if (c == c1 && r == r1)
+				break;
+			// 已到达终点所在的列(行)时只沿另一方向前进, 避免浮点误差越界
+			if (r == r1 || (c != c1 && tMaxC < tMaxR)) {
+				c += stepC;
+				tMaxC += tDeltaC;
+			} else {
+				r += stepR;
+				tMaxR += tDeltaR;
+			}
+		}
+		return true;
+	}
+
+	private static boolean contains(int[] ids, int id) {
+		for (int i : ids)
+			if (i == id)
+				return true;
+		return false;
+	}
+
+	private boolean inBox(int id, double u, double v) {
+		return u >= boxes[id * 4] && u <= boxes[id * 4 + 2] && v >= boxes[id * 4 + 1] && v <= boxes[id * 4 + 3];
+	}
+
+	/**
+	 * 包含 (u, v)(含边界)的障碍物
+	 */
+	public int[] containing(double u, double v) {
+		int[] result = new int[0];
+		for (int id = 0; id < rings.length; id++) {
+			if (u < boxes[id * 4] || u > boxes[id * 4 + 2] || v < boxes[id * 4 + 1] || v > boxes[id * 4 + 3])
+				continue;
+			if (inside(id, u, v)) {
+				result = Arrays.copyOf(result, result.length + 1);
+				result[result.length - 1] = id;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * (u, v) 是否在障碍物内(含边界), ignore 中的障碍物不检查
+	 */
+	private boolean contains(double u, double v, int[] ignore) {
+		for (int id = 0; id < rings.length; id++) {
+			if (u < boxes[id * 4] || u > boxes[id * 4 + 2] || v < boxes[id * 4 + 1] || v > boxes[id * 4 + 3])
+				continue;
+			if ((ignore == null || !contains(ignore, id)) && inside(id, u, v))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 射线法判断点是否在多边形内(在外环内且不在内环内), 在边上视为在内
+	 */
+	private boolean inside(int id, double u, double v) {
+		boolean inside = false;
+		for (double[] ring : rings[id]) {
+			int n = ring.length / 2;
+			for (int i = 0, j = n - 1; i < n; j = i++) {
+				double ui = ring[i * 2], vi = ring[i * 2 + 1], uj = ring[j * 2], vj = ring[j * 2 + 1];
+				if (cross(uj - ui, vj - vi, u - ui, v - vi) == 0 && u >= Math.min(ui, uj) && u <= Math.max(ui, uj)
+						&& v >= Math.min(vi, vj) && v <= Math.max(vi, vj))
+					return true;
+				if ((vi > v) != (vj > v) && u < (uj - ui) * (v - vi) / (vj - vi) + ui)
+					inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	private static double cross(double au, double av, double bu, double bv) {
+		return au * bv - av * bu;
+	}
+
+	/**
+	 * 线段 a-b 与 c-d 是否相交(含端点接触与共线重叠)
+	 */
+	private static boolean intersects(double au, double av, double bu, double bv, double cu, double cv, double du,
+			double dv) {
+		double d1 = cross(du - cu, dv - cv, au - cu, av - cv);
+		double d2 = cross(du - cu, dv - cv, bu - cu, bv - cv);
+		double d3 = cross(bu - au, bv - av, cu - au, cv - av);
+		double d4 = cross(bu - au, bv - av, du - au, dv - av);
+		if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0)))
+			return true;
+		return (d1 == 0 && between(cu, cv, du, dv, au, av)) || (d2 == 0 && between(cu, cv, du, dv, bu, bv))
+				|| (d3 == 0 && between(au, av, bu, bv, cu, cv)) || (d4 == 0 && between(au, av, bu, bv, du, dv));
+	}
+
+	/**
+	 * 与线段 a-b 共线的点 p 是否在线段上
+	 */
+	private static boolean between(double au, double av, double bu, double bv, double pu, double pv) {
+		return pu >= Math.min(au, bu) && pu <= Math.max(au, bu) && pv >= Math.min(av, bv) && pv <= Math.max(av, bv);
+	}
+
+	/**
+	 * 经度转为网格坐标 u(列方向)
+	 */
+	public double toU(double x) {
+		return (x - originX) / grid.getCellWidth();
+	}
+
+	/**
+	 * 纬度转为网格坐标 v(行方向, 由北向南)
+	 */
+	public double toV(double y) {
+		return (originY - y) / grid.getCellHeight();
+	}
+
+	public double toX(double u) {
+		return originX + u * grid.getCellWidth();
+	}
+
+	public double toY(double v) {
+		return originY - v * grid.getCellHeight();
+	}
+
+	/**
+	 * Getter & Setter
+	 */
+	public GridGeometry getGrid() {
+		return grid;
+	}
+
+	public double getClearance() {
+		return clearance;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * 无向边数
+	 */
+	public int getEdgeCount() {
+		return targets.length / 2;
+	}
+
+	public double getNodeU(int i) {
+		return nodeU[i];
+	}
+
+	public double getNodeV(int i) {
+		return nodeV[i];
+	}
+
+	/**
+	 * 结点 i 的邻结点为 getTarget(k), k 属于 [getOffset(i), getOffset(i + 1))
+	 */
+	public int getOffset(int i) {
+		return offsets[i];
+	}
+
+	public int getTarget(int k) {
+		return targets[k];
+	}
+
+	public double getWeight(int k) {
+		return weights[k];
+	}
+
+}
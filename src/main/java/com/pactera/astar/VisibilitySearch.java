@@ -0,0 +1,263 @@
+package com.pactera.astar;
+
+import java.util.Arrays;
+
+/**
+ * ClassName: VisibilitySearch
+ *
+ * @Description: 在 VisibilityGraph 上搜索两点间的欧氏最短路径(A星, 启发函数为直线距离); 起点与终点不加入可视图,
+ *               每次搜索时计算起点到各结点、各结点到终点的可视性(终点只在结点出堆时检查). 起点或终点落在障碍物内(或边上)时,
+ *               与该障碍物的边相交不影响可视, 与网格搜索中起点、终点即使是障碍也可通过一致. 缓冲区按结点数复用(批次标记),
+ *               同一时刻只能被一个线程使用
+ */
+public class VisibilitySearch {
+
+	private static final int CLOSED = -2;
+
+	private double[] g = new double[0];
+	private double[] f = new double[0];
+	private int[] parent = new int[0];
+	private int[] heapIndex = new int[0];
+	private int[] visited = new int[0];
+	private int generation;
+	private int[] heap = new int[0];
+	private int heapSize;
+
+	/**
+	 * 路径拐点的网格坐标(起点到终点, 含起点与终点)
+	 */
+	private double[] pathU = new double[0];
+	private double[] pathV = new double[0];
+	private int pathSize;
+	private double length;
+	private int expanded;
+
+	private VisibilityGraph graph;
+	private double startU;
+	private double startV;
+	private double endU;
+	private double endV;
+	private int[] ignoreStart;
+	private int[] ignoreEnd;
+
+	public VisibilitySearch() {
+	}
+
+	/**
+	 * 搜索网格坐标 (startU, startV) 到 (endU, endV) 的路径
+	 *
+	 * @return 是否找到路径
+	 */
+	public boolean search(VisibilityGraph graph, double startU, double startV, double endU, double endV) {
+		this.graph = graph;
+		this.startU = startU;
+		this.startV = startV;
+		this.endU = endU;
+		this.endV = endV;
+		this.pathSize = 0;
+		this.length = 0;
+		this.expanded = 0;
+		this.heapSize = 0;
+		this.ignoreStart = graph.containing(startU, startV);
+		this.ignoreEnd = graph.containing(endU, endV);
+
+		int nodes = graph.getNodeCount();
+		ensureCapacity(nodes + 2);
+		int start = nodes, end = nodes + 1;
+		visit(start);
+		g[start] = 0;
+		f[start] = distance(startU, startV, endU, endV);
+		parent[start] = -1;
+		push(start);
+		while (heapSize > 0) {
+			int current = pop();
+			heapIndex[current] = CLOSED;
+			expanded++;
+			if (current == end) {
+				length = g[end];
+				drawPath(end);
+				return true;
+			}
+			if (current == start) {
+				int[] ignore = union(ignoreStart, ignoreEnd);
+				if (graph.isVisible(startU, startV, endU, endV, ignore))
+					relax(current, end, distance(startU, startV, endU, endV));
+				for (int i = 0; i < nodes; i++) {
+					double u = graph.getNodeU(i), v = graph.getNodeV(i);
+					if (graph.isTangent(i, startU, startV) && graph.isVisible(startU, startV, u, v, ignoreStart))
+						relax(current, i, distance(startU, startV, u, v));
+				}
+				continue;
+			}
+			double u = graph.getNodeU(current), v = graph.getNodeV(current);
+			if (graph.isTangent(current, endU, endV) && graph.isVisible(u, v, endU, endV, ignoreEnd))
+				relax(current, end, distance(u, v, endU, endV));
+			for (int k = graph.getOffset(current); k < graph.getOffset(current + 1); k++)
+				relax(current, graph.getTarget(k), graph.getWeight(k));
+		}
+		return false;
+	}
+
+	private static int[] union(int[] a, int[] b) {
+		int[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	private void relax(int current, int next, double weight) {
+		if (visited[next] == generation && heapIndex[next] == CLOSED)
+			return;
+		double G = g[current] + weight;
+		if (visited[next] != generation) {
+			visit(next);
+			g[next] = Double.POSITIVE_INFINITY;
+		}
+		if (G < g[next]) {
+			g[next] = G;
+			f[next] = G + distance(u(next), v(next), endU, endV);
+			parent[next] = current;
+			if (heapIndex[next] >= 0)
+				siftUp(heapIndex[next], next);
+			else
+				push(next);
+		}
+	}
+
+	private double u(int node) {
+		int nodes = graph.getNodeCount();
+		return node == nodes ? startU : node == nodes + 1 ? endU : graph.getNodeU(node);
+	}
+
+	private double v(int node) {
+		int nodes = graph.getNodeCount();
+		return node == nodes ? startV : node == nodes + 1 ? endV : graph.getNodeV(node);
+	}
+
+	private static double distance(double u1, double v1, double u2, double v2) {
+		return Math.hypot(u1 - u2, v1 - v2);
+	}
+
+	/**
+	 * 按父结点回溯拐点, 结果为起点到终点的顺序
+	 */
+	private void drawPath(int end) {
+		int count = 0;
+		for (int node = end; node != -1; node = parent[node])
+			count++;
+		if (pathU.length < count) {
+			pathU = new double[Math.max(count, pathU.length << 1)];
+			pathV = new double[pathU.length];
+		}
+		pathSize = count;
+		for (int node = end; node != -1; node = parent[node]) {
+			count--;
+			pathU[count] = u(node);
+			pathV[count] = v(node);
+		}
+	}
+
+	private void visit(int node) {
+		visited[node] = generation;
+		heapIndex[node] = -1;
+	}
+
+	/**
+	 * 保证缓冲区足够容纳所有结点, 并开始新的搜索批次
+	 */
+	private void ensureCapacity(int nodes) {
+		if (g.length < nodes) {
+			g = new double[nodes];
+			f = new double[nodes];
+			parent = new int[nodes];
+			heapIndex = new int[nodes];
+			visited = new int[nodes];
+			heap = new int[nodes];
+			generation = 0;
+		}
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+	}
+
+	private void push(int node) {
+		siftUp(heapSize++, node);
+	}
+
+	private int pop() {
+		int result = heap[0];
+		int last = heap[--heapSize];
+		if (heapSize > 0)
+			siftDown(0, last);
+		return result;
+	}
+
+	private void siftUp(int k, int node) {
+		while (k > 0) {
+			int p = (k - 1) >>> 1;
+			int e = heap[p];
+			if (f[node] >= f[e])
+				break;
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private void siftDown(int k, int node) {
+		int half = heapSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && f[c] > f[heap[right]])
+				c = heap[child = right];
+			if (f[node] <= f[c])
+				break;
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	/**
+	 * Getter & Setter; 路径包含起点与终点, 相邻两点之间是直线
+	 */
+	public int getPathSize() {
+		return pathSize;
+	}
+
+	/**
+	 * 第 i 个拐点的网格坐标 u(列方向)
+	 */
+	public double getPathU(int i) {
+		return pathU[i];
+	}
+
+	/**
+	 * 第 i 个拐点的网格坐标 v(行方向)
+	 */
+	public double getPathV(int i) {
+		return pathV[i];
+	}
+
+	/**
+	 * 路径长度(网格)
+	 */
+	public double getLength() {
+		return length;
+	}
+
+	public int getExpanded() {
+		return expanded;
+	}
+
+	public VisibilityGraph getGraph() {
+		return graph;
+	}
+
+}
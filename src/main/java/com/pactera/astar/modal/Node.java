@@ -42,7 +42,8 @@ public class Node implements Comparable<Node> {
 			return 1;
 		else if (G + H < o.G + o.H)
 			return -1;
-		return 0;
+		// F 相同时优先 H 较小(更接近终点)的结点
+		return Double.compare(H, o.H);
 	}
 
 	public Coord getCoord() {
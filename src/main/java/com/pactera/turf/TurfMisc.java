@@ -1,6 +1,5 @@
 package com.pactera.turf;
 
-import java.util.Collections;
 import java.util.List;
 
 import com.google.common.collect.Lists;
@@ -11,7 +10,10 @@ import com.mapbox.geojson.LineString;
 import com.mapbox.geojson.Point;
 import com.mapbox.geojson.Polygon;
 import com.mapbox.turf.TurfMeasurement;
-import com.pactera.astar.MatrixMap;
+import com.pactera.astar.GridAStar;
+import com.pactera.astar.GridGeometry;
+import com.pactera.astar.OccupancyGrid;
+import com.pactera.astar.Rasterizer;
 
 public class TurfMisc {
 
@@ -19,119 +21,81 @@ public class TurfMisc {
 	}
 
 	public static LineString shortestPath(Point startPt, Point endPt, GeoJson geojson) {
-		// Normalize Inputs
-		Feature startFt = Feature.fromGeometry(startPt);
-		Feature endFt = Feature.fromGeometry(endPt);
+		return shortestPath(startPt, endPt, geojson, 1);
+	}
 
+	/**
+	 * 计算2点间避开障碍物的最短路径
+	 *
+	 * @param parallelism 栅格化并行度, 小于等于 1 时串行
+	 */
+	public static LineString shortestPath(Point startPt, Point endPt, GeoJson geojson, int parallelism) {
 		// Handle obstacles
 		FeatureCollection obstacles = null;
-		FeatureCollection collection = null;
 		if ("FeatureCollection".equals(geojson.type())) {
 			FeatureCollection featureCollection = (FeatureCollection) geojson;
 			if (featureCollection.features().size() == 0) {
 				return LineString.fromLngLats(Lists.newArrayList(startPt, endPt));
 			} else {
 				obstacles = featureCollection;
-				List<Feature> features = Lists.newArrayList(featureCollection.features());
-				features.add(startFt);
-				features.add(endFt);
-				collection = FeatureCollection.fromFeatures(features);
 			}
 		} else if ("Feature".equals(geojson.type())) {
 			Feature feature = (Feature) geojson;
 			if ("Polygon".equals(feature.geometry().type())) {
 				// define path grid area
 				obstacles = FeatureCollection.fromFeatures(new Feature[] { Feature.fromGeometry(feature.geometry()) });
-				collection = FeatureCollection
-						.fromFeatures(new Feature[] { Feature.fromGeometry(feature.geometry()), startFt, endFt });
 			}
 		} else {
 			throw new Error("invalid obstacles");
 		}
 
+		// 障碍物外包矩形扩展到起点与终点, 不再复制要素列表
+		double[] bbox = TurfMeasurement.bbox(obstacles);
+		for (Point point : new Point[] { startPt, endPt }) {
+			bbox[0] = Math.min(bbox[0], point.longitude());
+			bbox[1] = Math.min(bbox[1], point.latitude());
+			bbox[2] = Math.max(bbox[2], point.longitude());
+			bbox[3] = Math.max(bbox[3], point.latitude());
+		}
 		double[] box = TurfMeasurement.bbox(com.pactera.turf.TurfTransformation
-				.transformScale(TurfMeasurement.bboxPolygon(TurfMeasurement.bbox(collection)), 1.15));
+				.transformScale(TurfMeasurement.bboxPolygon(bbox), 1.15));
 
-		double width = TurfMeasurement.distance(Point.fromLngLat(box[0], box[1]), Point.fromLngLat(box[2], box[1]));
-		double resolution = width / 100;
+		GridGeometry grid = GridGeometry.fromBBox(box);
+		OccupancyGrid occupancy = new Rasterizer(parallelism).rasterize(grid, obstacles);
 
-		double west = box[0];
-		double south = box[1];
-		double east = box[2];
-		double north = box[3];
-
-		double xFraction = resolution
-				/ (TurfMeasurement.distance(Point.fromLngLat(west, south), Point.fromLngLat(east, south)));
-		double cellWidth = xFraction * (east - west);
-		double yFraction = resolution
-				/ (TurfMeasurement.distance(Point.fromLngLat(west, south), Point.fromLngLat(west, north)));
-		double cellHeight = yFraction * (north - south);
-
-		double bboxHorizontalSide = (east - west);
-		double bboxVerticalSide = (north - south);
-		double columns = Math.floor(bboxHorizontalSide / cellWidth);
-		double rows = Math.floor(bboxVerticalSide / cellHeight);
-		// adjust origin of the grid
-		double deltaX = (bboxHorizontalSide - columns * cellWidth) / 2;
-		double deltaY = (bboxVerticalSide - rows * cellHeight) / 2;
-
-		// loop through points only once to speed up process
-		// define matrix grid for A-star algorithm
-		String[][] pointMatrix = new String[(int) rows + 1][(int) columns + 1];
-		int[][] matrix = new int[(int) rows + 1][(int) columns + 1];
+		// set closest points
 		int[] closestToStart = new int[2];
 		int[] closestToEnd = new int[2];
 		double minDistStart = Double.MAX_VALUE;
 		double minDistEnd = Double.MAX_VALUE;
-		double currentY = north - deltaY;
-		int r = 0;
-		while (currentY >= south) {
-			String[] pointMatrixRow = new String[(int) columns + 1];
-			int[] matrixRow = new int[(int) columns + 1];
-			double currentX = west + deltaX;
-			int c = 0;
-			while (currentX <= east) {
-				Point pt = Point.fromLngLat(currentX, currentY);
-				boolean isInsideObstacle = isInside(pt, obstacles);
-				matrixRow[c] = isInsideObstacle ? 1 : 0;
-				// map point's coords
-				pointMatrixRow[c] = currentX + "|" + currentY;
-				// set closest points
+		for (int r = 0; r < grid.getRows(); r++) {
+			for (int c = 0; c < grid.getColumns(); c++) {
+				if (occupancy.isBlocked(c, r))
+					continue;
+				Point pt = Point.fromLngLat(grid.getX(c), grid.getY(r));
 				double distStart = TurfMeasurement.distance(pt, startPt);
-				if (!isInsideObstacle && distStart < minDistStart) {
+				if (distStart < minDistStart) {
 					minDistStart = distStart;
 					closestToStart[0] = c;
 					closestToStart[1] = r;
 				}
 				double distEnd = TurfMeasurement.distance(pt, endPt);
-				if (!isInsideObstacle && distEnd < minDistEnd) {
+				if (distEnd < minDistEnd) {
 					minDistEnd = distEnd;
 					closestToEnd[0] = c;
 					closestToEnd[1] = r;
 				}
-
-				currentX += cellWidth;
-				c++;
 			}
-			matrix[r] = matrixRow;
-			pointMatrix[r] = pointMatrixRow;
-			currentY -= cellHeight;
-			r++;
 		}
 
 		// a-star algorithm
-		MatrixMap info = new MatrixMap();
-		info.setMatrix(matrix);
-		info.shortestPath(new double[] { closestToStart[0], closestToStart[1] },
-				new double[] { closestToEnd[0], closestToEnd[1] });
-		List<int[]> results = info.getPaths();
-		Collections.reverse(results);
+		GridAStar astar = new GridAStar();
+		astar.search(occupancy, closestToStart[0], closestToStart[1], closestToEnd[0], closestToEnd[1]);
 
 		List<Point> path = Lists.newArrayList();
 		path.add(startPt);
-		for (int[] coord : results) {
-			String[] coords = pointMatrix[coord[1]][coord[0]].split("\\|");
-			path.add(Point.fromLngLat(Double.parseDouble(coords[0]), Double.parseDouble(coords[1])));
+		for (int i = 0; i < astar.getPathSize(); i++) {
+			path.add(Point.fromLngLat(grid.getX(astar.getPathX(i)), grid.getY(astar.getPathY(i))));
 		}
 		path.add(endPt);
 
@@ -35,11 +35,13 @@ public class TurfUtils {
 	 */
 	public static boolean inRing(Point pt, List<Point> ring, boolean ignoreBoundary) {
 		boolean isInside = false;
-		if (ring.get(0).longitude() == ring.get(ring.size() - 1).longitude()
-				&& ring.get(0).latitude() == ring.get(ring.size() - 1).latitude())
-			ring.remove(ring.size() - 1);
+		// 忽略闭合点, 不修改传入的 ring 以便多线程共享
+		int size = ring.size();
+		if (ring.get(0).longitude() == ring.get(size - 1).longitude()
+				&& ring.get(0).latitude() == ring.get(size - 1).latitude())
+			size--;
 
-		for (int i = 0, j = ring.size() - 1; i < ring.size(); j = i++) {
+		for (int i = 0, j = size - 1; i < size; j = i++) {
 			double xi = ring.get(i).longitude();
 			double yi = ring.get(i).latitude();
 			double xj = ring.get(j).longitude();
@@ -1,9 +1,36 @@
 package com.pactera.astar;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.google.common.collect.Lists;
+import com.mapbox.geojson.Feature;
 import com.mapbox.geojson.FeatureCollection;
 import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
 import com.mapbox.turf.TurfConstants;
 import com.mapbox.turf.TurfMeasurement;
+import com.pactera.astar.modal.Coord;
+import com.pactera.astar.modal.Node;
+import com.pactera.turf.TurfMisc;
+import com.sun.management.ThreadMXBean;
 
 import junit.framework.TestCase;
 
@@ -555,19 +582,1447 @@ public class MatrixMapTest extends TestCase {
 			+ "            117.227351," + "            31.750481" + "          ]" + "        ]" + "      }" + "    }"
 			+ "  ]" + "}";
 
-	public void generateMatrix() {
+	public void testGenerateMatrix() {
 		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
 		MatrixMap map = new MatrixMap(collection);
-		AStar.printMap(map.getMatrix());
+		int[][] matrix = map.getMatrix();
+		assertEquals(66, matrix.length);
+		assertEquals(100, matrix[0].length);
+		int blocked = 0;
+		for (int[] row : matrix) {
+			for (int value : row) {
+				assertTrue(value == 0 || value == AStar.BAR);
+				if (value == AStar.BAR)
+					blocked++;
+			}
+		}
+		assertEquals(map.getOccupancy().cardinality(), blocked);
+		assertTrue(blocked > 0 && blocked < 66 * 100);
+	}
+
+	public void testParallelGenerateMatrix() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		MatrixMap serial = new MatrixMap(collection);
+		MatrixMap parallel = new MatrixMap();
+		parallel.setParallelism(4);
+		parallel.generateMatrix(collection);
+		assertTrue(Arrays.deepEquals(serial.getMatrix(), parallel.getMatrix()));
+		assertTrue(Arrays.deepEquals(serial.getPointMatrix(), parallel.getPointMatrix()));
+	}
+
+	public void testScanlineGenerateMatrix() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		MatrixMap point = new MatrixMap(collection);
+		MatrixMap scanline = new MatrixMap();
+		scanline.setRasterMode(Rasterizer.Mode.SCANLINE);
+		scanline.setParallelism(2);
+		scanline.generateMatrix(collection);
+		assertTrue(Arrays.deepEquals(point.getMatrix(), scanline.getMatrix()));
+	}
+
+	public void testScanlineWithHole() {
+		Polygon polygon = Polygon.fromJson("{\"type\":\"Polygon\",\"coordinates\":["
+				+ "[[0,0],[0.001,0],[0.001,0.001],[0,0.001],[0,0]],"
+				+ "[[0.0003,0.0003],[0.0007,0.0003],[0.0005,0.0007],[0.0003,0.0003]]]}");
+		FeatureCollection collection = FeatureCollection.fromFeatures(new Feature[] { Feature.fromGeometry(polygon) });
+		GridGeometry grid = GridGeometry.fromBBox(new double[] { -0.0002, -0.0002, 0.0012, 0.0012 });
+		ObstacleIndex index = new ObstacleIndex(collection);
+		int[][] point = new Rasterizer(1, Rasterizer.Mode.POINT).rasterize(grid, index).toMatrix();
+		int[][] scanline = new Rasterizer(1, Rasterizer.Mode.SCANLINE).rasterize(grid, index).toMatrix();
+		assertTrue(Arrays.deepEquals(point, scanline));
+		assertEquals(0, scanline[grid.ceilRow(0.0005)][grid.ceilColumn(0.0005)]);
+		assertEquals(AStar.BAR, scanline[grid.ceilRow(0.0001)][grid.ceilColumn(0.0001)]);
+	}
+
+	public void testScanlineVertexOnRow() {
+		GridGeometry grid = GridGeometry.fromBBox(new double[] { -0.0002, -0.0002, 0.0012, 0.0012 });
+		// 四边形的顶点都在网格中心上(边不经过其它网格中心), 左右两个顶点所在的行不能漏掉交点
+		int r = grid.getRows() / 2, c = grid.getColumns() / 2;
+		double[][] vertices = new double[][] { { grid.getX(c + 1), grid.getY(r - 7) },
+				{ grid.getX(c + 5), grid.getY(r) }, { grid.getX(c - 1), grid.getY(r + 5) },
+				{ grid.getX(c - 4), grid.getY(r) } };
+		for (boolean reverse : new boolean[] { false, true }) {
+			List<Point> ring = Lists.newArrayList();
+			for (int i = 0; i <= vertices.length; i++) {
+				double[] vertex = vertices[(reverse ? vertices.length - i : i) % vertices.length];
+				ring.add(Point.fromLngLat(vertex[0], vertex[1]));
+			}
+			Polygon polygon = Polygon.fromLngLats(Arrays.asList(ring));
+			ObstacleIndex index = new ObstacleIndex(
+					FeatureCollection.fromFeatures(new Feature[] { Feature.fromGeometry(polygon) }));
+			int[][] point = new Rasterizer(1, Rasterizer.Mode.POINT).rasterize(grid, index).toMatrix();
+			int[][] scanline = new Rasterizer(1, Rasterizer.Mode.SCANLINE).rasterize(grid, index).toMatrix();
+			assertTrue(Arrays.deepEquals(point, scanline));
+			for (int x = c - 4; x <= c + 5; x++)
+				assertEquals(AStar.BAR, scanline[r][x]);
+		}
 	}
 
-	public void shortestPath() {
+	public void testObstacleIndexMatchesIsInside() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		ObstacleIndex index = new ObstacleIndex(collection);
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			Point pt = Point.fromLngLat(117.22735 + random.nextDouble() * 0.00103,
+					31.75048 + random.nextDouble() * 0.00057);
+			assertEquals(TurfMisc.isInside(pt, collection), index.isInside(pt));
+		}
+		Point entrance = Point.fromLngLat(117.227502, 31.750481);
+		assertEquals(TurfMisc.isInside(entrance, collection), index.isInside(entrance));
+	}
+
+	public void testOffHeapOccupancy() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		MatrixMap heap = new MatrixMap(collection);
+		MatrixMap direct = new MatrixMap();
+		direct.setOffHeap(true);
+		direct.generateMatrix(collection);
+		assertTrue(Arrays.deepEquals(heap.getMatrix(), direct.getMatrix()));
+		assertEquals(heap.getOccupancy().cardinality(), direct.getOccupancy().cardinality());
+		double[] start = new double[] { 117.227502, 31.750481 };
+		double[] end = new double[] { 117.228057, 31.751049 };
+		assertEquals(heap.shortestPath(start, end).toJson(), direct.shortestPath(start, end).toJson());
+	}
+
+	public void testOccupancyGridBits() {
+		int[][] matrix = new int[3][130];
+		matrix[0][0] = AStar.BAR;
+		matrix[1][63] = AStar.BAR;
+		matrix[1][64] = AStar.BAR;
+		matrix[2][129] = AStar.BAR;
+		OccupancyGrid grid = OccupancyGrid.fromMatrix(matrix);
+		assertEquals(3, grid.getStride());
+		assertEquals(4, grid.cardinality());
+		assertTrue(grid.isBlocked(64, 1));
+		assertFalse(grid.isBlocked(65, 1));
+		assertTrue(grid.isBlocked(2 * 130 + 129));
+		assertTrue(Arrays.deepEquals(matrix, grid.toMatrix()));
+	}
+
+	public void testEntranceSnapping() {
 		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
 		MatrixMap map = new MatrixMap(collection);
-		LineString ls = map.shortestPath(new double[] { 117.227502, 31.750481 }, new double[] { 117.228057, 31.751049 });
-		System.out.println(ls.toJson());
+		GridGeometry grid = map.getGrid();
+		Entrances entrances = map.getEntrances();
+		assertEquals(7, entrances.size());
+		for (int i = 0; i < entrances.size(); i++) {
+			// 与逐格计算距离取最近网格的结果一致
+			Point entrance = Point.fromLngLat(entrances.getX(i), entrances.getY(i));
+			int expected = -1;
+			double min = Double.MAX_VALUE;
+			for (int r = 0; r < grid.getRows(); r++) {
+				for (int c = 0; c < grid.getColumns(); c++) {
+					double distance = TurfMeasurement.distance(entrance, Point.fromLngLat(grid.getX(c), grid.getY(r)));
+					if (distance < min) {
+						min = distance;
+						expected = r * grid.getColumns() + c;
+					}
+				}
+			}
+			assertEquals(expected, entrances.getCell(i));
+			assertEquals(i, entrances.indexOf(entrances.getX(i), entrances.getY(i)));
+		}
+		assertEquals(-1, entrances.indexOf(0, 0));
+
+		MatrixMap free = new MatrixMap();
+		free.setSnapToFree(true);
+		free.generateMatrix(collection);
+		for (int i = 0; i < free.getEntrances().size(); i++) {
+			assertFalse(free.getOccupancy().isBlocked(free.getEntrances().getCell(i)));
+		}
+	}
+
+	public void testShortestPath() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		MatrixMap map = new MatrixMap(collection);
+		SearchContext context = new SearchContext();
+		Point start = Point.fromLngLat(117.227502, 31.750481), end = Point.fromLngLat(117.228057, 31.751049);
+		LineString ls = map.shortestPath(new double[] { start.longitude(), start.latitude() },
+				new double[] { end.longitude(), end.latitude() }, context);
+		assertEquals(85.254833995939, context.getLength(), 1e-9);
+		assertEquals(75, ls.coordinates().size());
+		assertEquals(start, ls.coordinates().get(0));
+		assertEquals(end, ls.coordinates().get(ls.coordinates().size() - 1));
+		// 绕过障碍物, 不短于直线距离, 也不会绕得太远
 		double length = TurfMeasurement.length(ls, TurfConstants.UNIT_METERS);
-		System.out.println(length);
+		double direct = TurfMeasurement.distance(start, end, TurfConstants.UNIT_METERS);
+		assertTrue(length >= direct);
+		assertTrue(length < 1.5 * direct);
+	}
+
+	public void testHeuristics() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		double[] start = new double[] { 117.227502, 31.750481 };
+		double[] end = new double[] { 117.228057, 31.751049 };
+		SearchContext context = new SearchContext();
+		// 未缩放的曼哈顿距离即原来的估值方法, 结果不变
+		context.getAStar().setHeuristic(Heuristic.MANHATTAN);
+		LineString ls = map.shortestPath(start, end, context);
+		assertEquals(88.76955262170044, context.getLength(), 1e-9);
+		assertEquals(81, ls.coordinates().size());
+
+		// 可采纳的估值都得到最短路径, 其中八方向距离最紧, 扩展的结点最少
+		int[] expanded = new int[3];
+		Heuristic[] heuristics = new Heuristic[] { Heuristic.OCTILE, Heuristic.CHEBYSHEV, Heuristic.EUCLIDEAN };
+		for (int i = 0; i < heuristics.length; i++) {
+			context.getAStar().setHeuristic(heuristics[i]);
+			map.shortestPath(start, end, context);
+			assertEquals(85.254833995939, context.getLength(), 1e-9);
+			expanded[i] = context.getExpanded();
+		}
+		assertTrue(expanded[0] < expanded[1]);
+		assertTrue(expanded[0] < expanded[2]);
+	}
+
+	public void testConcurrentShortestPath() throws Exception {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		final MatrixMap map = new MatrixMap(collection);
+		final double[] start = new double[] { 117.227502, 31.750481 };
+		final double[] end = new double[] { 117.228057, 31.751049 };
+		final String expected = map.shortestPath(start, end).toJson();
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> futures = Lists.newArrayList();
+			for (int i = 0; i < 64; i++) {
+				futures.add(executor.submit(() -> map.shortestPath(start, end).toJson()));
+			}
+			for (Future<String> future : futures) {
+				assertEquals(expected, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testShortestPathDuringGenerateMatrix() throws Exception {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		final double[] start = new double[] { 117.227502, 31.750481 };
+		final double[] end = new double[] { 117.228057, 31.751049 };
+		// 两种网格大小的结果, 查询只能得到其中之一, 不能混用新旧矩阵图的出入口与网格几何信息
+		MatrixMap fine = new MatrixMap();
+		fine.setCellSize(0.5);
+		fine.generateMatrix(collection);
+		final MatrixMap map = new MatrixMap(collection);
+		final List<String> expected = Arrays.asList(map.shortestPath(start, end).toJson(),
+				fine.shortestPath(start, end).toJson());
+		assertFalse(expected.get(0).equals(expected.get(1)));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> futures = Lists.newArrayList();
+			for (int i = 0; i < 64; i++) {
+				futures.add(executor.submit(() -> map.shortestPath(start, end).toJson()));
+			}
+			for (int n = 0; n < 20; n++) {
+				map.setCellSize(n % 2 == 0 ? 0.5 : 0);
+				map.generateMatrix(collection);
+			}
+			for (Future<String> future : futures) {
+				assertTrue(expected.contains(future.get()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testTurfMiscShortestPath() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		Point start = Point.fromLngLat(117.227502, 31.750481);
+		Point end = Point.fromLngLat(117.228057, 31.751049);
+		LineString ls = TurfMisc.shortestPath(start, end, collection);
+		assertTrue(ls.coordinates().size() > 2);
+		assertEquals(start, ls.coordinates().get(0));
+		assertEquals(end, ls.coordinates().get(ls.coordinates().size() - 1));
+	}
+
+	public void testGridAStarMatchesAStar() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		MatrixMap map = new MatrixMap(collection);
+		AStar reference = new AStar();
+		reference.start(map, new Node(3, 60), new Node(95, 2));
+
+		GridAStar astar = new GridAStar();
+		for (int n = 0; n < 2; n++) { // 第二次搜索复用缓冲区
+			assertTrue(astar.search(map.getOccupancy(), 3, 60, 95, 2));
+			assertEquals(reference.getTotalCost(), astar.getLength(), 1e-9);
+			assertEquals(reference.getPathList().size(), astar.getPathSize());
+			for (int i = 0; i < astar.getPathSize(); i++) {
+				int[] expected = reference.getPathList().get(astar.getPathSize() - 1 - i);
+				assertEquals(expected[0], astar.getPathX(i));
+				assertEquals(expected[1], astar.getPathY(i));
+			}
+		}
+	}
+
+	public void testGridAStarAllocationFree() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		GridAStar astar = new GridAStar();
+		for (int n = 0; n < 200; n++) // 分配缓冲区并预热
+			astar.search(map.getOccupancy(), 3, 60, 95, 2);
+		// 只有 HotSpot 的扩展接口能统计线程分配的内存, 不支持时跳过
+		if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean))
+			return;
+		ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled())
+			return;
+		long id = Thread.currentThread().getId();
+		// 两次读取之间的分配(读取本身的开销)
+		long overhead = -bean.getThreadAllocatedBytes(id) + bean.getThreadAllocatedBytes(id);
+		long before = bean.getThreadAllocatedBytes(id);
+		for (int n = 0; n < 10; n++)
+			assertTrue(astar.search(map.getOccupancy(), 3, 60, 95, 2));
+		long allocated = bean.getThreadAllocatedBytes(id) - before - overhead;
+		assertEquals(0, allocated);
+	}
+
+	public void testGridAStarUnreachable() {
+		int[][] matrix = new int[][] { { 0, 1, 0 }, { 0, 1, 0 }, { 0, 1, 0 } };
+		GridAStar astar = new GridAStar();
+		assertFalse(astar.search(OccupancyGrid.fromMatrix(matrix), 0, 0, 2, 2));
+		assertEquals(0, astar.getPathSize());
+		matrix[2][1] = 0;
+		assertTrue(astar.search(OccupancyGrid.fromMatrix(matrix), 0, 0, 2, 0));
+		assertEquals(2 + 2 * Math.sqrt(2), astar.getLength(), 1e-9);
+	}
+
+	public void testTextPathRenderer() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		MatrixMap map = new MatrixMap(collection);
+		AStar reference = new AStar();
+		StringBuilder legacy = new StringBuilder();
+		reference.setRenderer(new TextPathRenderer(legacy));
+		reference.start(map, new Node(3, 60), new Node(95, 2));
+
+		int[][] painted = AStar.paintPath(map.getOccupancy(), new Coord(3, 60), new Coord(95, 2),
+				reference.getPathList());
+		StringBuilder expected = new StringBuilder();
+		for (int[] row : painted) {
+			for (int value : row)
+				expected.append(value).append(' ');
+			expected.append('\n');
+		}
+		assertEquals(expected.toString(), legacy.toString());
+
+		SearchContext context = new SearchContext();
+		StringBuilder text = new StringBuilder();
+		context.setRenderer(new TextPathRenderer(text));
+		assertTrue(map.findPath(3, 60, 95, 2, context));
+		assertEquals(expected.toString(), text.toString());
+	}
+
+	public void testJumpPointSearchMatchesDijkstra() {
+		Random random = new Random(7);
+		JumpPointSearch jps = new JumpPointSearch();
+		for (int n = 0; n < 200; n++) {
+			OccupancyGrid grid = randomGrid(random, 40, 0.4);
+			int width = grid.getWidth(), height = grid.getHeight();
+			int sx = random.nextInt(width), sy = random.nextInt(height);
+			int ex = random.nextInt(width), ey = random.nextInt(height);
+			assertPath(jps, grid, sx, sy, ex, ey);
+		}
+
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		assertPath(jps, map.getOccupancy(), 3, 60, 95, 2);
+		assertPath(jps, map.getOccupancy(), 0, 0, 99, 65);
+	}
+
+	public void testMatrixMapJumpPointSearch() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		double[] start = new double[] { 117.227502, 31.750481 };
+		double[] end = new double[] { 117.228057, 31.751049 };
+		map.setEngine(PathFinder.Engine.JPS);
+		SearchContext context = new SearchContext();
+		LineString ls = map.shortestPath(start, end, context);
+		assertTrue(context.isFound());
+		int width = map.getOccupancy().getWidth();
+		int startCell = map.getEntrances().getCell(map.getEntrances().indexOf(start[0], start[1]));
+		int endCell = map.getEntrances().getCell(map.getEntrances().indexOf(end[0], end[1]));
+		assertEquals(dijkstra(map.getOccupancy(), startCell % width, startCell / width, endCell % width,
+				endCell / width), context.getLength(), 1e-9);
+		assertEquals(context.getPathSize() + 2, ls.coordinates().size());
+	}
+
+	public void testBidirectionalAStarMatchesDijkstra() {
+		BidirectionalAStar serial = new BidirectionalAStar();
+		BidirectionalAStar parallel = new BidirectionalAStar();
+		parallel.setParallel(true);
+		// 反向一侧使用专用线程池
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		BidirectionalAStar dedicated = new BidirectionalAStar();
+		dedicated.setParallel(true, pool);
+		Random random = new Random(11);
+		try {
+			for (int n = 0; n < 200; n++) {
+				OccupancyGrid grid = randomGrid(random, 40, 0.4);
+				int width = grid.getWidth(), height = grid.getHeight();
+				int sx = random.nextInt(width), sy = random.nextInt(height);
+				int ex = random.nextInt(width), ey = random.nextInt(height);
+				assertPath(serial, grid, sx, sy, ex, ey);
+				assertPath(parallel, grid, sx, sy, ex, ey);
+				assertPath(dedicated, grid, sx, sy, ex, ey);
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		GridAStar astar = new GridAStar();
+		assertTrue(astar.search(map.getOccupancy(), 3, 60, 95, 2));
+		assertPath(serial, map.getOccupancy(), 3, 60, 95, 2);
+		assertEquals(astar.getLength(), serial.getLength(), 1e-9);
+		assertPath(parallel, map.getOccupancy(), 3, 60, 95, 2);
+	}
+
+	public void testMatrixMapBidirectional() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		double[] start = new double[] { 117.227502, 31.750481 };
+		double[] end = new double[] { 117.228057, 31.751049 };
+		map.setEngine(PathFinder.Engine.BIDIRECTIONAL);
+		SearchContext context = new SearchContext();
+		LineString ls = map.shortestPath(start, end, context);
+		assertTrue(context.isFound());
+		int width = map.getOccupancy().getWidth();
+		int startCell = map.getEntrances().getCell(map.getEntrances().indexOf(start[0], start[1]));
+		int endCell = map.getEntrances().getCell(map.getEntrances().indexOf(end[0], end[1]));
+		double shortest = dijkstra(map.getOccupancy(), startCell % width, startCell / width, endCell % width,
+				endCell / width);
+		assertEquals(shortest, context.getLength(), 1e-9);
+		assertEquals(context.getPathSize() + 2, ls.coordinates().size());
+
+		// 并行扩展通过 SearchContext 中的实例开启
+		((BidirectionalAStar) context.getPathFinder(PathFinder.Engine.BIDIRECTIONAL)).setParallel(true);
+		map.shortestPath(start, end, context);
+		assertTrue(context.isFound());
+		assertEquals(shortest, context.getLength(), 1e-9);
+	}
+
+	public void testRoutingTable() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		Entrances entrances = map.getEntrances();
+		RoutingTable table = map.buildRoutingTable();
+		assertSame(table, map.buildRoutingTable());
+		assertEquals(entrances.size(), table.size());
+		assertTrue(table.getMemoryBytes() > 0);
+		assertTrue(table.getBuildMillis() >= 0);
+
+		int width = map.getOccupancy().getWidth();
+		GridAStar astar = new GridAStar();
+		for (int i = 0; i < entrances.size(); i++) {
+			for (int j = 0; j < entrances.size(); j++) {
+				int from = entrances.getCell(i), to = entrances.getCell(j);
+				boolean found = astar.search(map.getOccupancy(), from % width, from / width, to % width, to / width);
+				assertEquals(found, table.isReachable(i, j));
+				if (!found)
+					continue;
+				assertEquals(astar.getLength(), table.getDistance(i, j), 1e-9);
+				assertEquals(from, table.getPathCell(i, j, 0));
+				assertEquals(to, table.getPathCell(i, j, table.getPathSize(i, j) - 1));
+			}
+		}
+
+		// 出入口到出入口直接查表, 结果与搜索相同
+		double[] start = new double[] { 117.227502, 31.750481 };
+		double[] end = new double[] { 117.228057, 31.751049 };
+		SearchContext context = new SearchContext();
+		LineString ls = map.shortestPath(start, end, context);
+		assertTrue(context.isFromTable());
+		assertEquals(85.254833995939, context.getLength(), 1e-9);
+		assertEquals(context.getPathSize() + 2, ls.coordinates().size());
+	}
+
+	public void testGridCoordinateOutOfRange() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		map.setRouteCache(new RouteCache(2));
+		int width = map.getOccupancy().getWidth(), height = map.getOccupancy().getHeight();
+		SearchContext context = new SearchContext();
+		double[][] invalid = new double[][] { { width + 2, 0 }, { width, 0 }, { -1, 3 }, { 3, height } };
+		for (double[] point : invalid) {
+			try {
+				map.shortestPath(point, new double[] { 3, 60 }, context);
+				fail();
+			} catch (Error e) {
+				// 不能折行到下一行
+			}
+			try {
+				map.findPath(3, 60, (int) point[0], (int) point[1], context);
+				fail();
+			} catch (Error e) {
+				// 不能读到行尾的填充位
+			}
+		}
+		assertTrue(map.findPath(width - 1, height - 1, 3, 60, context));
+	}
+
+	public void testRouteCache() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		MatrixMap map = new MatrixMap(collection);
+		RouteCache cache = new RouteCache(2);
+		map.setRouteCache(cache);
+		double[] start = new double[] { 117.227502, 31.750481 };
+		double[] end = new double[] { 117.228057, 31.751049 };
+		SearchContext context = new SearchContext();
+
+		LineString first = map.shortestPath(start, end, context);
+		assertFalse(context.isFromCache());
+		LineString second = map.shortestPath(start, end, context);
+		assertTrue(context.isFromCache());
+		assertSame(first, second);
+		assertEquals(85.254833995939, context.getLength(), 1e-9);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		try {
+			second.coordinates().clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// 缓存的路径不可修改
+		}
+
+		// 超过条目数时淘汰最久未使用的路径
+		map.shortestPath(new double[] { 3, 60 }, new double[] { 95, 2 }, context);
+		map.shortestPath(new double[] { 95, 2 }, new double[] { 3, 60 }, context);
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		map.shortestPath(start, end, context);
+		assertFalse(context.isFromCache());
+
+		// 重新生成矩阵图后缓存失效
+		map.generateMatrix(collection);
+		map.shortestPath(start, end, context);
+		assertFalse(context.isFromCache());
+		assertEquals(1, cache.size());
+		assertEquals(85.254833995939, context.getLength(), 1e-9);
+
+		// 按权重(坐标数)淘汰
+		RouteCache small = new RouteCache(100, 150);
+		map.setRouteCache(small);
+		map.shortestPath(start, end, context);
+		map.shortestPath(new double[] { 3, 60 }, new double[] { 95, 2 }, context);
+		assertEquals(1, small.size());
+		assertTrue(small.getWeight() <= 150);
+
+		// 同一缓存不能同时被两个矩阵图使用, 版本号相同也不能读到其他矩阵图的路径
+		MatrixMap other = new MatrixMap(collection);
+		MatrixMap owner = new MatrixMap(collection);
+		assertEquals(owner.getVersion(), other.getVersion());
+		RouteCache shared = new RouteCache(10);
+		owner.setRouteCache(shared);
+		owner.shortestPath(start, end, context);
+		assertEquals(1, shared.size());
+		try {
+			other.setRouteCache(shared);
+			fail();
+		} catch (Error e) {
+			// 已被 owner 使用
+		}
+		assertNull(other.getRouteCache());
+		other.shortestPath(start, end, context);
+		assertFalse(context.isFromCache());
+
+		// owner 放弃后缓存被清空, 可交给其他矩阵图
+		owner.setRouteCache(null);
+		assertEquals(0, shared.size());
+		other.setRouteCache(shared);
+		other.shortestPath(start, end, context);
+		assertFalse(context.isFromCache());
+		owner.shortestPath(start, end, context);
+		assertFalse(context.isFromCache());
+		other.shortestPath(start, end, context);
+		assertTrue(context.isFromCache());
+	}
+
+	public void testHierarchicalAStar() {
+		Random random = new Random(13);
+		double worst = 1;
+		for (int n = 0; n < 300; n++) {
+			OccupancyGrid grid = randomGrid(random, 60, 0.4);
+			int width = grid.getWidth(), height = grid.getHeight();
+			HierarchicalAStar hpa = new HierarchicalAStar(ClusterGraph.build(grid, 3 + random.nextInt(10)));
+			int sx = random.nextInt(width), sy = random.nextInt(height);
+			int ex = random.nextInt(width), ey = random.nextInt(height);
+			double expected = dijkstra(grid, sx, sy, ex, ey);
+			// 连通性与平面搜索一致, 路径合法, 代价不小于最短路径
+			assertEquals(expected >= 0, hpa.search(grid, sx, sy, ex, ey));
+			if (expected >= 0) {
+				assertValidPath(hpa, grid, sx, sy, ex, ey);
+				assertTrue(hpa.getLength() >= expected - 1e-9);
+				if (expected > 20)
+					worst = Math.max(worst, hpa.getLength() / expected);
+			}
+		}
+		// 较长路径比最短路径长约一成以内
+		assertTrue(worst < 1.15);
+	}
+
+	public void testClusterGraphRebuild() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		OccupancyGrid grid = map.getOccupancy();
+		ClusterGraph graph = ClusterGraph.build(grid, 8);
+
+		// 在一个簇内加入障碍, 只重新构建该簇与相邻簇
+		OccupancyGrid changed = grid.copy();
+		for (int y = 40; y < 48; y++)
+			changed.set(50, y, true);
+		ClusterGraph rebuilt = graph.rebuild(changed, 50, 44);
+		ClusterGraph full = ClusterGraph.build(changed, 8);
+		assertSame(graph.getCluster(0), rebuilt.getCluster(0));
+		assertEquals(full.getNodeCount(), rebuilt.getNodeCount());
+
+		HierarchicalAStar a = new HierarchicalAStar(rebuilt);
+		HierarchicalAStar b = new HierarchicalAStar(full);
+		assertTrue(a.search(changed, 3, 60, 95, 2));
+		assertTrue(b.search(changed, 3, 60, 95, 2));
+		assertEquals(b.getLength(), a.getLength(), 1e-9);
+		boolean reachable = dijkstra(changed, 45, 20, 56, 44) >= 0;
+		assertEquals(reachable, a.search(changed, 45, 20, 56, 44));
+		assertEquals(reachable, b.search(changed, 45, 20, 56, 44));
+		assertEquals(b.getLength(), a.getLength(), 1e-9);
+	}
+
+	public void testMatrixMapHierarchical() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		map.setEngine(PathFinder.Engine.HIERARCHICAL);
+		SearchContext context = new SearchContext();
+		LineString ls = map.shortestPath(new double[] { 117.227502, 31.750481 },
+				new double[] { 117.228057, 31.751049 }, context);
+		assertTrue(context.isFound());
+		assertNotNull(map.getHierarchy());
+		assertTrue(context.getLength() >= 85.254833995939 - 1e-9);
+		assertTrue(context.getLength() <= 85.254833995939 * 1.1);
+		assertEquals(context.getPathSize() + 2, ls.coordinates().size());
+
+		// 抽象图已构建时查询不加锁: 其它线程持有矩阵图的锁时仍可搜索并复用同一抽象图
+		ClusterGraph graph = map.getHierarchy();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Boolean> found;
+			synchronized (map) {
+				found = executor.submit(() -> map.findPath(3, 60, 95, 2, new SearchContext()));
+				assertTrue(found.get(10, TimeUnit.SECONDS));
+			}
+		} catch (Exception e) {
+			throw new Error(e);
+		} finally {
+			executor.shutdown();
+		}
+		assertSame(graph, map.getHierarchy());
+	}
+
+	public void testDStarLiteReplanning() {
+		DStarLite planner = new DStarLite();
+		Random random = new Random(17);
+		for (int n = 0; n < 200; n++) {
+			OccupancyGrid grid = randomGrid(random, 40, 0.4);
+			int width = grid.getWidth(), height = grid.getHeight();
+			int sx = random.nextInt(width), sy = random.nextInt(height);
+			int ex = random.nextInt(width), ey = random.nextInt(height);
+			assertPath(planner, grid, sx, sy, ex, ey);
+			for (int step = 0; step < 5; step++) {
+				// 沿路径前进几步, 再随机改变一些网格
+				if (planner.getPathSize() > 1) {
+					int k = random.nextInt(planner.getPathSize());
+					sx = planner.getPathX(k);
+					sy = planner.getPathY(k);
+					assertReplanned(planner.moveStart(sx, sy), planner, grid, sx, sy, ex, ey);
+				}
+				OccupancyGrid changed = grid.copy();
+				int[] cells = new int[1 + random.nextInt(8)];
+				for (int i = 0; i < cells.length; i++) {
+					int x = random.nextInt(width), y = random.nextInt(height);
+					changed.set(x, y, !changed.isBlocked(x, y));
+					cells[i] = y * width + x;
+				}
+				grid = changed;
+				assertReplanned(planner.update(grid, cells), planner, grid, sx, sy, ex, ey);
+			}
+		}
+	}
+
+	public void testMatrixMapObstacleUpdates() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		map.buildHierarchy();
+		double[] start = new double[] { 117.227502, 31.750481 };
+		double[] end = new double[] { 117.228057, 31.751049 };
+		SearchContext context = new SearchContext();
+		map.shortestPath(start, end, context);
+		double before = context.getLength();
+		int sx = context.getPathX(0), sy = context.getPathY(0);
+		int ex = context.getPathX(context.getPathSize() - 1), ey = context.getPathY(context.getPathSize() - 1);
+		int mx = context.getPathX(context.getPathSize() / 2), my = context.getPathY(context.getPathSize() / 2);
+
+		OccupancyGrid original = map.getOccupancy();
+		int blocked = original.cardinality();
+		long version = map.getVersion();
+		DStarLite planner = new DStarLite();
+		assertTrue(planner.search(original, sx, sy, ex, ey));
+		int fresh = planner.getExpanded();
+
+		// 在路径中间放一个约 3 x 3 格的托盘
+		GridGeometry grid = map.getGrid();
+		double x = grid.getX(mx), y = grid.getY(my);
+		double w = grid.getCellWidth() * 1.5, h = grid.getCellHeight() * 1.5;
+		Polygon pallet = square(x, y, w, h);
+		int[] changed = map.addObstacle(pallet);
+		assertTrue(changed.length > 0);
+		assertNotSame(original, map.getOccupancy());
+		assertEquals(blocked, original.cardinality());
+		assertEquals(blocked + changed.length, map.getOccupancy().cardinality());
+		assertTrue(map.getOccupancy().isBlocked(mx, my));
+		assertTrue(map.getVersion() > version);
+		assertSame(map.getOccupancy(), map.getHierarchy().getGrid());
+		assertEquals(ClusterGraph.build(map.getOccupancy(), map.getClusterSize()).getNodeCount(),
+				map.getHierarchy().getNodeCount());
+
+		map.shortestPath(start, end, context);
+		assertTrue(context.getLength() >= before - 1e-9);
+		for (int i = 0; i < context.getPathSize(); i++)
+			assertFalse(context.getPathX(i) == mx && context.getPathY(i) == my);
+
+		// D* Lite 只修复受影响的部分, 结果与重新搜索一致
+		assertTrue(planner.update(map.getOccupancy(), changed));
+		assertEquals(context.getLength(), planner.getLength(), 1e-9);
+		assertValidPath(planner, map.getOccupancy(), sx, sy, ex, ey);
+		assertTrue(planner.getExpanded() < fresh);
+
+		int[] restored = map.removeObstacle(pallet);
+		assertEquals(changed.length, restored.length);
+		assertEquals(blocked, map.getOccupancy().cardinality());
+		assertEquals(0, map.removeObstacle(pallet).length);
+		map.shortestPath(start, end, context);
+		assertEquals(before, context.getLength(), 1e-9);
+	}
+
+	public void testMultiTargetSearchMatchesDijkstra() {
+		MultiTargetSearch search = new MultiTargetSearch();
+		Random random = new Random(19);
+		for (int n = 0; n < 100; n++) {
+			OccupancyGrid grid = randomGrid(random, 40, 0.4);
+			int width = grid.getWidth(), height = grid.getHeight();
+			int start = random.nextInt(width * height);
+			int[] targets = new int[1 + random.nextInt(20)];
+			for (int i = 0; i < targets.length; i++)
+				targets[i] = random.nextInt(width * height);
+			search.search(grid, start, targets);
+			for (int target : targets) {
+				double expected = dijkstra(grid, start % width, start / width, target % width, target / width);
+				assertEquals(expected >= 0, search.isSettled(target));
+				if (expected < 0)
+					continue;
+				assertEquals(expected, search.getDistance(target), 1e-9);
+				int[] path = search.trace(target);
+				assertEquals(start, path[0]);
+				assertEquals(target, path[path.length - 1]);
+				for (int i = 1; i < path.length - 1; i++)
+					assertFalse(grid.isBlocked(path[i]));
+			}
+		}
+	}
+
+	public void testMatrixMapShortestPaths() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		Entrances entrances = map.getEntrances();
+		double[] start = new double[] { entrances.getX(0), entrances.getY(0) };
+		List<double[]> targets = Lists.newArrayList();
+		for (int i = 0; i < entrances.size(); i++)
+			targets.add(new double[] { entrances.getX(i), entrances.getY(i) });
+
+		SearchContext context = new SearchContext();
+		Routes routes = map.shortestPaths(start, targets, context);
+		assertEquals(targets.size(), routes.size());
+		for (int i = 0; i < entrances.size(); i++) {
+			LineString expected = map.shortestPath(start, targets.get(i), context);
+			assertEquals(context.isFound(), routes.isFound(i));
+			assertEquals(context.getLength(), routes.getLength(i), 1e-9);
+			assertSameEnds(expected, routes.getLineString(i));
+			assertSame(routes.getLineString(i), routes.getLineString(i));
+		}
+
+		// 网格坐标: 与 shortestPath 的结果相同
+		double[] gridStart = new double[] { 3, 60 };
+		List<double[]> gridTargets = Lists.newArrayList(new double[] { 95, 2 }, new double[] { 60, 10 });
+		Routes gridRoutes = map.shortestPaths(gridStart, gridTargets, context);
+		for (int i = 0; i < gridTargets.size(); i++) {
+			LineString expected = map.shortestPath(gridStart, gridTargets.get(i), context);
+			assertTrue(gridRoutes.isFound(i));
+			assertEquals(context.getLength(), gridRoutes.getLength(i), 1e-9);
+			assertSameEnds(expected, gridRoutes.getLineString(i));
+		}
+		assertEquals(95, gridRoutes.getPathX(0, gridRoutes.getPathSize(0) - 1));
+		assertEquals(2, gridRoutes.getPathY(0, gridRoutes.getPathSize(0) - 1));
+
+		// 出入口与网格坐标混用时与 shortestPath 一样抛出 Error
+		List<double[]> mixed = Lists.newArrayList(targets.get(0), new double[] { 95, 2 });
+		try {
+			map.shortestPath(start, mixed.get(1), context);
+			fail();
+		} catch (Error e) {
+			// 起点的经纬度超出矩阵图
+		}
+		try {
+			map.shortestPaths(start, mixed, context);
+			fail();
+		} catch (Error e) {
+			// 同上
+		}
+
+		// 超出矩阵图的网格坐标不能折行到下一行
+		double[] outside = new double[] { map.getOccupancy().getWidth() + 2, 0 };
+		try {
+			map.shortestPaths(start, Arrays.asList(outside), context);
+			fail();
+		} catch (Error e) {
+			// 终点越界
+		}
+		try {
+			map.distanceField(outside);
+			fail();
+		} catch (Error e) {
+			// 源点越界
+		}
+	}
+
+	public void testDistanceField() {
+		Random random = new Random(23);
+		for (int n = 0; n < 30; n++) {
+			OccupancyGrid grid = randomGrid(random, 30, 0.6);
+			int width = grid.getWidth(), height = grid.getHeight();
+			int sx = random.nextInt(width), sy = random.nextInt(height);
+			DistanceField field = DistanceField.compute(grid, sx, sy);
+			for (int k = 0; k < 20; k++) {
+				int x = random.nextInt(width), y = random.nextInt(height);
+				double expected = dijkstra(grid, x, y, sx, sy);
+				assertEquals(expected >= 0, field.isReachable(x, y));
+				if (expected < 0)
+					continue;
+				assertEquals(expected, field.getCost(x, y), 1e-4);
+				// 沿流场前进的代价之和等于代价场
+				int[] path = field.path(x, y);
+				double length = 0;
+				for (int i = 1; i < path.length; i++) {
+					int dx = Math.abs(path[i] % width - path[i - 1] % width);
+					int dy = Math.abs(path[i] / width - path[i - 1] / width);
+					assertTrue(dx <= 1 && dy <= 1);
+					length += dx + dy == 2 ? Math.sqrt(2) : 1;
+					if (i < path.length - 1)
+						assertFalse(grid.isBlocked(path[i]));
+				}
+				assertEquals(expected, length, 1e-4);
+			}
+		}
+	}
+
+	public void testDistanceFieldExport() throws Exception {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		Entrances entrances = map.getEntrances();
+		DistanceField field = map.distanceField(new double[] { entrances.getX(0), entrances.getY(0) });
+		int source = entrances.getCell(0);
+		assertEquals(source, field.getSource());
+		assertEquals(0f, field.getCosts()[source]);
+		assertEquals(DistanceField.NONE, field.getDirections()[source]);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		field.writeTo(out);
+		assertEquals(20 + field.getCosts().length * 5, out.size());
+		DistanceField read = DistanceField.readFrom(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(field.getWidth(), read.getWidth());
+		assertTrue(Arrays.equals(field.getCosts(), read.getCosts()));
+		assertTrue(Arrays.equals(field.getDirections(), read.getDirections()));
+		// 宽、高、源点不合法或数据不足时不是距离场
+		byte[] bytes = out.toByteArray();
+		int[][] headers = { { -1, field.getHeight(), 0 }, { field.getWidth(), 0, 0 }, { 1 << 16, 1 << 16, 0 },
+				{ 1 << 14, 1 << 14, 0 }, { field.getWidth(), field.getHeight(), -1 },
+				{ field.getWidth(), field.getHeight(), field.getCosts().length } };
+		for (int[] header : headers) {
+			ByteBuffer corrupt = ByteBuffer.wrap(bytes.clone());
+			corrupt.putInt(8, header[0]).putInt(12, header[1]).putInt(16, header[2]);
+			try {
+				DistanceField.readFrom(new ByteArrayInputStream(corrupt.array()));
+				fail();
+			} catch (Error e) {
+				assertEquals("not a distance field", e.getMessage());
+			}
+		}
+
+		FeatureCollection geojson = FeatureCollection.fromJson(field.toGeoJson(map.getGrid()).toJson());
+		int reachable = 0;
+		for (float cost : field.getCosts())
+			if (cost != Float.POSITIVE_INFINITY)
+				reachable++;
+		assertEquals(reachable, geojson.features().size());
+		assertTrue(geojson.features().get(0).hasProperty("cost"));
+	}
+
+	public void testThetaStar() {
+		ThetaStar lazy = new ThetaStar();
+		ThetaStar eager = new ThetaStar();
+		eager.setLazy(false);
+		Random random = new Random(29);
+		long lazyChecks = 0, eagerChecks = 0;
+		for (int n = 0; n < 300; n++) {
+			OccupancyGrid grid = randomGrid(random, 40, 0.4);
+			int width = grid.getWidth(), height = grid.getHeight();
+			int sx = random.nextInt(width), sy = random.nextInt(height);
+			int ex = random.nextInt(width), ey = random.nextInt(height);
+			double expected = dijkstra(grid, sx, sy, ex, ey);
+			assertAnyAnglePath(lazy, grid, sx, sy, ex, ey, expected);
+			assertAnyAnglePath(eager, grid, sx, sy, ex, ey, expected);
+			lazyChecks += lazy.getSightChecks();
+			eagerChecks += eager.getSightChecks();
+		}
+		assertTrue(lazyChecks < eagerChecks);
+	}
+
+	public void testMatrixMapThetaStar() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		map.setEngine(PathFinder.Engine.THETA);
+		SearchContext context = new SearchContext();
+		LineString ls = map.shortestPath(new double[] { 117.227502, 31.750481 },
+				new double[] { 117.228057, 31.751049 }, context);
+		assertTrue(context.isFound());
+		assertTrue(context.getLength() <= 85.254833995939);
+		assertEquals(context.getPathSize() + 2, ls.coordinates().size());
+		assertTrue(ls.coordinates().size() < 20);
+	}
+
+	/**
+	 * 任意角度路径: 与8方向路径同样可达, 长度不超过(Lazy Theta* 接近)8方向最短路径, 相邻拐点之间可直视
+	 */
+	private static void assertAnyAnglePath(ThetaStar finder, OccupancyGrid grid, int sx, int sy, int ex, int ey,
+			double expected) {
+		// Lazy Theta* 出堆时才修正父结点, 偶尔比8方向路径略长
+		assertAnyAnglePath(finder, grid, sx, sy, ex, ey, expected, finder.isLazy() ? 1.05 : 1);
+	}
+
+	/**
+	 * 路径只包含拐点的算法: 相邻拐点之间的直线不经过障碍, 长度不超过8方向最短路径的 ratio 倍
+	 */
+	private static void assertAnyAnglePath(PathFinder finder, OccupancyGrid grid, int sx, int sy, int ex, int ey,
+			double expected, double ratio) {
+		boolean found = finder.search(grid, sx, sy, ex, ey);
+		assertEquals(expected >= 0, found);
+		if (!found)
+			return;
+		assertTrue(finder.getLength() <= expected * ratio + 1e-9);
+		int width = grid.getWidth();
+		assertEquals(sy * width + sx, finder.getPath()[0]);
+		assertEquals(ey * width + ex, finder.getPath()[finder.getPathSize() - 1]);
+		double length = 0;
+		for (int i = 1; i < finder.getPathSize(); i++) {
+			double x0 = finder.getPathX(i - 1), y0 = finder.getPathY(i - 1);
+			double x1 = finder.getPathX(i), y1 = finder.getPathY(i);
+			length += Math.hypot(x1 - x0, y1 - y0);
+			// 沿线段采样, 采样点所在的网格不是障碍
+			int samples = 64 * (int) Math.ceil(Math.hypot(x1 - x0, y1 - y0));
+			for (int k = 0; k < samples; k++) {
+				double t = (k + 0.3183) / samples;
+				int cx = (int) Math.floor(x0 + (x1 - x0) * t + 0.5);
+				int cy = (int) Math.floor(y0 + (y1 - y0) * t + 0.5);
+				if ((cx != sx || cy != sy) && (cx != ex || cy != ey))
+					assertFalse(grid.isBlocked(cx, cy));
+			}
+		}
+		assertEquals(finder.getLength(), length, 1e-9);
+	}
+
+	public void testQuadTreeAStar() {
+		QuadTreeAStar finder = new QuadTreeAStar();
+		Random random = new Random(31);
+		double worst = 1;
+		for (int n = 0; n < 300; n++) {
+			int width = 5 + random.nextInt(60);
+			int height = 5 + random.nextInt(60);
+			double density = random.nextDouble() * 0.3;
+			int[][] matrix = new int[height][width];
+			// 成片的货架与空地
+			for (int k = (int) (density * width * height / 8); k > 0; k--) {
+				int x = random.nextInt(width), y = random.nextInt(height);
+				int w = 1 + random.nextInt(6), h = 1 + random.nextInt(3);
+				for (int yy = y; yy < Math.min(height, y + h); yy++)
+					for (int xx = x; xx < Math.min(width, x + w); xx++)
+						matrix[yy][xx] = AStar.BAR;
+			}
+			OccupancyGrid grid = OccupancyGrid.fromMatrix(matrix);
+			int sx = random.nextInt(width), sy = random.nextInt(height);
+			int ex = random.nextInt(width), ey = random.nextInt(height);
+			double expected = dijkstra(grid, sx, sy, ex, ey);
+			assertAnyAnglePath(finder, grid, sx, sy, ex, ey, expected, 1.3);
+			if (expected > 0)
+				worst = Math.max(worst, finder.getLength() / expected);
+		}
+		assertTrue(worst <= 1.3);
+	}
+
+	public void testMatrixMapQuadTree() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		map.setEngine(PathFinder.Engine.QUADTREE);
+		SearchContext context = new SearchContext();
+		LineString ls = map.shortestPath(new double[] { 117.227502, 31.750481 },
+				new double[] { 117.228057, 31.751049 }, context);
+		assertTrue(context.isFound());
+		assertEquals(context.getPathSize() + 2, ls.coordinates().size());
+		QuadTree tree = map.getQuadTree();
+		assertNotNull(tree);
+		OccupancyGrid occupancy = map.getOccupancy();
+		int free = occupancy.getWidth() * occupancy.getHeight() - occupancy.cardinality();
+		assertTrue(tree.getLeafCount() * 4 < free);
+		for (int i = 0; i < tree.getLeafCount(); i++)
+			for (int y = tree.getY(i); y < tree.getY(i) + tree.getSize(i); y++)
+				for (int x = tree.getX(i); x < tree.getX(i) + tree.getSize(i); x++)
+					assertEquals(i, tree.leafOf(y * occupancy.getWidth() + x));
+
+		// 障碍变化后重新构建
+		GridGeometry grid = map.getGrid();
+		double x = grid.getX(50), y = grid.getY(30);
+		double w = grid.getCellWidth() * 2.5, h = grid.getCellHeight() * 2.5;
+		map.addObstacle(square(x, y, w, h));
+		assertTrue(map.findPath(3, 60, 95, 2, context));
+		assertNotSame(tree, map.getQuadTree());
+	}
+
+	public void testCellSize() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		MatrixMap map = new MatrixMap(collection);
+		double width = TurfMeasurement.distance(Point.fromLngLat(map.getGrid().getWest(), map.getGrid().getSouth()),
+				Point.fromLngLat(map.getGrid().getEast(), map.getGrid().getSouth()), TurfConstants.UNIT_METERS);
+		MatrixMap fine = new MatrixMap();
+		fine.setCellSize(0.2);
+		fine.generateMatrix(collection);
+		assertEquals(Math.floor(width / 0.2), fine.getGrid().getColumns(), 1);
+		// 网格越细, 四叉树叶结点数相对可通过网格数越少
+		OccupancyGrid occupancy = fine.getOccupancy();
+		int free = occupancy.getWidth() * occupancy.getHeight() - occupancy.cardinality();
+		assertTrue(fine.buildQuadTree().getLeafCount() * 10 < free);
+		MatrixMap coarse = new MatrixMap();
+		coarse.setCellSize(2);
+		coarse.generateMatrix(collection);
+		assertEquals(Math.floor(width / 2), coarse.getGrid().getColumns(), 1);
+		assertTrue(coarse.getGrid().getRows() < map.getGrid().getRows());
+		assertNotNull(coarse.shortestPath(new double[] { 117.227502, 31.750481 },
+				new double[] { 117.228057, 31.751049 }));
+	}
+
+	public void testVisibilityGraph() {
+		ThetaStar theta = new ThetaStar();
+		theta.setLazy(false);
+		VisibilitySearch search = new VisibilitySearch();
+		Random random = new Random(37);
+		for (int n = 0; n < 100; n++) {
+			int width = 10 + random.nextInt(50);
+			int height = 10 + random.nextInt(50);
+			// 网格中心为整数坐标, 经度 = u, 纬度 = -v
+			double[] xs = new double[width];
+			double[] ys = new double[height];
+			for (int c = 0; c < width; c++)
+				xs[c] = c;
+			for (int r = 0; r < height; r++)
+				ys[r] = -r;
+			GridGeometry geometry = new GridGeometry(-0.5, 0.5 - height, width - 0.5, 0.5, 1, 1, xs, ys);
+			// 互不接触(至少间隔一格)的矩形障碍物, 边界在网格边上
+			int[][] matrix = new int[height][width];
+			List<Polygon> polygons = Lists.newArrayList();
+			for (int k = 0; k < width * height / 40; k++) {
+				int x = random.nextInt(width), y = random.nextInt(height);
+				int w = Math.min(1 + random.nextInt(8), width - x), h = Math.min(1 + random.nextInt(4), height - y);
+				boolean free = true;
+				for (int yy = Math.max(0, y - 1); yy < Math.min(height, y + h + 1); yy++)
+					for (int xx = Math.max(0, x - 1); xx < Math.min(width, x + w + 1); xx++)
+						free &= matrix[yy][xx] == 0;
+				if (!free)
+					continue;
+				for (int yy = y; yy < y + h; yy++)
+					for (int xx = x; xx < x + w; xx++)
+						matrix[yy][xx] = AStar.BAR;
+				double u0 = x - 0.5, u1 = x + w - 0.5, v0 = y - 0.5, v1 = y + h - 0.5;
+				polygons.add(Polygon.fromLngLats(Arrays.asList(Arrays.asList(Point.fromLngLat(u0, -v0),
+						Point.fromLngLat(u1, -v0), Point.fromLngLat(u1, -v1), Point.fromLngLat(u0, -v1),
+						Point.fromLngLat(u0, -v0)))));
+			}
+			OccupancyGrid grid = OccupancyGrid.fromMatrix(matrix);
+			VisibilityGraph graph = VisibilityGraph.build(geometry, polygons);
+			int sx, sy, ex, ey;
+			do {
+				sx = random.nextInt(width);
+				sy = random.nextInt(height);
+				ex = random.nextInt(width);
+				ey = random.nextInt(height);
+			} while (grid.isBlocked(sx, sy) || grid.isBlocked(ex, ey));
+
+			boolean found = search.search(graph, sx, sy, ex, ey);
+			assertEquals(theta.search(grid, sx, sy, ex, ey), found);
+			double expected = search.getLength();
+			// 逐个增加障碍物得到的可视图与一次构建相同
+			if (!polygons.isEmpty()) {
+				VisibilityGraph incremental = VisibilityGraph.build(geometry, polygons.subList(0, polygons.size() / 2));
+				for (Polygon polygon : polygons.subList(polygons.size() / 2, polygons.size()))
+					incremental = incremental.withObstacle(polygon);
+				assertEquals(graph.getNodeCount(), incremental.getNodeCount());
+				assertEquals(graph.getEdgeCount(), incremental.getEdgeCount());
+				assertEquals(found, search.search(incremental, sx, sy, ex, ey));
+				assertEquals(expected, search.getLength(), 1e-9);
+				search.search(graph, sx, sy, ex, ey);
+			}
+			if (!found)
+				continue;
+			// 不受网格限制, 不长于网格上的任意角度路径(顶点外移的误差除外)
+			assertTrue(search.getLength() <= theta.getLength() + 0.2 * search.getPathSize());
+			assertTrue(search.getLength() >= Math.hypot(ex - sx, ey - sy) - 1e-9);
+			assertEquals(sx, search.getPathU(0), 0);
+			assertEquals(ey, search.getPathV(search.getPathSize() - 1), 0);
+			double length = 0;
+			for (int i = 1; i < search.getPathSize(); i++) {
+				double u0 = search.getPathU(i - 1), v0 = search.getPathV(i - 1);
+				double u1 = search.getPathU(i), v1 = search.getPathV(i);
+				length += Math.hypot(u1 - u0, v1 - v0);
+				// 线段上的采样点不在障碍物内
+				int samples = 64 * (int) Math.ceil(Math.hypot(u1 - u0, v1 - v0));
+				for (int k = 0; k <= samples; k++) {
+					double t = (double) k / samples;
+					double u = u0 + (u1 - u0) * t, v = v0 + (v1 - v0) * t;
+					for (Polygon polygon : polygons) {
+						double[] box = TurfMeasurement.bbox(polygon);
+						assertFalse(u > box[0] && u < box[2] && -v > box[1] && -v < box[3]);
+					}
+				}
+			}
+			assertEquals(search.getLength(), length, 1e-9);
+		}
+	}
+
+	public void testMatrixMapVisibility() {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		map.setVisibilityRouting(true);
+		SearchContext context = new SearchContext();
+		double[] start = new double[] { 117.227502, 31.750481 };
+		double[] end = new double[] { 117.228057, 31.751049 };
+		LineString ls = map.shortestPath(start, end, context);
+		assertTrue(context.isFound());
+		assertTrue(context.isFromVisibility());
+		assertEquals(0, context.getPathSize());
+		VisibilityGraph graph = map.getVisibilityGraph();
+		assertTrue(graph.getNodeCount() > 0);
+		// 不经过栅格化, 不长于同一矩阵图、同一对出入口的 Theta* 路径
+		SearchContext theta = new SearchContext();
+		map.setVisibilityRouting(false);
+		map.setEngine(PathFinder.Engine.THETA);
+		map.shortestPath(start, end, theta);
+		map.setVisibilityRouting(true);
+		assertTrue(theta.isFound());
+		assertFalse(theta.isFromVisibility());
+		assertTrue(context.getLength() <= theta.getLength());
+		assertEquals(context.getVisibilitySearch().getPathSize(), ls.coordinates().size());
+		double before = context.getLength();
+		assertEquals(start[0], ls.coordinates().get(0).longitude());
+		ObstacleIndex index = map.obstacleIndex();
+		for (int i = 2; i < ls.coordinates().size() - 1; i++) {
+			Point a = ls.coordinates().get(i - 1), b = ls.coordinates().get(i);
+			for (int k = 0; k <= 32; k++) {
+				double t = k / 32.0;
+				assertFalse(index.isInside(Point.fromLngLat(a.longitude() + (b.longitude() - a.longitude()) * t,
+						a.latitude() + (b.latitude() - a.latitude()) * t)));
+			}
+		}
+		// 网格搜索不受可视图路由影响
+		assertTrue(map.findPath(3, 60, 95, 2, context));
+		assertFalse(context.isFromVisibility());
+		assertTrue(context.getPathSize() > 0);
+
+		// 增加的障碍物挡住原路径, 可视图增量更新
+		Point a = ls.coordinates().get(1), b = ls.coordinates().get(2);
+		double x = (a.longitude() + b.longitude()) / 2, y = (a.latitude() + b.latitude()) / 2;
+		double w = map.getGrid().getCellWidth(), h = map.getGrid().getCellHeight();
+		Polygon obstacle = square(x, y, w, h);
+		map.addObstacle(obstacle);
+		VisibilityGraph updated = map.getVisibilityGraph();
+		assertNotNull(updated);
+		assertTrue(updated.getNodeCount() > graph.getNodeCount());
+		map.shortestPath(start, end, context);
+		assertTrue(context.isFound());
+		assertTrue(context.getLength() > before);
+		assertSame(updated, map.getVisibilityGraph());
+
+		// 移除后在下一次查询时重新构建
+		map.removeObstacle(obstacle);
+		assertNull(map.getVisibilityGraph());
+		map.shortestPath(start, end, context);
+		assertEquals(before, context.getLength(), 1e-9);
+		assertEquals(graph.getNodeCount(), map.getVisibilityGraph().getNodeCount());
+		assertEquals(graph.getEdgeCount(), map.getVisibilityGraph().getEdgeCount());
+	}
+
+	public void testSnapshot() throws Exception {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		map.buildRoutingTable();
+		map.setSnapToFree(true);
+		map.setOffHeap(true);
+		map.setCellSize(0.5);
+		Path file = Files.createTempFile("matrix", ".snapshot");
+		try {
+			map.writeSnapshot(file);
+			MatrixMap loaded = MatrixMap.readSnapshot(file);
+			assertTrue(loaded.isSnapToFree());
+			assertTrue(loaded.isOffHeap());
+			assertEquals(0.5, loaded.getCellSize());
+
+			OccupancyGrid expected = map.getOccupancy();
+			OccupancyGrid actual = loaded.getOccupancy();
+			assertEquals(expected.getWidth(), actual.getWidth());
+			assertEquals(expected.getHeight(), actual.getHeight());
+			assertEquals(expected.cardinality(), actual.cardinality());
+			for (int y = 0; y < expected.getHeight(); y++)
+				for (int x = 0; x < expected.getWidth(); x++)
+					assertEquals(expected.isBlocked(x, y), actual.isBlocked(x, y));
+			for (int c = 0; c < map.getGrid().getColumns(); c++)
+				assertEquals(map.getGrid().getX(c), loaded.getGrid().getX(c));
+			for (int i = 0; i < map.getEntrances().size(); i++)
+				assertEquals(map.getEntrances().getCell(i), loaded.getEntrances().getCell(i));
+			assertNotNull(loaded.getRoutingTable());
+			assertEquals(map.getRoutingTable().getDistance(0, 3), loaded.getRoutingTable().getDistance(0, 3));
+
+			double[] start = new double[] { 117.227502, 31.750481 };
+			double[] end = new double[] { 117.228057, 31.751049 };
+			assertEquals(map.shortestPath(start, end).coordinates(), loaded.shortestPath(start, end).coordinates());
+			SearchContext context = new SearchContext();
+			assertTrue(loaded.findPath(3, 60, 95, 2, context));
+			assertEquals(map.findPath(3, 60, 95, 2, new SearchContext()), context.isFound());
+
+			// 读取的快照同样可以增加、移除障碍物, 映射的文件不被修改
+			GridGeometry grid = loaded.getGrid();
+			double x = grid.getX(50), y = grid.getY(30);
+			double w = grid.getCellWidth() * 2.5, h = grid.getCellHeight() * 2.5;
+			Polygon pallet = square(x, y, w, h);
+			int[] changed = loaded.addObstacle(pallet);
+			assertEquals(actual.cardinality() + changed.length, loaded.getOccupancy().cardinality());
+			loaded.writeSnapshot(file);
+			MatrixMap reloaded = MatrixMap.readSnapshot(file);
+			assertEquals(1, reloaded.getDynamicObstacles().size());
+			assertEquals(changed.length, reloaded.removeObstacle(pallet).length);
+			assertEquals(expected.cardinality(), reloaded.getOccupancy().cardinality());
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	public void testSnapshotCorrupt() throws Exception {
+		MatrixMap map = new MatrixMap(FeatureCollection.fromJson(featureJson));
+		map.addObstacle(square(map.getGrid().getX(50), map.getGrid().getY(30), map.getGrid().getCellWidth(),
+				map.getGrid().getCellHeight()));
+		map.buildRoutingTable();
+		Path file = Files.createTempFile("matrix", ".snapshot");
+		Path truncated = Files.createTempFile("matrix", ".snapshot");
+		try {
+			map.writeSnapshot(file);
+			byte[] bytes = Files.readAllBytes(file);
+			// 在各个位置截断, 都应当报告不是快照而不是抛出 BufferUnderflowException 等
+			for (int length = 8; length < bytes.length; length += Math.max(1, bytes.length / 97)) {
+				Files.write(truncated, Arrays.copyOf(bytes, length));
+				try {
+					MatrixMap.readSnapshot(truncated);
+					fail();
+				} catch (Error e) {
+					assertEquals("not a matrix map snapshot", e.getMessage());
+				}
+			}
+
+			// 出入口网格与路径表中的网格超出矩阵图
+			int width = map.getOccupancy().getWidth(), height = map.getOccupancy().getHeight();
+			int n = map.getEntrances().size();
+			int cells = 28 + 48 + 8 * (width + height) + 4 + 16 * n;
+			int paths = cells + 4 * n + 4 + 8 + 8 * n * n;
+			assertTrue(map.getRoutingTable().isReachable(0, 1));
+			for (int offset : new int[] { cells, cells + 4 * (n - 1), paths + 4 }) {
+				for (int cell : new int[] { -1, width * height }) {
+					ByteBuffer corrupt = ByteBuffer.wrap(bytes.clone()).order(ByteOrder.LITTLE_ENDIAN);
+					corrupt.putInt(offset, cell);
+					Files.write(truncated, corrupt.array());
+					try {
+						MatrixMap.readSnapshot(truncated);
+						fail();
+					} catch (Error e) {
+						assertEquals("not a matrix map snapshot", e.getMessage());
+					}
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(truncated);
+		}
+
+		// 替换失败(目标是非空目录)时不留下临时文件
+		Path dir = Files.createTempDirectory("matrix");
+		Path target = Files.createDirectory(dir.resolve("snapshot"));
+		Path inner = Files.createFile(target.resolve("keep"));
+		try {
+			map.writeSnapshot(target);
+			fail();
+		} catch (Error e) {
+			// 无法替换目录
+		} finally {
+			try (Stream<Path> files = Files.list(dir)) {
+				assertEquals(1, files.count());
+			}
+			Files.delete(inner);
+			Files.delete(target);
+			Files.delete(dir);
+		}
+	}
+
+	public void testObstacleReader() {
+		FeatureCollection collection = FeatureCollection.fromJson(featureJson);
+		MatrixMap expected = new MatrixMap(collection);
+		MatrixMap streamed = new MatrixMap(
+				new ByteArrayInputStream(featureJson.getBytes(StandardCharsets.UTF_8)));
+		assertEquals(expected.getGrid().getColumns(), streamed.getGrid().getColumns());
+		assertEquals(expected.getGrid().getRows(), streamed.getGrid().getRows());
+		assertEquals(expected.getGrid().getWest(), streamed.getGrid().getWest());
+		assertEquals(expected.getOccupancy().cardinality(), streamed.getOccupancy().cardinality());
+		for (int y = 0; y < expected.getGrid().getRows(); y++)
+			for (int x = 0; x < expected.getGrid().getColumns(); x++)
+				assertEquals(expected.getOccupancy().isBlocked(x, y), streamed.getOccupancy().isBlocked(x, y));
+		assertEquals(expected.getEntrances().size(), streamed.getEntrances().size());
+		for (int i = 0; i < expected.getEntrances().size(); i++)
+			assertEquals(expected.getEntrances().getCell(i), streamed.getEntrances().getCell(i));
+		double[] start = new double[] { 117.227502, 31.750481 };
+		double[] end = new double[] { 117.228057, 31.751049 };
+		assertEquals(expected.shortestPath(start, end).coordinates(), streamed.shortestPath(start, end).coordinates());
+
+		// 只保留指定的属性, operation 等其余属性被跳过
+		ObstacleReader reader = new ObstacleReader("id");
+		int count = reader.read(new StringReader(featureJson));
+		assertEquals(collection.features().size(), reader.getFeatures());
+		assertEquals(count, reader.getGeometries().size());
+		assertTrue(Arrays.equals(TurfMeasurement.bbox(collection), reader.getBBox()));
+		assertEquals(42, reader.getProperties(0).get("id").getAsInt());
+		assertFalse(reader.getProperties(0).has("operation"));
+
+		try {
+			new ObstacleReader().read(new StringReader("{\"type\":\"FeatureCollection\",\"features\":["));
+			fail();
+		} catch (Error e) {
+			// 不完整的 JSON
+		}
+		String[] malformed = new String[] { "{\"type\":\"Polygon\",\"coordinates\":[1,2]}",
+				"{\"type\":\"Polygon\",\"coordinates\":[[1,2],[3,4]]}",
+				"{\"type\":\"Point\",\"coordinates\":[[1,2]]}",
+				"{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,\"a\"]}}" };
+		for (String json : malformed) {
+			try {
+				new ObstacleReader().read(new StringReader(json));
+				fail(json);
+			} catch (Error e) {
+				// 坐标的层级与几何类型不符
+				assertEquals("invalid obstacles", e.getMessage());
+			}
+		}
+	}
+
+	private static void assertReplanned(boolean found, PathFinder finder, OccupancyGrid grid, int sx, int sy, int ex,
+			int ey) {
+		double expected = dijkstra(grid, sx, sy, ex, ey);
+		assertEquals(expected >= 0, found);
+		if (!found)
+			return;
+		assertEquals(expected, finder.getLength(), 1e-9);
+		assertValidPath(finder, grid, sx, sy, ex, ey);
+	}
+
+	/**
+	 * 路径代价与参考实现一致, 路径连续且不经过障碍
+	 */
+	private static void assertPath(PathFinder finder, OccupancyGrid grid, int sx, int sy, int ex, int ey) {
+		double expected = dijkstra(grid, sx, sy, ex, ey);
+		boolean found = finder.search(grid, sx, sy, ex, ey);
+		assertEquals(expected >= 0, found);
+		if (!found)
+			return;
+		assertEquals(expected, finder.getLength(), 1e-9);
+		assertValidPath(finder, grid, sx, sy, ex, ey);
+	}
+
+	/**
+	 * 路径连续, 不经过障碍, 且各步代价之和等于路径长度
+	 */
+	private static void assertValidPath(PathFinder finder, OccupancyGrid grid, int sx, int sy, int ex, int ey) {
+		double length = 0;
+		assertEquals(sy * grid.getWidth() + sx, finder.getPath()[0]);
+		assertEquals(ey * grid.getWidth() + ex, finder.getPath()[finder.getPathSize() - 1]);
+		for (int i = 1; i < finder.getPathSize(); i++) {
+			int dx = Math.abs(finder.getPathX(i) - finder.getPathX(i - 1));
+			int dy = Math.abs(finder.getPathY(i) - finder.getPathY(i - 1));
+			assertTrue(dx <= 1 && dy <= 1 && dx + dy > 0);
+			length += dx + dy == 2 ? Math.sqrt(2) : 1;
+			if (i < finder.getPathSize() - 1)
+				assertFalse(grid.isBlocked(finder.getPathX(i), finder.getPathY(i)));
+		}
+		assertEquals(finder.getLength(), length, 1e-9);
+	}
+
+	/**
+	 * 参考实现: 朴素 Dijkstra, 移动规则与 GridAStar 相同, 无路径时返回 -1
+	 */
+	private static double dijkstra(OccupancyGrid grid, int sx, int sy, int ex, int ey) {
+		int width = grid.getWidth(), height = grid.getHeight();
+		int start = sy * width + sx, end = ey * width + ex;
+		double[] dist = new double[width * height];
+		boolean[] done = new boolean[width * height];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		dist[start] = 0;
+		PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+		queue.add(new double[] { 0, start });
+		while (!queue.isEmpty()) {
+			int current = (int) queue.poll()[1];
+			if (done[current])
+				continue;
+			done[current] = true;
+			if (current == end)
+				return dist[end];
+			for (int i = 0; i < 8; i++) {
+				int nx = current % width + GridAStar.DX[i], ny = current / width + GridAStar.DY[i];
+				if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+					continue;
+				int next = ny * width + nx;
+				if (grid.isBlocked(nx, ny) && next != start && next != end)
+					continue;
+				double d = dist[current] + (i < 4 ? 1 : Math.sqrt(2));
+				if (d < dist[next]) {
+					dist[next] = d;
+					queue.add(new double[] { d, next });
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 以 (x, y) 为中心、半宽 w、半高 h 的矩形障碍物(托盘)
+	 */
+	/**
+	 * 首尾坐标与坐标数相同(等长路径可能经过不同网格)
+	 */
+	private static void assertSameEnds(LineString expected, LineString actual) {
+		List<Point> e = expected.coordinates(), a = actual.coordinates();
+		assertEquals(e.size(), a.size());
+		assertEquals(e.get(0), a.get(0));
+		assertEquals(e.get(e.size() - 1), a.get(a.size() - 1));
+	}
+
+	private static Polygon square(double x, double y, double w, double h) {
+		return Polygon.fromLngLats(Arrays.asList(Arrays.asList(Point.fromLngLat(x - w, y - h),
+				Point.fromLngLat(x + w, y - h), Point.fromLngLat(x + w, y + h), Point.fromLngLat(x - w, y + h),
+				Point.fromLngLat(x - w, y - h))));
+	}
+
+	/**
+	 * 随机障碍网格: 宽、高为 5 到 4 + maxSize, 障碍密度在 [0, maxDensity) 内随机
+	 */
+	private static OccupancyGrid randomGrid(Random random, int maxSize, double maxDensity) {
+		int width = 5 + random.nextInt(maxSize);
+		int height = 5 + random.nextInt(maxSize);
+		double density = random.nextDouble() * maxDensity;
+		int[][] matrix = new int[height][width];
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				matrix[y][x] = random.nextDouble() < density ? AStar.BAR : 0;
+		return OccupancyGrid.fromMatrix(matrix);
 	}
 
 }
@@ -1,6 +1,7 @@
 package com.pactera.turf.geojson;
 
 import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.Point;
 import com.mapbox.geojson.Polygon;
 
 import junit.framework.TestCase;
@@ -11,15 +12,19 @@ public class GeoJsonTest extends TestCase {
 		super(testName);
 	}
 
-	public void polygonFromJson() {
+	public void testPolygonFromJson() {
 		String polygonJson = "{\"coordinates\":[[[0,-7],[5,-7],[5,-3],[0,-3],[0,-7]]]}";
 		Polygon polygon = Polygon.fromJson(polygonJson);
-		System.out.println(polygon);
+		assertEquals(1, polygon.coordinates().size());
+		assertEquals(5, polygon.outer().coordinates().size());
+		assertEquals(Point.fromLngLat(5, -3), polygon.coordinates().get(0).get(2));
 	}
 
-	public void featureFromJson() {
+	public void testFeatureFromJson() {
 		String featureJson = "{\"type\":\"Feature\",\"properties\":{},\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[[0,-7],[5,-7],[5,-3],[0,-3],[0,-7]]]}}";
 		Feature feature = Feature.fromJson(featureJson);
-		System.out.println(feature);
+		assertTrue(feature.geometry() instanceof Polygon);
+		assertEquals(Point.fromLngLat(0, -7), ((Polygon) feature.geometry()).coordinates().get(0).get(0));
+		assertEquals(0, feature.properties().size());
 	}
 }